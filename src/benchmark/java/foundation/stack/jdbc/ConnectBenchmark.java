@@ -0,0 +1,78 @@
+package foundation.stack.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole {@code jdbc:sf} connect and close against {@link InProcessLookup} and {@link InProcessDriver}, so
+ * the result is the driver's own overhead with nothing spent in a real database.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConnectBenchmark {
+    private static final String URL = "jdbc:sf:connect";
+    private static final String POOLED_URL = URL + "?pool.max=16";
+
+    private final InProcessLookup lookup = new InProcessLookup();
+    private final DelegatingDriver driver = new DelegatingDriver();
+    private final Properties info = new Properties();
+
+    @Setup
+    public void registerStandIns() throws SQLException {
+        InProcessDriver.register();
+        ConnectionLookupRegistry.getRegistry().registerLookup(lookup);
+    }
+
+    @TearDown
+    public void deregisterStandIns() {
+        ConnectionLookupRegistry.getRegistry().deregisterLookup(lookup);
+        ConnectionLookupRegistry.getRegistry().invalidateAll();
+    }
+
+    private static Connection connectAndClose(Connection connection) throws SQLException {
+        connection.close();
+        return connection;
+    }
+
+    @Benchmark
+    public Connection connect() throws SQLException {
+        return connectAndClose(driver.connect(URL, info));
+    }
+
+    @Benchmark
+    public Connection connectThroughDriverManager() throws SQLException {
+        return connectAndClose(DriverManager.getConnection(URL, info));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Connection pooledConnect() throws SQLException {
+        return connectAndClose(driver.connect(POOLED_URL, info));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Connection pooledConnectFourThreads() throws SQLException {
+        return connectAndClose(driver.connect(POOLED_URL, info));
+    }
+}
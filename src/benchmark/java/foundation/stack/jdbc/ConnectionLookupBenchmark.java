@@ -0,0 +1,105 @@
+package foundation.stack.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares lookups answered from the registry's cache with lookups that have to go to a {@link ConnectionLookup}, at
+ * one, four and as many threads as there are processors.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConnectionLookupBenchmark {
+    private static final String CACHED_QUERY = "cached";
+
+    private final InProcessLookup lookup = new InProcessLookup();
+    private ConnectionLookupRegistry registry;
+
+    /**
+     * Gives every benchmark thread its own queries, so cold lookups never find an entry left by another thread.
+     */
+    @State(Scope.Thread)
+    public static class ColdQueries {
+        private static final AtomicInteger threads = new AtomicInteger();
+
+        private final String prefix = "cold-" + threads.incrementAndGet() + '-';
+        private long next;
+
+        String nextQuery() {
+            return prefix + next++;
+        }
+    }
+
+    @Setup
+    public void registerLookup() {
+        registry = ConnectionLookupRegistry.getRegistry();
+        registry.registerLookup(lookup);
+        registry.lookupConnection(CACHED_QUERY);
+    }
+
+    @TearDown
+    public void deregisterLookup() {
+        registry.deregisterLookup(lookup);
+        registry.invalidateAll();
+    }
+
+    private ConnectionLookupResult coldLookup(ColdQueries queries) {
+        String query = queries.nextQuery();
+        ConnectionLookupResult result = registry.lookupConnection(query);
+        registry.invalidate(query);
+        return result;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ConnectionLookupResult cachedLookup() {
+        return registry.lookupConnection(CACHED_QUERY);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ConnectionLookupResult cachedLookupFourThreads() {
+        return registry.lookupConnection(CACHED_QUERY);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ConnectionLookupResult cachedLookupAllThreads() {
+        return registry.lookupConnection(CACHED_QUERY);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ConnectionLookupResult coldLookup1Thread(ColdQueries queries) {
+        return coldLookup(queries);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ConnectionLookupResult coldLookupFourThreads(ColdQueries queries) {
+        return coldLookup(queries);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ConnectionLookupResult coldLookupAllThreads(ColdQueries queries) {
+        return coldLookup(queries);
+    }
+}
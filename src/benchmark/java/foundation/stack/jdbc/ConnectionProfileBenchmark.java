@@ -0,0 +1,151 @@
+package foundation.stack.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Connector/J settings of each {@link ConnectionProfile} (and none) on the workloads they are meant for:
+ * batched inserts, the same small query prepared over and over, and reading a large table. Like
+ * {@link MySqlServerProfileBenchmark} this needs a real server; running with {@code -prof gc} also shows how much less
+ * a streamed scan allocates, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="ConnectionProfileBenchmark -prof gc
+ *     -jvmArgsAppend -Dsf.benchmark.mysql=jdbc:mysql://localhost:3306?user=root&amp;password=secret"
+ * </pre>
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConnectionProfileBenchmark {
+    private static final String SERVER_PROPERTY = "sf.benchmark.mysql";
+    private static final String DATABASE = "sf_connection_profile_benchmark";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int SCAN_ROWS = 100000;
+
+    @Param({"none", "throughput", "streaming", "lowlatency"})
+    private String profile;
+
+    private Connection connection;
+
+    private static void createDatabase(String serverConnectionString) throws SQLException {
+        Properties loadProperties = new Properties();
+        loadProperties.setProperty("rewriteBatchedStatements", "true");
+        try (Connection setupConnection = DriverManager.getConnection(serverConnectionString, loadProperties);
+             Statement statement = setupConnection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + DATABASE);
+            statement.execute("CREATE DATABASE " + DATABASE);
+            statement.execute("USE " + DATABASE);
+            statement.execute("CREATE TABLE batch_rows (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100))");
+            statement.execute("CREATE TABLE scan_rows (id INT PRIMARY KEY, name VARCHAR(100), amount BIGINT)");
+
+            setupConnection.setAutoCommit(false);
+            try (PreparedStatement insert = setupConnection.prepareStatement(
+                    "INSERT INTO scan_rows (id, name, amount) VALUES (?, ?, ?)")) {
+                for (int row = 1; row <= SCAN_ROWS; row++) {
+                    insert.setInt(1, row);
+                    insert.setString(2, "row " + row);
+                    insert.setLong(3, row);
+                    insert.addBatch();
+                    if (row % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+            setupConnection.commit();
+        }
+    }
+
+    @Setup
+    public void connect() throws SQLException {
+        String serverConnectionString = System.getProperty(SERVER_PROPERTY);
+        if (serverConnectionString == null) {
+            throw new IllegalStateException("Set " + SERVER_PROPERTY + " to the JDBC URL of a MySQL server");
+        }
+
+        createDatabase(serverConnectionString);
+
+        Properties properties = new Properties();
+        if (!"none".equals(profile)) {
+            properties.setProperty(ConnectionProfile.PROFILE_PROPERTY, profile);
+        }
+        connection = DriverManager.getConnection(serverConnectionString,
+                ConnectionProfile.applyProfile(properties, serverConnectionString));
+        connection.setCatalog(DATABASE);
+    }
+
+    @TearDown
+    public void dropDatabase() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE " + DATABASE);
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int batchInsert() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO batch_rows (name) VALUES (?)")) {
+            for (int row = 0; row < BATCH_SIZE; row++) {
+                insert.setString(1, "row " + row);
+                insert.addBatch();
+            }
+            return insert.executeBatch().length;
+        } finally {
+            // Keeps the table the same size for every invocation
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @Benchmark
+    public String pointQuery() throws SQLException {
+        // Prepared every time, the way most data access code does it, which is what statement caching helps with
+        try (PreparedStatement select = connection.prepareStatement("SELECT name FROM scan_rows WHERE id = ?")) {
+            select.setInt(1, ThreadLocalRandom.current().nextInt(1, SCAN_ROWS + 1));
+            try (ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long scan() throws SQLException {
+        long total = 0;
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, name, amount FROM scan_rows");
+             ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                total += resultSet.getLong(3);
+            }
+        }
+
+        return total;
+    }
+}
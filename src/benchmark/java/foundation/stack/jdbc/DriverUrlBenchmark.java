@@ -0,0 +1,74 @@
+package foundation.stack.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures recognizing and taking apart {@code jdbc:sf} URLs, which happens on every connect (and, through
+ * {@link java.sql.DriverManager}, for every URL of every other driver too).
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DriverUrlBenchmark {
+    private final DelegatingDriver driver = new DelegatingDriver();
+
+    private final String url = "jdbc:sf:branch";
+    private final String urlWithOptions = "jdbc:sf:branch?pool.max=10&pool.validationQuery=SELECT 1&useSSL=false";
+    private final String foreignUrl = "jdbc:mysql://localhost:3306/branch_master";
+    private final Properties info = new Properties();
+
+    {
+        info.setProperty("user", "benchmark");
+        info.setProperty("password", "benchmark");
+    }
+
+    @Benchmark
+    public boolean acceptsURL() throws SQLException {
+        return driver.acceptsURL(url);
+    }
+
+    @Benchmark
+    public boolean rejectsForeignURL() throws SQLException {
+        return driver.acceptsURL(foreignUrl);
+    }
+
+    @Benchmark
+    public DelegatingUrl parse() throws SQLException {
+        return DelegatingUrl.parse(url);
+    }
+
+    @Benchmark
+    public DelegatingUrl parseWithOptions() throws SQLException {
+        return DelegatingUrl.parse(urlWithOptions);
+    }
+
+    @Benchmark
+    public DelegatingUrl parseUncachedWithOptions() throws SQLException {
+        return DelegatingUrl.parseUncached(urlWithOptions);
+    }
+
+    @Benchmark
+    public Properties mergeOptions() throws SQLException {
+        return DelegatingUrl.parse(url).mergeOptions(info);
+    }
+
+    @Benchmark
+    public Properties mergeOptionsWithOptions() throws SQLException {
+        return DelegatingUrl.parse(urlWithOptions).mergeOptions(info);
+    }
+}
@@ -0,0 +1,97 @@
+package foundation.stack.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * A driver for {@code jdbc:inprocess:} URLs whose connections do nothing, so benchmarks measure only the work done by
+ * this driver and not a database.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class InProcessDriver implements Driver {
+    static final String PREFIX = "jdbc:inprocess:";
+
+    private static boolean registered;
+
+    static synchronized void register() throws SQLException {
+        if (!registered) {
+            DriverManager.registerDriver(new InProcessDriver());
+            registered = true;
+        }
+    }
+
+    private static Connection createConnection() {
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(InProcessDriver.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closed[0] = true;
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        case "isValid":
+                            return !closed[0];
+                        case "getAutoCommit":
+                            return true;
+                        case "isReadOnly":
+                            return false;
+                        case "unwrap":
+                            return proxy;
+                        case "isWrapperFor":
+                            return false;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InProcessConnection";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        return acceptsURL(url) ? createConnection() : null;
+    }
+
+    @Override
+    public boolean acceptsURL(String url) throws SQLException {
+        return url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
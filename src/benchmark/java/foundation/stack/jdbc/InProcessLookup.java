@@ -0,0 +1,29 @@
+package foundation.stack.jdbc;
+
+/**
+ * Resolves every query to an {@link InProcessDriver} URL without any I/O. It is ordered ahead of the lookups found
+ * through service discovery so that nothing tries to start a container.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class InProcessLookup implements ConnectionLookup {
+    @Override
+    public String find(String query) {
+        return InProcessDriver.PREFIX + query;
+    }
+
+    @Override
+    public String getDefaultUsername() {
+        return "benchmark";
+    }
+
+    @Override
+    public String getDefaultPassword() {
+        return "benchmark";
+    }
+
+    @Override
+    public int getOrder() {
+        return Integer.MIN_VALUE;
+    }
+}
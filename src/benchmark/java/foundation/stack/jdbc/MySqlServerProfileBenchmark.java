@@ -0,0 +1,127 @@
+package foundation.stack.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a migration-like workload (creating tables and indexes, then inserting rows one commit at a time) against a
+ * MySQL server tuned with each {@link MySqlServerProfile}. It changes global settings on the server, so by default it
+ * starts (or reuses) this application's MySQL container through
+ * {@link DockerDatabaseServerPerApplicationConnectionLookup}, which needs Docker:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="MySqlServerProfileBenchmark"
+ * </pre>
+ * Another server can be used instead with e.g.
+ * {@code -jvmArgsAppend -Dsf.benchmark.mysql=jdbc:mysql://localhost:3306?user=root&amp;password=secret}, and
+ * {@code -jvmArgsAppend -Dsf.mysql.fast.disableRedoLog=true} includes turning off the redo log in FAST.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MySqlServerProfileBenchmark {
+    private static final String SERVER_PROPERTY = "sf.benchmark.mysql";
+    private static final String DATABASE = "sf_profile_benchmark";
+
+    private static final int TABLES = 30;
+    private static final int ROWS_PER_TABLE = 100;
+
+    @Param({"STANDARD", "FAST"})
+    private MySqlServerProfile profile;
+
+    private final MySqlDatabaseManager databaseManager = new MySqlDatabaseManager();
+    private String serverConnectionString;
+
+    /**
+     * STANDARD leaves the server alone, so set the stock durable values explicitly in case an earlier run did not.
+     */
+    private static Map<String, String> durableSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("innodb_flush_log_at_trx_commit", "1");
+        settings.put("sync_binlog", "1");
+        return settings;
+    }
+
+    private static String startServer() {
+        // The lookup creates the database on the container's server, whose connection string is the same without it
+        return new DockerDatabaseServerPerApplicationConnectionLookup().find(DATABASE).replace("/" + DATABASE, "");
+    }
+
+    private void makeDurable() throws SQLException {
+        databaseManager.applyGlobalSettings(serverConnectionString, durableSettings());
+        if (MySqlDatabaseManager.isVersionAtLeast(databaseManager.getServerVersion(serverConnectionString), 8, 0, 21)) {
+            try (Connection connection = DriverManager.getConnection(serverConnectionString);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("ALTER INSTANCE ENABLE INNODB REDO_LOG");
+            }
+        }
+    }
+
+    @Setup
+    public void tuneServer() throws SQLException {
+        serverConnectionString = System.getProperty(SERVER_PROPERTY);
+        if (serverConnectionString == null) {
+            serverConnectionString = startServer();
+        }
+
+        makeDurable();
+        databaseManager.applyServerProfile(serverConnectionString, profile);
+    }
+
+    @TearDown
+    public void restoreServer() throws SQLException {
+        makeDurable();
+    }
+
+    @Benchmark
+    public int migrateAndLoad() throws SQLException {
+        int rows = 0;
+        try (Connection connection = DriverManager.getConnection(serverConnectionString);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + DATABASE);
+            statement.execute("CREATE DATABASE " + DATABASE);
+            statement.execute("USE " + DATABASE);
+
+            for (int table = 0; table < TABLES; table++) {
+                statement.execute("CREATE TABLE t" + table + " (id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "name VARCHAR(100) NOT NULL, created TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+                statement.execute("CREATE INDEX t" + table + "_name ON t" + table + " (name)");
+
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO t" + table + " (name) VALUES (?)")) {
+                    for (int row = 0; row < ROWS_PER_TABLE; row++) {
+                        insert.setString(1, "row " + row);
+                        rows += insert.executeUpdate();
+                    }
+                }
+            }
+
+            statement.execute("DROP DATABASE " + DATABASE);
+        }
+
+        return rows;
+    }
+}
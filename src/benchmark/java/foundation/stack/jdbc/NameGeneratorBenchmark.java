@@ -0,0 +1,87 @@
+package foundation.stack.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures finding the git repository of code loaded from a directory (as in an IDE) and from a JAR (as under Maven),
+ * both the filesystem scan and the memoized lookup, plus the public name generation entry points.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NameGeneratorBenchmark {
+    private Path repository;
+    private String directoryCodePath;
+    private String jarCodePath;
+
+    @Setup
+    public void createRepository() throws IOException {
+        repository = Files.createTempDirectory("sf-benchmark");
+        Files.createDirectories(repository.resolve(".git"));
+
+        Path module = repository.resolve("modules").resolve("service").resolve("target");
+        Path classes = Files.createDirectories(module.resolve("classes"));
+        Path jar = Files.createFile(module.resolve("service.jar"));
+
+        directoryCodePath = classes.toString() + File.separator;
+        jarCodePath = jar.toString();
+    }
+
+    @TearDown
+    public void deleteRepository() throws IOException {
+        try (Stream<Path> paths = Files.walk(repository)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public File scanDirectoryCodePath() {
+        return NameGenerator.scanForGitRootOfCodePath(directoryCodePath);
+    }
+
+    @Benchmark
+    public File scanJarCodePath() {
+        return NameGenerator.scanForGitRootOfCodePath(jarCodePath);
+    }
+
+    @Benchmark
+    public File findDirectoryCodePath() {
+        return NameGenerator.findGitRootOfCodePath(directoryCodePath);
+    }
+
+    @Benchmark
+    public File findJarCodePath() {
+        return NameGenerator.findGitRootOfCodePath(jarCodePath);
+    }
+
+    @Benchmark
+    public String generateContextApplicationName() {
+        return NameGenerator.generateContextApplicationName();
+    }
+
+    @Benchmark
+    public String generateDatabaseName() {
+        return NameGenerator.generateDatabaseName();
+    }
+}
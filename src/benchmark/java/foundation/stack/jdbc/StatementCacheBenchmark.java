@@ -0,0 +1,79 @@
+package foundation.stack.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares and runs a small query the way data access code does, once per call, on a connection with and without a
+ * {@link StatementCachingConnection} statement cache. With {@code useServerPrepStmts=true} in the server URL every
+ * uncached prepare is a round trip. Like {@link ConnectionProfileBenchmark} this needs a real server, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.args="StatementCacheBenchmark
+ *     -jvmArgsAppend -Dsf.benchmark.mysql=jdbc:mysql://localhost:3306?user=root&amp;password=secret"
+ * </pre>
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StatementCacheBenchmark {
+    private static final String SERVER_PROPERTY = "sf.benchmark.mysql";
+
+    @Param({"0", "100"})
+    private int statementCacheSize;
+
+    @Param({"false", "true"})
+    private boolean useServerPrepStmts;
+
+    private Connection connection;
+
+    @Setup
+    public void connect() throws SQLException {
+        String serverConnectionString = System.getProperty(SERVER_PROPERTY);
+        if (serverConnectionString == null) {
+            throw new IllegalStateException("Set " + SERVER_PROPERTY + " to the JDBC URL of a MySQL server");
+        }
+
+        String separator = serverConnectionString.indexOf('?') < 0 ? "?" : "&";
+        connection = StatementCachingConnection.wrap(DriverManager.getConnection(serverConnectionString + separator +
+                "useServerPrepStmts=" + useServerPrepStmts), statementCacheSize);
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int prepareAndQuery() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT table_rows FROM information_schema.tables WHERE table_schema = ? AND table_name = ?")) {
+            statement.setString(1, "mysql");
+            statement.setString(2, "user");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : -1;
+            }
+        }
+    }
+}
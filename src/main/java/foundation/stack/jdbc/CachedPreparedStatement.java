@@ -0,0 +1,135 @@
+package foundation.stack.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientException;
+
+/**
+ * A prepared statement handed out by a {@link StatementCachingConnection}. Closing it puts the underlying statement
+ * back in the cache instead of closing it; any use after that fails rather than touching a statement that may have
+ * been handed out again. Changing the settings of the statement (fetch size, timeouts and so on) means it is closed
+ * instead, since the next user would not expect them.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class CachedPreparedStatement extends DelegatingPreparedStatement {
+    private static final PreparedStatement RETURNED_STATEMENT = (PreparedStatement) Proxy.newProxyInstance(
+            CachedPreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+            (proxy, method, arguments) -> {
+                switch (method.getName()) {
+                    case "isClosed":
+                        return true;
+                    case "close":
+                        return null;
+                    case "toString":
+                        return "Statement returned to cache";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == arguments[0];
+                    default:
+                        throw new SQLNonTransientException("Statement has already been closed");
+                }
+            });
+
+    private final StatementCachingConnection connection;
+    private final StatementCachingConnection.StatementKey key;
+    private final PreparedStatement cachedStatement;
+    private boolean batched;
+    private boolean reconfigured;
+
+    CachedPreparedStatement(StatementCachingConnection connection, StatementCachingConnection.StatementKey key,
+                            PreparedStatement cachedStatement) {
+        super(cachedStatement);
+        this.connection = connection;
+        this.key = key;
+        this.cachedStatement = cachedStatement;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (preparedDelegate != RETURNED_STATEMENT) {
+            delegate = preparedDelegate = RETURNED_STATEMENT;
+            connection.release(key, cachedStatement, batched, reconfigured);
+        }
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        super.addBatch();
+        batched = true;
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        super.addBatch(sql);
+        batched = true;
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        super.closeOnCompletion();
+        reconfigured = true;
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        super.setCursorName(name);
+        reconfigured = true;
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        super.setEscapeProcessing(enable);
+        reconfigured = true;
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        super.setFetchDirection(direction);
+        reconfigured = true;
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        super.setFetchSize(rows);
+        reconfigured = true;
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        super.setLargeMaxRows(max);
+        reconfigured = true;
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        super.setMaxFieldSize(max);
+        reconfigured = true;
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        super.setMaxRows(max);
+        reconfigured = true;
+    }
+
+    @Override
+    public void setPoolable(boolean enable) throws SQLException {
+        super.setPoolable(enable);
+        reconfigured = true;
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        super.setQueryTimeout(seconds);
+        reconfigured = true;
+    }
+}
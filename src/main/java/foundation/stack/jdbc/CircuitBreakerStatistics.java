@@ -0,0 +1,50 @@
+package foundation.stack.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the state of one {@link LookupCircuitBreaker}.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class CircuitBreakerStatistics {
+    private final String lookupName;
+    private final String state;
+    private final int consecutiveFailures;
+    private final long rejectedCalls;
+    private final long retryDelayMillis;
+    private final String lastFailure;
+
+    CircuitBreakerStatistics(LookupCircuitBreaker circuitBreaker) {
+        this.lookupName = circuitBreaker.getLookupName();
+        this.state = circuitBreaker.getState().name();
+        this.consecutiveFailures = circuitBreaker.getConsecutiveFailures();
+        this.rejectedCalls = circuitBreaker.getRejectedCalls();
+        this.retryDelayMillis = circuitBreaker.getRetryDelay(TimeUnit.MILLISECONDS);
+        this.lastFailure = circuitBreaker.getLastFailure();
+    }
+
+    public String getLookupName() {
+        return lookupName;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    public String getLastFailure() {
+        return lastFailure;
+    }
+}
@@ -0,0 +1,25 @@
+package foundation.stack.jdbc;
+
+/**
+ * The stages a {@code jdbc:sf} connect goes through, each of which is timed separately by {@link DriverMetrics}.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public enum ConnectPhase {
+    /** The whole of {@code DelegatingDriver.connect} */
+    CONNECT,
+    /** Resolving a query through the lookups, on a cache miss */
+    LOOKUP,
+    /** Deriving application and branch names */
+    NAME_RESOLUTION,
+    /** Finding or creating the database server container */
+    CONTAINER,
+    /** Waiting for a new database server to accept work */
+    READINESS_WAIT,
+    /** Creating databases on the server */
+    DATABASE_CREATION,
+    /** Waiting for a pooled connection */
+    POOL_WAIT,
+    /** Opening a connection with the delegate driver */
+    DELEGATE_CONNECT
+}
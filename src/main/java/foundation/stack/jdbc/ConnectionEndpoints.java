@@ -0,0 +1,33 @@
+package foundation.stack.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The connection strings a {@link ConnectionLookup} found for a query: a primary, which takes all writes, and any
+ * number of replicas that read-only connections can be spread across.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConnectionEndpoints {
+    private final String primary;
+    private final List<String> replicas;
+
+    public ConnectionEndpoints(String primary, List<String> replicas) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+    }
+
+    public static ConnectionEndpoints primaryOnly(String primary) {
+        return new ConnectionEndpoints(primary, Collections.emptyList());
+    }
+
+    public String getPrimary() {
+        return primary;
+    }
+
+    public List<String> getReplicas() {
+        return replicas;
+    }
+}
@@ -4,7 +4,35 @@ package foundation.stack.jdbc;
  * @author Ravi Chodavarapu (rchodava@gmail.com)
  */
 public interface ConnectionLookup {
+    int DEFAULT_ORDER = 0;
+
     String find(String query);
     String getDefaultUsername();
     String getDefaultPassword();
+
+    /**
+     * Lookups are tried in ascending order, so cheap lookups should return a low value and lookups that do expensive
+     * work (like starting servers) a high one. Lookups with the same order are tried registered ones first, then in
+     * service discovery order.
+     */
+    default int getOrder() {
+        return DEFAULT_ORDER;
+    }
+
+    /**
+     * Lookups that can offer replicas to spread read-only connections across override this; by default the result of
+     * {@link #find(String)} is the only endpoint.
+     */
+    default ConnectionEndpoints findEndpoints(String query) {
+        String connectionString = find(query);
+        return connectionString == null ? null : ConnectionEndpoints.primaryOnly(connectionString);
+    }
+
+    /**
+     * Called when the endpoints found for a query are dropped from the registry's cache, e.g. because connecting to them
+     * failed, before the query is looked up again. Lookups that remember anything about those endpoints (like which
+     * databases exist on a server) should forget it here, as it may be why connecting failed.
+     */
+    default void invalidate(String query, ConnectionEndpoints endpoints) {
+    }
 }
@@ -0,0 +1,140 @@
+package foundation.stack.jdbc;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of lookup results keyed by query. Every entry carries its own expiry: pending resolutions never expire,
+ * successful ones live for the positive time-to-live and misses or failures only for the (much shorter) negative
+ * time-to-live. When the cache grows past its maximum size, expired entries are dropped first and then the entries
+ * closest to expiry.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class ConnectionLookupCache {
+    private static final long PENDING = Long.MAX_VALUE;
+
+    private static class Entry {
+        private final CompletableFuture<ConnectionLookupResult> result;
+        private volatile long expiresAt = PENDING;
+
+        private Entry(CompletableFuture<ConnectionLookupResult> result) {
+            this.result = result;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt != PENDING && now - expiresAt >= 0;
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final long negativeTimeToLiveNanos;
+
+    ConnectionLookupCache(int maximumSize, long timeToLive, long negativeTimeToLive, TimeUnit unit) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.negativeTimeToLiveNanos = unit.toNanos(negativeTimeToLive);
+    }
+
+    CompletableFuture<ConnectionLookupResult> get(String query) {
+        Entry entry = entries.get(query);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(query, entry);
+            return null;
+        }
+
+        return entry.result;
+    }
+
+    /**
+     * @return the live result already cached for the query, or null if the given pending result was installed
+     */
+    CompletableFuture<ConnectionLookupResult> putIfAbsent(String query, CompletableFuture<ConnectionLookupResult> result) {
+        Entry entry = new Entry(result);
+        while (true) {
+            Entry existing = entries.putIfAbsent(query, entry);
+            if (existing == null) {
+                return null;
+            }
+
+            if (!existing.isExpired(System.nanoTime())) {
+                return existing.result;
+            }
+
+            if (entries.replace(query, existing, entry)) {
+                return null;
+            }
+        }
+    }
+
+    private void expire(String query, CompletableFuture<ConnectionLookupResult> result, long timeToLiveNanos) {
+        Entry entry = entries.get(query);
+        if (entry != null && entry.result == result) {
+            entry.expiresAt = System.nanoTime() + timeToLiveNanos;
+        }
+
+        if (entries.size() > maximumSize) {
+            evict();
+        }
+    }
+
+    void resolved(String query, CompletableFuture<ConnectionLookupResult> result) {
+        expire(query, result, timeToLiveNanos);
+    }
+
+    void failed(String query, CompletableFuture<ConnectionLookupResult> result) {
+        expire(query, result, negativeTimeToLiveNanos);
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+
+        while (entries.size() > maximumSize) {
+            Map.Entry<String, Entry> soonestToExpire = null;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                long expiresAt = candidate.getValue().expiresAt;
+                if (expiresAt != PENDING &&
+                        (soonestToExpire == null || expiresAt - soonestToExpire.getValue().expiresAt < 0)) {
+                    soonestToExpire = candidate;
+                }
+            }
+
+            if (soonestToExpire == null) {
+                // Only pending resolutions are left, and callers are waiting on those
+                return;
+            }
+
+            entries.remove(soonestToExpire.getKey(), soonestToExpire.getValue());
+        }
+    }
+
+    /**
+     * @return the result that was cached for the query, or null if there was none or it had not (successfully)
+     * resolved
+     */
+    ConnectionLookupResult invalidate(String query) {
+        Entry entry = entries.remove(query);
+        if (entry == null || !entry.result.isDone() || entry.result.isCompletedExceptionally()) {
+            return null;
+        }
+        return entry.result.join();
+    }
+
+    void invalidateAll() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
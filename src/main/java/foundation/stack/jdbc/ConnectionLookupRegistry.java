@@ -1,15 +1,37 @@
 package foundation.stack.jdbc;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Comparator;
+import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * @author Ravi Chodavarapu (rchodava@gmail.com)
  */
 public class ConnectionLookupRegistry {
+    private static final Logger logger = Logger.getLogger(ConnectionLookupRegistry.class.getName());
+
+    private static final String CACHE_MAXIMUM_SIZE_PROPERTY = "sf.lookup.cache.maximumSize";
+    private static final int DEFAULT_CACHE_MAXIMUM_SIZE = 1024;
+
+    private static final String CACHE_TIME_TO_LIVE_PROPERTY = "sf.lookup.cache.ttl";
+    private static final long DEFAULT_CACHE_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(30);
+
+    private static final String CACHE_NEGATIVE_TIME_TO_LIVE_PROPERTY = "sf.lookup.cache.negativeTtl";
+    private static final long DEFAULT_CACHE_NEGATIVE_TIME_TO_LIVE = TimeUnit.SECONDS.toMillis(5);
+
     private static final ConnectionLookupRegistry registry = new ConnectionLookupRegistry();
 
     public static ConnectionLookupRegistry getRegistry() {
@@ -18,44 +40,235 @@ public class ConnectionLookupRegistry {
 
     private final CopyOnWriteArrayList<ConnectionLookup> lookups = new CopyOnWriteArrayList<>();
 
+    // Discovered once through ServiceLoader and only reloaded by refreshServiceLookups()
+    private volatile List<ConnectionLookup> serviceLookups;
+
+    // Registered and service lookups merged in the order they should be tried
+    private volatile List<ConnectionLookup> orderedLookups;
+
+    // Loading service lookups does I/O, which is better not done holding a monitor that pins a virtual thread
+    private final ReentrantLock lookupsLock = new ReentrantLock();
+
+    private final ConcurrentMap<ConnectionLookup, LookupCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
     private ConnectionLookupRegistry() {
     }
 
-    private static final Map<String, ConnectionLookupResult> connectionLookupResults = Collections.synchronizedMap(new HashMap<>());
+    // Holds either a completed result or the in-flight resolution that concurrent callers for the same query wait on
+    private static final ConnectionLookupCache connectionLookupResults = new ConnectionLookupCache(
+            Integer.getInteger(CACHE_MAXIMUM_SIZE_PROPERTY, DEFAULT_CACHE_MAXIMUM_SIZE),
+            Long.getLong(CACHE_TIME_TO_LIVE_PROPERTY, DEFAULT_CACHE_TIME_TO_LIVE),
+            Long.getLong(CACHE_NEGATIVE_TIME_TO_LIVE_PROPERTY, DEFAULT_CACHE_NEGATIVE_TIME_TO_LIVE),
+            TimeUnit.MILLISECONDS);
 
     public void registerLookup(ConnectionLookup lookup) {
-        lookups.addIfAbsent(lookup);
+        if (lookups.addIfAbsent(lookup)) {
+            resetOrderedLookups();
+        }
     }
 
     public void deregisterLookup(ConnectionLookup lookup) {
-        lookups.remove(lookup);
+        if (lookups.remove(lookup)) {
+            circuitBreakers.remove(lookup);
+            resetOrderedLookups();
+        }
+    }
+
+    /**
+     * Discards the service provided lookups discovered so far and discovers them again using the context class loader
+     * of the calling thread. Results that have already been cached are kept; use {@link #invalidateAll()} to drop them.
+     */
+    public void refreshServiceLookups() {
+        lookupsLock.lock();
+        try {
+            serviceLookups = loadServiceLookups();
+            orderedLookups = null;
+        } finally {
+            lookupsLock.unlock();
+        }
+    }
+
+    private static List<ConnectionLookup> loadServiceLookups() {
+        List<ConnectionLookup> loaded = new ArrayList<>();
+        for (ConnectionLookup lookup : ServiceLoader.load(ConnectionLookup.class)) {
+            loaded.add(lookup);
+        }
+
+        return Collections.unmodifiableList(loaded);
+    }
+
+    private void resetOrderedLookups() {
+        lookupsLock.lock();
+        try {
+            orderedLookups = null;
+        } finally {
+            lookupsLock.unlock();
+        }
     }
 
+    private List<ConnectionLookup> buildOrderedLookups() {
+        lookupsLock.lock();
+        try {
+            if (orderedLookups == null) {
+                if (serviceLookups == null) {
+                    serviceLookups = loadServiceLookups();
+                }
+
+                List<ConnectionLookup> merged = new ArrayList<>(lookups);
+                merged.addAll(serviceLookups);
+                merged.sort(Comparator.comparingInt(ConnectionLookup::getOrder));
+                orderedLookups = Collections.unmodifiableList(merged);
+            }
+
+            return orderedLookups;
+        } finally {
+            lookupsLock.unlock();
+        }
+    }
+
+    public List<ConnectionLookup> getOrderedLookups() {
+        List<ConnectionLookup> ordered = orderedLookups;
+        return ordered != null ? ordered : buildOrderedLookups();
+    }
+
+    /**
+     * Drops the cached result for a query, e.g. because connecting to the connection string it resolved to failed. The
+     * next lookup of the query runs the lookups again.
+     */
+    public void invalidate(String query) {
+        ConnectionLookupResult invalidated = connectionLookupResults.invalidate(query);
+        if (invalidated != null) {
+            ConnectionEndpoints endpoints = new ConnectionEndpoints(invalidated.getConnectionString(),
+                    invalidated.getReplicaConnectionStrings());
+            try {
+                invalidated.getLookup().invalidate(query, endpoints);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Error invalidating {0} in {1}", new Object[]{query,
+                        invalidated.getLookup().getClass().getSimpleName()});
+                logger.log(Level.FINE, "Error details:", e);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        connectionLookupResults.invalidateAll();
+    }
+
+    public LookupCircuitBreaker getCircuitBreaker(ConnectionLookup lookup) {
+        return circuitBreakers.computeIfAbsent(lookup,
+                circuitLookup -> LookupCircuitBreaker.fromSystemProperties(circuitLookup.getClass().getSimpleName()));
+    }
+
+    public Collection<LookupCircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableCollection(circuitBreakers.values());
+    }
+
+    /**
+     * @throws LookupUnavailableException if the query could not be resolved because a lookup is failing and is not
+     * being called for a while
+     */
     public ConnectionLookupResult lookupConnection(String query) {
-        ConnectionLookupResult connectionLookupResult = connectionLookupResults.get(query);
-        if (connectionLookupResult != null) {
-            return connectionLookupResult;
+        CompletableFuture<ConnectionLookupResult> connectionLookupResult = connectionLookupResults.get(query);
+        if (connectionLookupResult == null) {
+            CompletableFuture<ConnectionLookupResult> pendingResult = new CompletableFuture<>();
+            connectionLookupResult = connectionLookupResults.putIfAbsent(query, pendingResult);
+            if (connectionLookupResult == null) {
+                DriverMetrics.getMetrics().lookupCacheMiss();
+                return resolve(query, pendingResult);
+            }
+        }
+
+        if (connectionLookupResult.isDone()) {
+            DriverMetrics.getMetrics().lookupCacheHit();
+        } else {
+            DriverMetrics.getMetrics().lookupCoalesced();
         }
-        for (ConnectionLookup lookup : lookups) {
-            String connection = lookup.find(query);
-            if (connection != null) {
-                connectionLookupResult = new ConnectionLookupResult(lookup, connection);
-                connectionLookupResults.putIfAbsent(query, connectionLookupResult);
-                return connectionLookupResult;
+        return await(connectionLookupResult);
+    }
+
+    /**
+     * Starts resolving a query on a background thread. Anyone looking up the same query while that is still running
+     * waits for it to finish rather than starting over.
+     */
+    public CompletableFuture<ConnectionLookupResult> prewarm(String query) {
+        CompletableFuture<ConnectionLookupResult> prewarmed = new CompletableFuture<>();
+        Supplier<ConnectionLookupResult> lookup = NameGenerator.inCallerContext(() -> lookupConnection(query));
+
+        Thread prewarmThread = new Thread(() -> {
+            try {
+                prewarmed.complete(lookup.get());
+            } catch (Throwable e) {
+                prewarmed.completeExceptionally(e);
             }
+        }, "stack.foundation lookup prewarm: " + query);
+        prewarmThread.setDaemon(true);
+        prewarmThread.start();
+
+        return prewarmed;
+    }
+
+    private ConnectionLookupResult resolve(String query, CompletableFuture<ConnectionLookupResult> pendingResult) {
+        ConnectionLookupResult connectionLookupResult;
+        long start = System.nanoTime();
+        try {
+            connectionLookupResult = findConnection(query);
+        } catch (LookupUnavailableException e) {
+            // Failing fast already, and caching this would keep failing for a while after the lookup is tried again
+            pendingResult.completeExceptionally(e);
+            connectionLookupResults.invalidate(query);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            pendingResult.completeExceptionally(e);
+            connectionLookupResults.failed(query, pendingResult);
+            throw e;
+        } finally {
+            DriverMetrics.getMetrics().record(ConnectPhase.LOOKUP, start);
         }
 
-        return lookupUsingConnectionLookupServices(query);
+        pendingResult.complete(connectionLookupResult);
+        if (connectionLookupResult != null) {
+            connectionLookupResults.resolved(query, pendingResult);
+        } else {
+            connectionLookupResults.failed(query, pendingResult);
+        }
+        return connectionLookupResult;
+    }
+
+    private static ConnectionLookupResult await(CompletableFuture<ConnectionLookupResult> connectionLookupResult) {
+        try {
+            return connectionLookupResult.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw e;
+        }
     }
 
-    private ConnectionLookupResult lookupUsingConnectionLookupServices(String query) {
-        ServiceLoader<ConnectionLookup> lookups = ServiceLoader.load(ConnectionLookup.class);
-        for (ConnectionLookup lookup : lookups) {
-            String connection = lookup.find(query);
-            if (connection != null) {
-                ConnectionLookupResult connectionLookupResult = new ConnectionLookupResult(lookup, connection);
-                connectionLookupResults.putIfAbsent(query, connectionLookupResult);
-                return connectionLookupResult;
+    private ConnectionLookupResult findConnection(String query) {
+        for (ConnectionLookup lookup : getOrderedLookups()) {
+            // A failing lookup stops the search rather than letting a later lookup resolve the query differently, so
+            // one that is not being called has to do the same
+            LookupCircuitBreaker circuitBreaker = getCircuitBreaker(lookup);
+            if (!circuitBreaker.tryAcquire()) {
+                throw circuitBreaker.createUnavailableException(query);
+            }
+
+            ConnectionEndpoints endpoints;
+            try {
+                endpoints = lookup.findEndpoints(query);
+            } catch (RuntimeException | Error e) {
+                circuitBreaker.recordFailure(e);
+                throw e;
+            }
+            circuitBreaker.recordSuccess();
+
+            if (endpoints != null) {
+                return new ConnectionLookupResult(lookup, endpoints);
             }
         }
 
@@ -1,22 +1,130 @@
 package foundation.stack.jdbc;
 
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
 /**
  * @author Ravi Chodavarapu (rchodava@gmail.com)
  */
 public class ConnectionLookupResult {
+    private static final String USER_PROPERTY = "user";
+    private static final String PASSWORD_PROPERTY = "password";
+
     private final String connectionString;
     private final ConnectionLookup lookup;
+    private final Properties defaultProperties;
+    private final ReplicaSet replicas;
+
+    // Resolved on first use so that DriverManager is only scanned once per connection string
+    private volatile Driver driver;
 
     public ConnectionLookupResult(ConnectionLookup lookup, String connectionString) {
+        this(lookup, ConnectionEndpoints.primaryOnly(connectionString));
+    }
+
+    public ConnectionLookupResult(ConnectionLookup lookup, ConnectionEndpoints endpoints) {
         this.lookup = lookup;
-        this.connectionString = connectionString;
+        this.connectionString = endpoints.getPrimary();
+        this.defaultProperties = buildDefaultProperties(lookup);
+        this.replicas = endpoints.getReplicas().isEmpty() ? null :
+                ReplicaSet.fromSystemProperties(endpoints.getReplicas());
+    }
+
+    private static Properties buildDefaultProperties(ConnectionLookup lookup) {
+        Properties defaultProperties = new Properties();
+
+        String user = lookup.getDefaultUsername();
+        if (user != null) {
+            defaultProperties.put(USER_PROPERTY, user);
+        }
+
+        String password = lookup.getDefaultPassword();
+        if (password != null) {
+            defaultProperties.put(PASSWORD_PROPERTY, password);
+        }
+
+        return defaultProperties;
     }
 
     public String getConnectionString() {
         return connectionString;
     }
 
+    public List<String> getReplicaConnectionStrings() {
+        return replicas == null ? Collections.emptyList() : replicas.getConnectionStrings();
+    }
+
+    public boolean hasReplicas() {
+        return replicas != null;
+    }
+
+    /**
+     * @return how many replicas are currently taking connections, i.e. have not been ejected after failing
+     */
+    public int getAvailableReplicaCount() {
+        return replicas == null ? 0 : replicas.getAvailableReplicaCount();
+    }
+
     public ConnectionLookup getLookup() {
         return lookup;
     }
+
+    public Driver getDriver() throws SQLException {
+        Driver resolvedDriver = driver;
+        if (resolvedDriver == null) {
+            resolvedDriver = DriverManager.getDriver(connectionString);
+            driver = resolvedDriver;
+        }
+
+        return resolvedDriver;
+    }
+
+    /**
+     * @return the given connection properties with the default credentials of the lookup filled in where the caller
+     * did not provide any
+     */
+    public Properties createConnectionProperties(Properties info) {
+        if (defaultProperties.isEmpty() ||
+                (info.containsKey(USER_PROPERTY) && info.containsKey(PASSWORD_PROPERTY))) {
+            return info;
+        }
+
+        Properties properties = new Properties();
+        properties.putAll(defaultProperties);
+        properties.putAll(info);
+        return properties;
+    }
+
+    public Connection connect(Properties info) throws SQLException {
+        Driver resolvedDriver = getDriver();
+        Connection connection = resolvedDriver.connect(connectionString, createConnectionProperties(info));
+        if (connection == null) {
+            throw new SQLException("Driver " + resolvedDriver.getClass().getName() + " does not accept " +
+                    connectionString);
+        }
+
+        return connection;
+    }
+
+    /**
+     * @return a connection to one of the replicas, or null if there are none or none of them could be connected to
+     */
+    public Connection connectToReplica(Properties info) {
+        return replicas == null ? null : replicas.connect(createConnectionProperties(info));
+    }
+
+    /**
+     * Stops handing out connections to the replica a connection from {@link #connectToReplica(Properties)} is to for a
+     * while, e.g. because the connection broke while in use.
+     */
+    void ejectReplica(Connection connection, SQLException cause) {
+        if (replicas != null) {
+            replicas.eject(connection, cause);
+        }
+    }
 }
@@ -0,0 +1,246 @@
+package foundation.stack.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of connections to a single delegate database. Connections handed out are {@link PooledConnection}s
+ * whose {@code close()} hands the underlying connection back to the pool.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConnectionPool {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    // Connections that were returned very recently are handed out again without running the validation query
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long idleSince;
+
+        private IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    private final String name;
+    private final ConnectionPoolConfiguration configuration;
+    private final ConnectionFactory connectionFactory;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<IdleConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maximumWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    public ConnectionPool(String name, ConnectionPoolConfiguration configuration, ConnectionFactory connectionFactory) {
+        this.name = name;
+        this.configuration = configuration;
+        this.connectionFactory = connectionFactory;
+        this.permits = new Semaphore(configuration.getMaximumSize(), true);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Error closing pooled connection", e);
+        }
+    }
+
+    private boolean isExpired(IdleConnection idleConnection, long now) {
+        return now - idleConnection.idleSince > TimeUnit.MILLISECONDS.toNanos(configuration.getIdleTimeout());
+    }
+
+    private boolean isUsable(IdleConnection idleConnection, long now) {
+        if (isExpired(idleConnection, now)) {
+            return false;
+        }
+
+        if (now - idleConnection.idleSince < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+
+        String validationQuery = configuration.getValidationQuery();
+        if (validationQuery == null) {
+            return true;
+        }
+
+        try (Statement statement = idleConnection.connection.createStatement()) {
+            statement.execute(validationQuery);
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Pooled connection failed validation", e);
+            return false;
+        }
+    }
+
+    private void evictExpiredConnections(long now) {
+        IdleConnection oldest;
+        while ((oldest = idleConnections.peekLast()) != null && isExpired(oldest, now)) {
+            if (idleConnections.removeLastOccurrence(oldest)) {
+                closeQuietly(oldest.connection);
+            }
+        }
+    }
+
+    private Connection takeIdleOrCreate() throws SQLException {
+        IdleConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            if (isUsable(idleConnection, System.nanoTime())) {
+                return idleConnection.connection;
+            }
+
+            closeQuietly(idleConnection.connection);
+        }
+
+        return connectionFactory.create();
+    }
+
+    private void recordWait(long waitNanos) {
+        DriverMetrics.getMetrics().getHistogram(ConnectPhase.POOL_WAIT).record(waitNanos);
+        waitCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maximumWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " has been closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(configuration.getConnectionTimeout(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTransientConnectionException("Timed out after " + configuration.getConnectionTimeout() +
+                        "ms waiting for a connection from pool " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+        }
+
+        try {
+            Connection connection = takeIdleOrCreate();
+            activeConnections.incrementAndGet();
+            recordWait(System.nanoTime() - start);
+            return new PooledConnection(this, connection);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private boolean reset(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+
+            if (connection.isReadOnly()) {
+                connection.setReadOnly(false);
+            }
+
+            connection.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Discarding pooled connection that could not be reset", e);
+            return false;
+        }
+    }
+
+    void release(Connection connection) {
+        activeConnections.decrementAndGet();
+        try {
+            if (!closed && reset(connection)) {
+                long now = System.nanoTime();
+                idleConnections.offerFirst(new IdleConnection(connection, now));
+                evictExpiredConnections(now);
+            } else {
+                closeQuietly(connection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    void discard(Connection connection) {
+        activeConnections.decrementAndGet();
+        try {
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void close() {
+        closed = true;
+
+        IdleConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            closeQuietly(idleConnection.connection);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ConnectionPoolConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public int getThreadsAwaitingConnection() {
+        return permits.getQueueLength();
+    }
+
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    public long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(totalWaitNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaximumWaitTime(TimeUnit unit) {
+        return unit.convert(maximumWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+}
@@ -0,0 +1,116 @@
+package foundation.stack.jdbc;
+
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Pooling options read from the connection properties (or the options of a {@code jdbc:sf} URL). Pooling is only
+ * turned on when {@value #MAXIMUM_SIZE_PROPERTY} is present.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConnectionPoolConfiguration {
+    static final String PROPERTY_PREFIX = "pool.";
+
+    public static final String MAXIMUM_SIZE_PROPERTY = "pool.max";
+    public static final String IDLE_TIMEOUT_PROPERTY = "pool.idleTimeout";
+    public static final String VALIDATION_QUERY_PROPERTY = "pool.validationQuery";
+    public static final String CONNECTION_TIMEOUT_PROPERTY = "pool.connectionTimeout";
+
+    private static final long DEFAULT_IDLE_TIMEOUT = 600000;
+    private static final long DEFAULT_CONNECTION_TIMEOUT = 30000;
+
+    private final int maximumSize;
+    private final long idleTimeout;
+    private final String validationQuery;
+    private final long connectionTimeout;
+
+    public ConnectionPoolConfiguration(int maximumSize, long idleTimeout, String validationQuery, long connectionTimeout) {
+        this.maximumSize = maximumSize;
+        this.idleTimeout = idleTimeout;
+        this.validationQuery = validationQuery;
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    private static long parseLong(Properties properties, String name, long defaultValue) throws SQLException {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Invalid value '" + value + "' for " + name, e);
+        }
+    }
+
+    public static ConnectionPoolConfiguration fromProperties(Properties properties) throws SQLException {
+        if (properties == null || properties.getProperty(MAXIMUM_SIZE_PROPERTY) == null) {
+            return null;
+        }
+
+        long maximumSize = parseLong(properties, MAXIMUM_SIZE_PROPERTY, 0);
+        if (maximumSize < 1 || maximumSize > Integer.MAX_VALUE) {
+            throw new SQLException("Invalid value '" + maximumSize + "' for " + MAXIMUM_SIZE_PROPERTY);
+        }
+
+        return new ConnectionPoolConfiguration((int) maximumSize,
+                parseLong(properties, IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT),
+                properties.getProperty(VALIDATION_QUERY_PROPERTY),
+                parseLong(properties, CONNECTION_TIMEOUT_PROPERTY, DEFAULT_CONNECTION_TIMEOUT));
+    }
+
+    static Properties withoutPoolProperties(Properties properties) {
+        Properties stripped = new Properties();
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.startsWith(PROPERTY_PREFIX)) {
+                stripped.setProperty(name, properties.getProperty(name));
+            }
+        }
+
+        return stripped;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return how long, in milliseconds, a connection may sit unused in the pool before it is closed
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    /**
+     * @return how long, in milliseconds, a caller waits for a connection when the pool is exhausted
+     */
+    public long getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ConnectionPoolConfiguration)) {
+            return false;
+        }
+
+        ConnectionPoolConfiguration that = (ConnectionPoolConfiguration) other;
+        return maximumSize == that.maximumSize && idleTimeout == that.idleTimeout &&
+                connectionTimeout == that.connectionTimeout && Objects.equals(validationQuery, that.validationQuery);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maximumSize, idleTimeout, validationQuery, connectionTimeout);
+    }
+}
@@ -0,0 +1,69 @@
+package foundation.stack.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the state of one {@link ConnectionPool}.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConnectionPoolStatistics {
+    private final String name;
+    private final int maximumSize;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int threadsAwaitingConnection;
+    private final long waitCount;
+    private final double averageWaitMillis;
+    private final double maximumWaitMillis;
+    private final long timeoutCount;
+
+    ConnectionPoolStatistics(ConnectionPool pool) {
+        this.name = pool.getName();
+        this.maximumSize = pool.getConfiguration().getMaximumSize();
+        this.activeConnections = pool.getActiveConnections();
+        this.idleConnections = pool.getIdleConnections();
+        this.threadsAwaitingConnection = pool.getThreadsAwaitingConnection();
+        this.waitCount = pool.getWaitCount();
+        this.averageWaitMillis = waitCount == 0 ? 0 :
+                pool.getTotalWaitTime(TimeUnit.MICROSECONDS) / 1000.0 / waitCount;
+        this.maximumWaitMillis = pool.getMaximumWaitTime(TimeUnit.MICROSECONDS) / 1000.0;
+        this.timeoutCount = pool.getTimeoutCount();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getThreadsAwaitingConnection() {
+        return threadsAwaitingConnection;
+    }
+
+    public long getWaitCount() {
+        return waitCount;
+    }
+
+    public double getAverageWaitMillis() {
+        return averageWaitMillis;
+    }
+
+    public double getMaximumWaitMillis() {
+        return maximumWaitMillis;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+}
@@ -0,0 +1,104 @@
+package foundation.stack.jdbc;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Sets of Connector/J settings for a kind of workload, chosen with the {@value #PROFILE_PROPERTY} option of a
+ * {@code jdbc:sf} URL (e.g. {@code jdbc:sf:branch?profile=throughput}). A profile only fills in defaults, so any
+ * setting also given as an option or connection property wins. Profiles only apply to MySQL connection strings, since
+ * other drivers would not understand the settings.
+ * <p>
+ * {@code elideSetAutoCommits} is deliberately not used: it trusted server status flags that MySQL did not always
+ * report correctly, and was removed in Connector/J 8.0. {@code useLocalSessionState} saves the same round trips.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public enum ConnectionProfile {
+    /**
+     * For many short statements and batches: statements are prepared once on the server and cached per connection,
+     * batches are rewritten into multi-row statements, and session state is tracked locally instead of being set on
+     * the server again.
+     */
+    THROUGHPUT(
+            "useServerPrepStmts", "true",
+            "cachePrepStmts", "true",
+            "prepStmtCacheSize", "250",
+            "prepStmtCacheSqlLimit", "2048",
+            "rewriteBatchedStatements", "true",
+            "useLocalSessionState", "true",
+            "cacheResultSetMetadata", "true",
+            "cacheServerConfiguration", "true",
+            "maintainTimeStats", "false"),
+
+    /**
+     * For reading large results: prepared statements read through a server-side cursor, so only
+     * {@code defaultFetchSize} rows are held in memory at a time instead of the whole result. Plain statements are
+     * still read in full.
+     */
+    STREAMING(
+            "useCursorFetch", "true",
+            "defaultFetchSize", "1000",
+            "useLocalSessionState", "true",
+            "cacheServerConfiguration", "true"),
+
+    /**
+     * For one-off statements where every round trip shows: statements are prepared on the client, so there is no
+     * separate prepare round trip, and nothing is sent to the server that the driver can answer itself.
+     */
+    LOWLATENCY(
+            "useServerPrepStmts", "false",
+            "cachePrepStmts", "true",
+            "useLocalSessionState", "true",
+            "useLocalTransactionState", "true",
+            "cacheServerConfiguration", "true",
+            "maintainTimeStats", "false",
+            "tcpNoDelay", "true");
+
+    public static final String PROFILE_PROPERTY = "profile";
+
+    private static final String MYSQL_PREFIX = "jdbc:mysql:";
+
+    private final Properties properties = new Properties();
+
+    ConnectionProfile(String... settings) {
+        for (int i = 0; i < settings.length; i += 2) {
+            properties.setProperty(settings[i], settings[i + 1]);
+        }
+    }
+
+    public Properties getProperties() {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
+    public static ConnectionProfile fromName(String name) throws SQLException {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Unknown connection profile " + name + ", expected one of throughput, streaming " +
+                    "or lowlatency");
+        }
+    }
+
+    /**
+     * @return the properties to connect with, without the {@value #PROFILE_PROPERTY} option and with the settings of
+     * the profile it names filled in
+     */
+    static Properties applyProfile(Properties properties, String connectionString) throws SQLException {
+        String name = properties.getProperty(PROFILE_PROPERTY);
+        if (name == null) {
+            return properties;
+        }
+
+        Properties delegateProperties = new Properties();
+        if (connectionString.startsWith(MYSQL_PREFIX)) {
+            delegateProperties.putAll(fromName(name).properties);
+        }
+        delegateProperties.putAll(properties);
+        delegateProperties.remove(PROFILE_PROPERTY);
+        return delegateProperties;
+    }
+}
@@ -0,0 +1,94 @@
+package foundation.stack.jdbc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Places keys on one of a number of shards by consistent hashing. Each shard is put at many points (virtual nodes) on a
+ * ring of 32 bit MD5 hashes, and a key belongs to the shard at the first point at or after the hash of the key. MD5 is
+ * used because it is the same in every JVM, so a key is always placed on the same shard, and because it spreads
+ * similar keys like {@code branch_a} and {@code branch_b} well. Going from n to n + 1 shards only moves about
+ * 1 / (n + 1) of the keys, all of them to the new shard.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConsistentHashRing {
+    // Each MD5 digest gives four points on the ring
+    private static final int POINTS_PER_DIGEST = 4;
+
+    private final int shardCount;
+    private final int virtualNodes;
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    public ConsistentHashRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("There must be at least one shard, not " + shardCount);
+        }
+
+        this.shardCount = shardCount;
+        this.virtualNodes = virtualNodes;
+        int digests = Math.max(1, (virtualNodes + POINTS_PER_DIGEST - 1) / POINTS_PER_DIGEST);
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int digest = 0; digest < digests; digest++) {
+                byte[] hash = md5("shard-" + shard + '-' + digest);
+                for (int point = 0; point < POINTS_PER_DIGEST; point++) {
+                    // Where two points collide the lower shard keeps its point, so adding shards never moves it
+                    ring.putIfAbsent(toUnsignedInt(hash, point * 4), shard);
+                }
+            }
+        }
+    }
+
+    private static byte[] md5(String value) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support MD5
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long toUnsignedInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFFL) << 24) | ((bytes[offset + 1] & 0xFFL) << 16) |
+                ((bytes[offset + 2] & 0xFFL) << 8) | (bytes[offset + 3] & 0xFFL);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @return the shard, from 0 to the number of shards - 1, that a key belongs to
+     */
+    public int getShard(String key) {
+        if (shardCount == 1) {
+            return 0;
+        }
+
+        Map.Entry<Long, Integer> point = ring.ceilingEntry(toUnsignedInt(md5(key), 0));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * A key only ever moves to a shard as it is added, so one on shard s was on the same shard it is on in a ring of s
+     * shards before that, and so on down to shard 0.
+     *
+     * @return the shards a key was on with fewer shards, starting with the one it was on most recently and ending with
+     * shard 0, or nothing for a key on shard 0
+     */
+    public List<Integer> getPreviousShards(String key) {
+        List<Integer> previousShards = new ArrayList<>();
+        int shard = getShard(key);
+        while (shard > 0) {
+            shard = new ConsistentHashRing(shard, virtualNodes).getShard(key);
+            previousShards.add(shard);
+        }
+
+        return previousShards;
+    }
+}
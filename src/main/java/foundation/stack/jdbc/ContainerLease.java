@@ -0,0 +1,119 @@
+package foundation.stack.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An exclusive claim on one slot of a pool, held through a file lock under the user's home directory so that it is
+ * shared correctly between JVMs (e.g. parallel test forks). The operating system drops the lock when the JVM exits, so
+ * a slot is never leaked by a JVM that crashes.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class ContainerLease implements Closeable {
+    private static final Logger logger = Logger.getLogger(ContainerLease.class.getName());
+
+    private static final long MAXIMUM_BACKOFF_MILLIS = 1000;
+
+    private final String poolName;
+    private final int slot;
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private ContainerLease(String poolName, int slot, FileChannel channel, FileLock lock) {
+        this.poolName = poolName;
+        this.slot = slot;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    static Path getLeaseDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".stackfoundation", "leases");
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private static ContainerLease tryAcquire(Path directory, String poolName, int slot) throws IOException {
+        Path lockFile = directory.resolve(sanitize(poolName) + '-' + slot + ".lock");
+        FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                // Only for people wondering who holds a slot
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(ManagementFactory.getRuntimeMXBean().getName()
+                        .getBytes(StandardCharsets.UTF_8)));
+                return new ContainerLease(poolName, slot, channel, lock);
+            }
+        } catch (OverlappingFileLockException e) {
+            // Already held by this JVM
+        }
+
+        channel.close();
+        return null;
+    }
+
+    /**
+     * Claims a free slot of the pool, waiting for one to be released if they are all taken.
+     */
+    static ContainerLease acquire(String poolName, int size, long timeout, TimeUnit unit)
+            throws IOException, InterruptedException {
+        Path directory = getLeaseDirectory();
+        Files.createDirectories(directory);
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long backoff = 10;
+        while (true) {
+            // Start at a random slot so JVMs starting together do not all contend for the first one
+            int start = ThreadLocalRandom.current().nextInt(size);
+            for (int i = 0; i < size; i++) {
+                ContainerLease lease = tryAcquire(directory, poolName, (start + i) % size);
+                if (lease != null) {
+                    logger.log(Level.FINE, "Leased slot {0} of {1}", new Object[]{lease.slot, poolName});
+                    return lease;
+                }
+            }
+
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IllegalStateException("All " + size + " slots of " + poolName + " stayed leased for " +
+                        unit.toMillis(timeout) + "ms");
+            }
+
+            TimeUnit.MILLISECONDS.sleep(backoff);
+            backoff = Math.min(backoff * 2, MAXIMUM_BACKOFF_MILLIS);
+        }
+    }
+
+    String getPoolName() {
+        return poolName;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+}
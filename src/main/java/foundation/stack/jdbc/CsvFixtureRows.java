@@ -0,0 +1,125 @@
+package foundation.stack.jdbc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads CSV fixtures, see {@link FixtureFormat#CSV}. Blank lines are skipped.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class CsvFixtureRows implements FixtureRows {
+    private static final int NOTHING_PEEKED = -2;
+
+    private final BufferedReader reader;
+    private final List<String> columns;
+    private int peeked = NOTHING_PEEKED;
+    private int recordNumber;
+
+    CsvFixtureRows(InputStream input) throws IOException {
+        reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        String[] header = nextRecord(16);
+        if (header == null) {
+            throw new IOException("CSV fixture has no header row");
+        }
+        for (String column : header) {
+            if (column == null) {
+                throw new IOException("CSV fixture has an empty column name in its header row");
+            }
+        }
+        columns = Collections.unmodifiableList(Arrays.asList(header));
+    }
+
+    private int read() throws IOException {
+        if (peeked != NOTHING_PEEKED) {
+            int character = peeked;
+            peeked = NOTHING_PEEKED;
+            return character;
+        }
+
+        return reader.read();
+    }
+
+    private String[] nextRecord(int expectedFields) throws IOException {
+        int character = read();
+        if (character == -1) {
+            return null;
+        }
+
+        recordNumber++;
+        List<String> fields = new ArrayList<>(expectedFields);
+        StringBuilder field = new StringBuilder();
+        while (true) {
+            boolean quoted = character == '"';
+            field.setLength(0);
+            if (quoted) {
+                while (true) {
+                    character = read();
+                    if (character == -1) {
+                        throw new IOException("Unterminated quoted field in record " + recordNumber);
+                    } else if (character == '"') {
+                        character = read();
+                        if (character != '"') {
+                            break;
+                        }
+                    }
+                    field.append((char) character);
+                }
+            } else {
+                while (character != ',' && character != '\n' && character != '\r' && character != -1) {
+                    field.append((char) character);
+                    character = read();
+                }
+            }
+
+            fields.add(quoted || field.length() > 0 ? field.toString() : null);
+            if (character == ',') {
+                character = read();
+            } else if (character == '\n' || character == -1) {
+                break;
+            } else if (character == '\r') {
+                character = read();
+                if (character != '\n') {
+                    peeked = character;
+                }
+                break;
+            } else {
+                throw new IOException("Unexpected text after a quoted field in record " + recordNumber);
+            }
+        }
+
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    @Override
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String[] next() throws IOException {
+        String[] record;
+        do {
+            record = nextRecord(columns.size());
+        } while (record != null && record.length == 1 && record[0] == null);
+
+        if (record != null && record.length != columns.size()) {
+            throw new IOException("Record " + recordNumber + " has " + record.length + " fields instead of " +
+                    columns.size());
+        }
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,137 @@
+package foundation.stack.jdbc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Waits for a database server to become ready by running a {@link DatabaseServerReadinessProbe} with exponential
+ * backoff until it succeeds or a deadline passes.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class DatabaseServerReadiness {
+    private static final Logger logger = Logger.getLogger(DatabaseServerReadiness.class.getName());
+
+    private static final String PROBE_PROPERTY = "sf.readiness.probe";
+    private static final String TCP_PROBE = "tcp";
+    private static final String MYSQL_PROBE = "mysql";
+
+    private static final String TIMEOUT_PROPERTY = "sf.readiness.timeout";
+    private static final long DEFAULT_TIMEOUT = 60000;
+
+    private static final String INITIAL_BACKOFF_PROPERTY = "sf.readiness.initialBackoff";
+    private static final long DEFAULT_INITIAL_BACKOFF = 5;
+
+    private static final String MAXIMUM_BACKOFF_PROPERTY = "sf.readiness.maximumBackoff";
+    private static final long DEFAULT_MAXIMUM_BACKOFF = 1000;
+
+    private static final LongAdder waits = new LongAdder();
+    private static final LongAdder failedWaits = new LongAdder();
+    private static final LongAdder probeAttempts = new LongAdder();
+    private static final LongAdder totalWaitNanos = new LongAdder();
+    private static final AtomicLong lastWaitNanos = new AtomicLong();
+
+    private final DatabaseServerReadinessProbe probe;
+    private final long timeoutNanos;
+    private final long initialBackoffNanos;
+    private final long maximumBackoffNanos;
+
+    public DatabaseServerReadiness(DatabaseServerReadinessProbe probe, long timeout, long initialBackoff,
+                                   long maximumBackoff, TimeUnit unit) {
+        this.probe = probe;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.initialBackoffNanos = Math.max(1, unit.toNanos(initialBackoff));
+        this.maximumBackoffNanos = unit.toNanos(maximumBackoff);
+    }
+
+    public static DatabaseServerReadiness fromSystemProperties() {
+        return new DatabaseServerReadiness(createConfiguredProbe(),
+                Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT),
+                Long.getLong(INITIAL_BACKOFF_PROPERTY, DEFAULT_INITIAL_BACKOFF),
+                Long.getLong(MAXIMUM_BACKOFF_PROPERTY, DEFAULT_MAXIMUM_BACKOFF),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static DatabaseServerReadinessProbe createConfiguredProbe() {
+        String probe = System.getProperty(PROBE_PROPERTY, MYSQL_PROBE);
+        if (MYSQL_PROBE.equalsIgnoreCase(probe)) {
+            return new MySqlReadinessProbe();
+        } else if (TCP_PROBE.equalsIgnoreCase(probe)) {
+            return new SocketReadinessProbe();
+        }
+
+        try {
+            return (DatabaseServerReadinessProbe) Class.forName(probe).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Unable to create readiness probe " + probe, e);
+        }
+    }
+
+    public void awaitReady(String host, int port, String connectionString) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos;
+        long backoff = initialBackoffNanos;
+        int attempts = 0;
+
+        while (true) {
+            attempts++;
+            probeAttempts.increment();
+            try {
+                probe.probe(host, port, connectionString);
+
+                long waited = recordWait(start);
+                logger.log(Level.INFO, "Database server on {0}:{1} ready after {2}ms and {3} attempts",
+                        new Object[]{host, String.valueOf(port), TimeUnit.NANOSECONDS.toMillis(waited), attempts});
+                return;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    long waited = recordWait(start);
+                    failedWaits.increment();
+                    throw new IllegalStateException("Database server on " + host + ':' + port +
+                            " was not ready after " + TimeUnit.NANOSECONDS.toMillis(waited) + "ms and " + attempts +
+                            " attempts: " + e.getMessage(), e);
+                }
+
+                logger.log(Level.FINE, "Database server on {0}:{1} not ready yet: {2}",
+                        new Object[]{host, String.valueOf(port), e.getMessage()});
+                TimeUnit.NANOSECONDS.sleep(Math.min(backoff, remaining));
+                backoff = Math.min(backoff * 2, maximumBackoffNanos);
+            }
+        }
+    }
+
+    private static long recordWait(long start) {
+        long waited = System.nanoTime() - start;
+        DriverMetrics.getMetrics().getHistogram(ConnectPhase.READINESS_WAIT).record(waited);
+        waits.increment();
+        totalWaitNanos.add(waited);
+        lastWaitNanos.set(waited);
+        return waited;
+    }
+
+    public static long getWaitCount() {
+        return waits.sum();
+    }
+
+    public static long getFailedWaitCount() {
+        return failedWaits.sum();
+    }
+
+    public static long getProbeAttemptCount() {
+        return probeAttempts.sum();
+    }
+
+    public static long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(totalWaitNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public static long getLastWaitTime(TimeUnit unit) {
+        return unit.convert(lastWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,11 @@
+package foundation.stack.jdbc;
+
+/**
+ * Checks whether a freshly started database server accepts work. A probe returns normally when the server is ready and
+ * throws otherwise; the exception from the last attempt is reported if the server never becomes ready.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public interface DatabaseServerReadinessProbe {
+    void probe(String host, int port, String connectionString) throws Exception;
+}
@@ -0,0 +1,635 @@
+package foundation.stack.jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * A {@link CallableStatement} that forwards every call to another callable statement. Subclasses override only the
+ * calls they need to intercept.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class DelegatingCallableStatement extends DelegatingPreparedStatement implements CallableStatement {
+    protected CallableStatement callableDelegate;
+
+    public DelegatingCallableStatement(CallableStatement delegate) {
+        super(delegate);
+        this.callableDelegate = delegate;
+    }
+
+    @Override
+    public CallableStatement getDelegate() {
+        return callableDelegate;
+    }
+
+    @Override
+    public Array getArray(int parameterIndex) throws SQLException {
+        return callableDelegate.getArray(parameterIndex);
+    }
+
+    @Override
+    public Array getArray(String parameterName) throws SQLException {
+        return callableDelegate.getArray(parameterName);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int parameterIndex) throws SQLException {
+        return callableDelegate.getBigDecimal(parameterIndex);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String parameterName) throws SQLException {
+        return callableDelegate.getBigDecimal(parameterName);
+    }
+
+    @Override
+    @Deprecated
+    public BigDecimal getBigDecimal(int parameterIndex, int scale) throws SQLException {
+        return callableDelegate.getBigDecimal(parameterIndex, scale);
+    }
+
+    @Override
+    public Blob getBlob(int parameterIndex) throws SQLException {
+        return callableDelegate.getBlob(parameterIndex);
+    }
+
+    @Override
+    public Blob getBlob(String parameterName) throws SQLException {
+        return callableDelegate.getBlob(parameterName);
+    }
+
+    @Override
+    public boolean getBoolean(int parameterIndex) throws SQLException {
+        return callableDelegate.getBoolean(parameterIndex);
+    }
+
+    @Override
+    public boolean getBoolean(String parameterName) throws SQLException {
+        return callableDelegate.getBoolean(parameterName);
+    }
+
+    @Override
+    public byte getByte(int parameterIndex) throws SQLException {
+        return callableDelegate.getByte(parameterIndex);
+    }
+
+    @Override
+    public byte getByte(String parameterName) throws SQLException {
+        return callableDelegate.getByte(parameterName);
+    }
+
+    @Override
+    public byte[] getBytes(int parameterIndex) throws SQLException {
+        return callableDelegate.getBytes(parameterIndex);
+    }
+
+    @Override
+    public byte[] getBytes(String parameterName) throws SQLException {
+        return callableDelegate.getBytes(parameterName);
+    }
+
+    @Override
+    public Reader getCharacterStream(int parameterIndex) throws SQLException {
+        return callableDelegate.getCharacterStream(parameterIndex);
+    }
+
+    @Override
+    public Reader getCharacterStream(String parameterName) throws SQLException {
+        return callableDelegate.getCharacterStream(parameterName);
+    }
+
+    @Override
+    public Clob getClob(int parameterIndex) throws SQLException {
+        return callableDelegate.getClob(parameterIndex);
+    }
+
+    @Override
+    public Clob getClob(String parameterName) throws SQLException {
+        return callableDelegate.getClob(parameterName);
+    }
+
+    @Override
+    public Date getDate(int parameterIndex) throws SQLException {
+        return callableDelegate.getDate(parameterIndex);
+    }
+
+    @Override
+    public Date getDate(String parameterName) throws SQLException {
+        return callableDelegate.getDate(parameterName);
+    }
+
+    @Override
+    public Date getDate(int parameterIndex, Calendar cal) throws SQLException {
+        return callableDelegate.getDate(parameterIndex, cal);
+    }
+
+    @Override
+    public Date getDate(String parameterName, Calendar cal) throws SQLException {
+        return callableDelegate.getDate(parameterName, cal);
+    }
+
+    @Override
+    public double getDouble(int parameterIndex) throws SQLException {
+        return callableDelegate.getDouble(parameterIndex);
+    }
+
+    @Override
+    public double getDouble(String parameterName) throws SQLException {
+        return callableDelegate.getDouble(parameterName);
+    }
+
+    @Override
+    public float getFloat(int parameterIndex) throws SQLException {
+        return callableDelegate.getFloat(parameterIndex);
+    }
+
+    @Override
+    public float getFloat(String parameterName) throws SQLException {
+        return callableDelegate.getFloat(parameterName);
+    }
+
+    @Override
+    public int getInt(int parameterIndex) throws SQLException {
+        return callableDelegate.getInt(parameterIndex);
+    }
+
+    @Override
+    public int getInt(String parameterName) throws SQLException {
+        return callableDelegate.getInt(parameterName);
+    }
+
+    @Override
+    public long getLong(int parameterIndex) throws SQLException {
+        return callableDelegate.getLong(parameterIndex);
+    }
+
+    @Override
+    public long getLong(String parameterName) throws SQLException {
+        return callableDelegate.getLong(parameterName);
+    }
+
+    @Override
+    public Reader getNCharacterStream(int parameterIndex) throws SQLException {
+        return callableDelegate.getNCharacterStream(parameterIndex);
+    }
+
+    @Override
+    public Reader getNCharacterStream(String parameterName) throws SQLException {
+        return callableDelegate.getNCharacterStream(parameterName);
+    }
+
+    @Override
+    public NClob getNClob(int parameterIndex) throws SQLException {
+        return callableDelegate.getNClob(parameterIndex);
+    }
+
+    @Override
+    public NClob getNClob(String parameterName) throws SQLException {
+        return callableDelegate.getNClob(parameterName);
+    }
+
+    @Override
+    public String getNString(int parameterIndex) throws SQLException {
+        return callableDelegate.getNString(parameterIndex);
+    }
+
+    @Override
+    public String getNString(String parameterName) throws SQLException {
+        return callableDelegate.getNString(parameterName);
+    }
+
+    @Override
+    public Object getObject(int parameterIndex) throws SQLException {
+        return callableDelegate.getObject(parameterIndex);
+    }
+
+    @Override
+    public Object getObject(String parameterName) throws SQLException {
+        return callableDelegate.getObject(parameterName);
+    }
+
+    @Override
+    public <T> T getObject(int parameterIndex, Class<T> type) throws SQLException {
+        return callableDelegate.getObject(parameterIndex, type);
+    }
+
+    @Override
+    public <T> T getObject(String parameterName, Class<T> type) throws SQLException {
+        return callableDelegate.getObject(parameterName, type);
+    }
+
+    @Override
+    public Object getObject(int parameterIndex, Map<String, Class<?>> map) throws SQLException {
+        return callableDelegate.getObject(parameterIndex, map);
+    }
+
+    @Override
+    public Object getObject(String parameterName, Map<String, Class<?>> map) throws SQLException {
+        return callableDelegate.getObject(parameterName, map);
+    }
+
+    @Override
+    public Ref getRef(int parameterIndex) throws SQLException {
+        return callableDelegate.getRef(parameterIndex);
+    }
+
+    @Override
+    public Ref getRef(String parameterName) throws SQLException {
+        return callableDelegate.getRef(parameterName);
+    }
+
+    @Override
+    public RowId getRowId(int parameterIndex) throws SQLException {
+        return callableDelegate.getRowId(parameterIndex);
+    }
+
+    @Override
+    public RowId getRowId(String parameterName) throws SQLException {
+        return callableDelegate.getRowId(parameterName);
+    }
+
+    @Override
+    public SQLXML getSQLXML(int parameterIndex) throws SQLException {
+        return callableDelegate.getSQLXML(parameterIndex);
+    }
+
+    @Override
+    public SQLXML getSQLXML(String parameterName) throws SQLException {
+        return callableDelegate.getSQLXML(parameterName);
+    }
+
+    @Override
+    public short getShort(int parameterIndex) throws SQLException {
+        return callableDelegate.getShort(parameterIndex);
+    }
+
+    @Override
+    public short getShort(String parameterName) throws SQLException {
+        return callableDelegate.getShort(parameterName);
+    }
+
+    @Override
+    public String getString(int parameterIndex) throws SQLException {
+        return callableDelegate.getString(parameterIndex);
+    }
+
+    @Override
+    public String getString(String parameterName) throws SQLException {
+        return callableDelegate.getString(parameterName);
+    }
+
+    @Override
+    public Time getTime(int parameterIndex) throws SQLException {
+        return callableDelegate.getTime(parameterIndex);
+    }
+
+    @Override
+    public Time getTime(String parameterName) throws SQLException {
+        return callableDelegate.getTime(parameterName);
+    }
+
+    @Override
+    public Time getTime(int parameterIndex, Calendar cal) throws SQLException {
+        return callableDelegate.getTime(parameterIndex, cal);
+    }
+
+    @Override
+    public Time getTime(String parameterName, Calendar cal) throws SQLException {
+        return callableDelegate.getTime(parameterName, cal);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int parameterIndex) throws SQLException {
+        return callableDelegate.getTimestamp(parameterIndex);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String parameterName) throws SQLException {
+        return callableDelegate.getTimestamp(parameterName);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int parameterIndex, Calendar cal) throws SQLException {
+        return callableDelegate.getTimestamp(parameterIndex, cal);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String parameterName, Calendar cal) throws SQLException {
+        return callableDelegate.getTimestamp(parameterName, cal);
+    }
+
+    @Override
+    public URL getURL(int parameterIndex) throws SQLException {
+        return callableDelegate.getURL(parameterIndex);
+    }
+
+    @Override
+    public URL getURL(String parameterName) throws SQLException {
+        return callableDelegate.getURL(parameterName);
+    }
+
+    @Override
+    public void registerOutParameter(int parameterIndex, int sqlType) throws SQLException {
+        callableDelegate.registerOutParameter(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void registerOutParameter(int parameterIndex, SQLType sqlType) throws SQLException {
+        callableDelegate.registerOutParameter(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void registerOutParameter(String parameterName, int sqlType) throws SQLException {
+        callableDelegate.registerOutParameter(parameterName, sqlType);
+    }
+
+    @Override
+    public void registerOutParameter(String parameterName, SQLType sqlType) throws SQLException {
+        callableDelegate.registerOutParameter(parameterName, sqlType);
+    }
+
+    @Override
+    public void registerOutParameter(int parameterIndex, int sqlType, int scale) throws SQLException {
+        callableDelegate.registerOutParameter(parameterIndex, sqlType, scale);
+    }
+
+    @Override
+    public void registerOutParameter(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        callableDelegate.registerOutParameter(parameterIndex, sqlType, typeName);
+    }
+
+    @Override
+    public void registerOutParameter(int parameterIndex, SQLType sqlType, int scale) throws SQLException {
+        callableDelegate.registerOutParameter(parameterIndex, sqlType, scale);
+    }
+
+    @Override
+    public void registerOutParameter(int parameterIndex, SQLType sqlType, String typeName) throws SQLException {
+        callableDelegate.registerOutParameter(parameterIndex, sqlType, typeName);
+    }
+
+    @Override
+    public void registerOutParameter(String parameterName, int sqlType, int scale) throws SQLException {
+        callableDelegate.registerOutParameter(parameterName, sqlType, scale);
+    }
+
+    @Override
+    public void registerOutParameter(String parameterName, int sqlType, String typeName) throws SQLException {
+        callableDelegate.registerOutParameter(parameterName, sqlType, typeName);
+    }
+
+    @Override
+    public void registerOutParameter(String parameterName, SQLType sqlType, int scale) throws SQLException {
+        callableDelegate.registerOutParameter(parameterName, sqlType, scale);
+    }
+
+    @Override
+    public void registerOutParameter(String parameterName, SQLType sqlType, String typeName) throws SQLException {
+        callableDelegate.registerOutParameter(parameterName, sqlType, typeName);
+    }
+
+    @Override
+    public void setAsciiStream(String parameterName, InputStream x) throws SQLException {
+        callableDelegate.setAsciiStream(parameterName, x);
+    }
+
+    @Override
+    public void setAsciiStream(String parameterName, InputStream x, int length) throws SQLException {
+        callableDelegate.setAsciiStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setAsciiStream(String parameterName, InputStream x, long length) throws SQLException {
+        callableDelegate.setAsciiStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setBigDecimal(String parameterName, BigDecimal x) throws SQLException {
+        callableDelegate.setBigDecimal(parameterName, x);
+    }
+
+    @Override
+    public void setBinaryStream(String parameterName, InputStream x) throws SQLException {
+        callableDelegate.setBinaryStream(parameterName, x);
+    }
+
+    @Override
+    public void setBinaryStream(String parameterName, InputStream x, int length) throws SQLException {
+        callableDelegate.setBinaryStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setBinaryStream(String parameterName, InputStream x, long length) throws SQLException {
+        callableDelegate.setBinaryStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setBlob(String parameterName, Blob x) throws SQLException {
+        callableDelegate.setBlob(parameterName, x);
+    }
+
+    @Override
+    public void setBlob(String parameterName, InputStream x) throws SQLException {
+        callableDelegate.setBlob(parameterName, x);
+    }
+
+    @Override
+    public void setBlob(String parameterName, InputStream x, long length) throws SQLException {
+        callableDelegate.setBlob(parameterName, x, length);
+    }
+
+    @Override
+    public void setBoolean(String parameterName, boolean x) throws SQLException {
+        callableDelegate.setBoolean(parameterName, x);
+    }
+
+    @Override
+    public void setByte(String parameterName, byte x) throws SQLException {
+        callableDelegate.setByte(parameterName, x);
+    }
+
+    @Override
+    public void setBytes(String parameterName, byte[] x) throws SQLException {
+        callableDelegate.setBytes(parameterName, x);
+    }
+
+    @Override
+    public void setCharacterStream(String parameterName, Reader x) throws SQLException {
+        callableDelegate.setCharacterStream(parameterName, x);
+    }
+
+    @Override
+    public void setCharacterStream(String parameterName, Reader x, int length) throws SQLException {
+        callableDelegate.setCharacterStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setCharacterStream(String parameterName, Reader x, long length) throws SQLException {
+        callableDelegate.setCharacterStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setClob(String parameterName, Clob x) throws SQLException {
+        callableDelegate.setClob(parameterName, x);
+    }
+
+    @Override
+    public void setClob(String parameterName, Reader x) throws SQLException {
+        callableDelegate.setClob(parameterName, x);
+    }
+
+    @Override
+    public void setClob(String parameterName, Reader x, long length) throws SQLException {
+        callableDelegate.setClob(parameterName, x, length);
+    }
+
+    @Override
+    public void setDate(String parameterName, Date x) throws SQLException {
+        callableDelegate.setDate(parameterName, x);
+    }
+
+    @Override
+    public void setDate(String parameterName, Date x, Calendar cal) throws SQLException {
+        callableDelegate.setDate(parameterName, x, cal);
+    }
+
+    @Override
+    public void setDouble(String parameterName, double x) throws SQLException {
+        callableDelegate.setDouble(parameterName, x);
+    }
+
+    @Override
+    public void setFloat(String parameterName, float x) throws SQLException {
+        callableDelegate.setFloat(parameterName, x);
+    }
+
+    @Override
+    public void setInt(String parameterName, int x) throws SQLException {
+        callableDelegate.setInt(parameterName, x);
+    }
+
+    @Override
+    public void setLong(String parameterName, long x) throws SQLException {
+        callableDelegate.setLong(parameterName, x);
+    }
+
+    @Override
+    public void setNCharacterStream(String parameterName, Reader x) throws SQLException {
+        callableDelegate.setNCharacterStream(parameterName, x);
+    }
+
+    @Override
+    public void setNCharacterStream(String parameterName, Reader x, long length) throws SQLException {
+        callableDelegate.setNCharacterStream(parameterName, x, length);
+    }
+
+    @Override
+    public void setNClob(String parameterName, NClob x) throws SQLException {
+        callableDelegate.setNClob(parameterName, x);
+    }
+
+    @Override
+    public void setNClob(String parameterName, Reader x) throws SQLException {
+        callableDelegate.setNClob(parameterName, x);
+    }
+
+    @Override
+    public void setNClob(String parameterName, Reader x, long length) throws SQLException {
+        callableDelegate.setNClob(parameterName, x, length);
+    }
+
+    @Override
+    public void setNString(String parameterName, String x) throws SQLException {
+        callableDelegate.setNString(parameterName, x);
+    }
+
+    @Override
+    public void setNull(String parameterName, int sqlType) throws SQLException {
+        callableDelegate.setNull(parameterName, sqlType);
+    }
+
+    @Override
+    public void setNull(String parameterName, int sqlType, String typeName) throws SQLException {
+        callableDelegate.setNull(parameterName, sqlType, typeName);
+    }
+
+    @Override
+    public void setObject(String parameterName, Object x) throws SQLException {
+        callableDelegate.setObject(parameterName, x);
+    }
+
+    @Override
+    public void setObject(String parameterName, Object x, int targetSqlType) throws SQLException {
+        callableDelegate.setObject(parameterName, x, targetSqlType);
+    }
+
+    @Override
+    public void setObject(String parameterName, Object x, SQLType targetSqlType) throws SQLException {
+        callableDelegate.setObject(parameterName, x, targetSqlType);
+    }
+
+    @Override
+    public void setObject(String parameterName, Object x, int targetSqlType, int scale) throws SQLException {
+        callableDelegate.setObject(parameterName, x, targetSqlType, scale);
+    }
+
+    @Override
+    public void setObject(String parameterName, Object x, SQLType targetSqlType, int scale) throws SQLException {
+        callableDelegate.setObject(parameterName, x, targetSqlType, scale);
+    }
+
+    @Override
+    public void setRowId(String parameterName, RowId x) throws SQLException {
+        callableDelegate.setRowId(parameterName, x);
+    }
+
+    @Override
+    public void setSQLXML(String parameterName, SQLXML x) throws SQLException {
+        callableDelegate.setSQLXML(parameterName, x);
+    }
+
+    @Override
+    public void setShort(String parameterName, short x) throws SQLException {
+        callableDelegate.setShort(parameterName, x);
+    }
+
+    @Override
+    public void setString(String parameterName, String x) throws SQLException {
+        callableDelegate.setString(parameterName, x);
+    }
+
+    @Override
+    public void setTime(String parameterName, Time x) throws SQLException {
+        callableDelegate.setTime(parameterName, x);
+    }
+
+    @Override
+    public void setTime(String parameterName, Time x, Calendar cal) throws SQLException {
+        callableDelegate.setTime(parameterName, x, cal);
+    }
+
+    @Override
+    public void setTimestamp(String parameterName, Timestamp x) throws SQLException {
+        callableDelegate.setTimestamp(parameterName, x);
+    }
+
+    @Override
+    public void setTimestamp(String parameterName, Timestamp x, Calendar cal) throws SQLException {
+        callableDelegate.setTimestamp(parameterName, x, cal);
+    }
+
+    @Override
+    public void setURL(String parameterName, URL x) throws SQLException {
+        callableDelegate.setURL(parameterName, x);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return callableDelegate.wasNull();
+    }
+}
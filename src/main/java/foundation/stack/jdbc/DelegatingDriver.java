@@ -1,7 +1,20 @@
 package foundation.stack.jdbc;
 
 import java.sql.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -10,8 +23,102 @@ import java.util.logging.Logger;
  */
 public class DelegatingDriver implements Driver {
     private static final Logger logger = Logger.getLogger(DelegatingDriver.class.getName());
-    private static final String PREFIX = "jdbc:sf";
-    private static final int PREFIX_LENGTH = PREFIX.length();
+    private static final String PREWARM_PROPERTY = "sf.prewarm";
+    private static final String JMX_PROPERTY = "sf.jmx";
+    private static final String LOG_CONNECTS_PROPERTY = "sf.logConnects";
+    private static final String ASYNC_VIRTUAL_THREADS_PROPERTY = "sf.async.virtualThreads";
+
+    // Connection option that sends the connection to a replica, if the lookup found any
+    private static final String READ_ONLY_PROPERTY = "readOnly";
+
+    // SQL state for a client that was unable to establish a connection
+    private static final String CONNECTION_FAILURE_STATE = "08001";
+
+    // Logging every connect at INFO is noticeable on busy paths, so it is opt-in
+    private static final Level connectLogLevel = Boolean.getBoolean(LOG_CONNECTS_PROPERTY) ? Level.INFO : Level.FINE;
+
+    private static final ConcurrentMap<PoolKey, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
+
+    private static volatile Executor asyncExecutor;
+
+    /**
+     * Connects block on lookups, Docker and the network for most of their time, which costs a virtual thread next to
+     * nothing. Virtual threads need Java 21, while this driver builds for Java 8, so they are found reflectively and
+     * plain daemon threads are used when they are not there.
+     */
+    private static class DefaultAsyncExecutor {
+        private static final Executor executor = createExecutor();
+
+        private static Executor createExecutor() {
+            if (Boolean.parseBoolean(System.getProperty(ASYNC_VIRTUAL_THREADS_PROPERTY, "true"))) {
+                try {
+                    return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    logger.log(Level.FINE, "Virtual threads are not available, connecting asynchronously on " +
+                            "platform threads");
+                }
+            }
+
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "stack.foundation async connect " +
+                        threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Identifies a pool by everything its connections were opened with, so that callers only ever share connections
+     * they could have opened themselves (with the same password, say) and each pool keeps its own configuration. The
+     * lookup result is compared by identity, since a result that has been looked up again may point at another server.
+     */
+    private static final class PoolKey {
+        private final String query;
+        private final ConnectionLookupResult lookupResult;
+        private final Map<String, String> delegateInfo;
+        private final ConnectionPoolConfiguration configuration;
+        private final boolean trace;
+        private final boolean readOnly;
+        private final int statementCacheSize;
+
+        private PoolKey(String query, ConnectionLookupResult lookupResult, Properties delegateInfo,
+                        ConnectionPoolConfiguration configuration, boolean trace, boolean readOnly,
+                        int statementCacheSize) {
+            this.query = query;
+            this.lookupResult = lookupResult;
+            this.delegateInfo = new HashMap<>();
+            for (String name : delegateInfo.stringPropertyNames()) {
+                this.delegateInfo.put(name, delegateInfo.getProperty(name));
+            }
+            this.configuration = configuration;
+            this.trace = trace;
+            this.readOnly = readOnly;
+            this.statementCacheSize = statementCacheSize;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof PoolKey)) {
+                return false;
+            }
+
+            PoolKey that = (PoolKey) other;
+            return lookupResult == that.lookupResult && trace == that.trace && readOnly == that.readOnly &&
+                    statementCacheSize == that.statementCacheSize && query.equals(that.query) &&
+                    delegateInfo.equals(that.delegateInfo) && configuration.equals(that.configuration);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, System.identityHashCode(lookupResult), delegateInfo, configuration, trace,
+                    readOnly, statementCacheSize);
+        }
+    }
 
     private static final int MAJOR = 1;
     private static final int MINOR = 0;
@@ -20,6 +127,42 @@ public class DelegatingDriver implements Driver {
         logger.log(Level.INFO, "stack.foundation JDBC Driver de-registered");
     }
 
+    /**
+     * Starts resolving the queries (or {@code jdbc:sf} URLs) listed, comma separated, in the {@value #PREWARM_PROPERTY}
+     * system property in the background, so that the first connect only waits for whatever is still left to do.
+     */
+    private static void prewarm() {
+        String prewarmQueries = System.getProperty(PREWARM_PROPERTY);
+        if (prewarmQueries == null) {
+            return;
+        }
+
+        for (String prewarmQuery : prewarmQueries.split(",")) {
+            String query = prewarmQuery.trim();
+            if (query.startsWith(DelegatingUrl.PREFIX)) {
+                try {
+                    query = DelegatingUrl.parse(query).getQuery();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Not prewarming {0}: {1}", new Object[]{query, e.getMessage()});
+                    continue;
+                }
+            }
+
+            if (!query.isEmpty()) {
+                String prewarmedQuery = query;
+                logger.log(Level.INFO, "Prewarming connection lookup for {0}", prewarmedQuery);
+                ConnectionLookupRegistry.getRegistry().prewarm(prewarmedQuery).whenComplete((result, error) -> {
+                    if (error != null) {
+                        logger.log(Level.WARNING, "Error prewarming connection lookup for {0}", prewarmedQuery);
+                        logger.log(Level.FINE, "Error details:", error);
+                    } else if (result == null) {
+                        logger.log(Level.WARNING, "Unable to prewarm connection lookup for {0}", prewarmedQuery);
+                    }
+                });
+            }
+        }
+    }
+
     static {
         try {
             logger.log(Level.INFO, "stack.foundation JDBC Driver registered");
@@ -27,70 +170,217 @@ public class DelegatingDriver implements Driver {
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error registering stack.foundation JDBC Driver", e);
         }
+
+        if (Boolean.parseBoolean(System.getProperty(JMX_PROPERTY, "true"))) {
+            DriverMetrics.register();
+            StatementTracer.register();
+        }
+
+        prewarm();
+    }
+
+    /**
+     * Sets the executor {@link #connectAsync(String, Properties)} connects on, or with null goes back to the default
+     * of a virtual thread per connect where the JVM has them.
+     */
+    public static void setAsyncExecutor(Executor executor) {
+        asyncExecutor = executor;
+    }
+
+    private static Executor getAsyncExecutor() {
+        Executor executor = asyncExecutor;
+        return executor != null ? executor : DefaultAsyncExecutor.executor;
+    }
+
+    public static Collection<ConnectionPool> getConnectionPools() {
+        return Collections.unmodifiableCollection(connectionPools.values());
     }
 
     @Override
     public boolean acceptsURL(String url) throws SQLException {
-        return url.length() > PREFIX_LENGTH && url.startsWith(PREFIX);
+        return DelegatingUrl.isDelegatingUrl(url);
     }
 
-    private Connection delegatedConnect(ConnectionLookupResult lookupResult, Properties info) throws SQLException {
-        logger.log(Level.INFO, "Attempting to delegate to {0}", lookupResult.getConnectionString());
+    private static Connection connectReadOnly(ConnectionLookupResult lookupResult, Properties info,
+                                              int statementCacheSize) throws SQLException {
+        Connection connection = lookupResult.connectToReplica(info);
+        if (connection == null) {
+            logger.log(Level.FINE, "No replica available for {0}, using the primary", lookupResult.getConnectionString());
+            connection = lookupResult.connect(info);
+        }
 
-        fillInDefaultCredentialsIfRequired(lookupResult, info);
+        return StatementCachingConnection.wrap(connection, statementCacheSize);
+    }
 
-        return DriverManager.getConnection(lookupResult.getConnectionString(), info);
+    private static Connection connectReadWrite(ConnectionLookupResult lookupResult, Properties info,
+                                               int statementCacheSize) throws SQLException {
+        // Statements are cached per physical connection, so a statement prepared on the primary is never handed out
+        // while reads are going to a replica (replica connections opened for that are not cached)
+        Connection connection = StatementCachingConnection.wrap(lookupResult.connect(info), statementCacheSize);
+        return lookupResult.hasReplicas() ? new ReadWriteSplittingConnection(connection, lookupResult, info) : connection;
     }
 
-    private void fillInDefaultCredentialsIfRequired(ConnectionLookupResult lookupResult, Properties info) {
-        if (!info.containsKey("user")) {
-            ConnectionLookup lookup = lookupResult.getLookup();
+    private static Connection openDelegateConnection(String query, ConnectionLookupResult lookupResult, Properties info,
+                                                     boolean trace, boolean readOnly, int statementCacheSize)
+            throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = readOnly && lookupResult.hasReplicas() ?
+                    connectReadOnly(lookupResult, info, statementCacheSize) :
+                    connectReadWrite(lookupResult, info, statementCacheSize);
+            DriverMetrics.getMetrics().record(ConnectPhase.DELEGATE_CONNECT, start);
+            return trace ? new TracingConnection(connection, StatementTracer.getTracer()) : connection;
+        } catch (SQLException e) {
+            // The cached connection string may point at a server that has gone away, so look it up again next time
+            ConnectionLookupRegistry.getRegistry().invalidate(query);
+            closePools(query, null);
+            throw e;
+        }
+    }
 
-            String user = lookup.getDefaultUsername();
-            if (user != null) {
-                info.put("user", user);
+    /**
+     * Closes and forgets the pools for a query that were not opened from the given lookup result (or all of them, if
+     * it is null), since they hold connections to wherever the query used to resolve to.
+     */
+    private static void closePools(String query, ConnectionLookupResult currentLookupResult) {
+        for (Map.Entry<PoolKey, ConnectionPool> pool : connectionPools.entrySet()) {
+            PoolKey key = pool.getKey();
+            if (key.query.equals(query) && key.lookupResult != currentLookupResult &&
+                    connectionPools.remove(key, pool.getValue())) {
+                logger.log(Level.INFO, "Closing connection pool {0}", pool.getValue().getName());
+                pool.getValue().close();
             }
         }
+    }
 
-        if (!info.containsKey("password")) {
-            ConnectionLookup lookup = lookupResult.getLookup();
+    private Connection delegatedConnect(String query, ConnectionLookupResult lookupResult, Properties info,
+                                        boolean trace, boolean readOnly, int statementCacheSize) throws SQLException {
+        logger.log(connectLogLevel, "Attempting to delegate to {0}", lookupResult.getConnectionString());
 
-            String password = lookup.getDefaultPassword();
-            if (password != null) {
-                info.put("password", password);
-            }
+        Connection connection = openDelegateConnection(query, lookupResult, info, trace, readOnly, statementCacheSize);
+        if (readOnly) {
+            connection.setReadOnly(true);
         }
+        return connection;
     }
 
-    private ConnectionLookupResult lookup(String url) {
-        logger.log(Level.INFO, "Finding connection string to use for delegating URL {0}", url);
+    private Connection pooledConnect(String query, ConnectionLookupResult lookupResult,
+                                     ConnectionPoolConfiguration poolConfiguration, Properties info, boolean trace,
+                                     boolean readOnly, String profile, int statementCacheSize) throws SQLException {
+        Properties delegateInfo = lookupResult.createConnectionProperties(
+                ConnectionPoolConfiguration.withoutPoolProperties(info));
+
+        // Pools left behind by a lookup result that has since expired or been invalidated
+        closePools(query, lookupResult);
+
+        String poolName = lookupResult.getConnectionString() + " [" + delegateInfo.getProperty("user") + ']' +
+                (trace ? " [traced]" : "") + (readOnly ? " [read-only]" : "") +
+                (profile != null ? " [" + profile + ']' : "") +
+                (statementCacheSize > 0 ? " [statement cache " + statementCacheSize + ']' : "") +
+                " [max " + poolConfiguration.getMaximumSize() + ']';
+        PoolKey poolKey = new PoolKey(query, lookupResult, delegateInfo, poolConfiguration, trace, readOnly,
+                statementCacheSize);
+        ConnectionPool pool = connectionPools.computeIfAbsent(poolKey, key -> {
+            logger.log(Level.INFO, "Creating connection pool for {0}", lookupResult.getConnectionString());
+            return new ConnectionPool(poolName, poolConfiguration,
+                    () -> openDelegateConnection(query, lookupResult, delegateInfo, trace, readOnly,
+                            statementCacheSize));
+        });
+
+        Connection connection = pool.getConnection();
+        if (readOnly) {
+            // Returning a connection to the pool clears its read-only flag
+            connection.setReadOnly(true);
+        }
+        return connection;
+    }
 
-        String query = url.substring(PREFIX_LENGTH + 1);
+    private ConnectionLookupResult lookup(DelegatingUrl url) throws SQLException {
+        logger.log(connectLogLevel, "Finding connection string to use for delegating URL {0}", url);
 
+        ConnectionLookupResult lookupResult;
         try {
-            ConnectionLookupResult lookupResult = ConnectionLookupRegistry.getRegistry().lookupConnection(query);
-            if (lookupResult != null) {
-                return lookupResult;
-            }
-        } catch (Exception e) {
+            lookupResult = ConnectionLookupRegistry.getRegistry().lookupConnection(url.getQuery());
+        } catch (LookupUnavailableException e) {
+            // Expected to repeat on every connect until the lookup is tried again, so not worth more than FINE
+            logger.log(Level.FINE, "Not looking up connection to delegate {0} to: {1}",
+                    new Object[]{url, e.getMessage()});
+            throw new SQLTransientConnectionException(e.getMessage(), CONNECTION_FAILURE_STATE, e);
+        } catch (RuntimeException e) {
             logger.log(Level.SEVERE, "Error occurred looking up connection to delegate {0} to", url);
             logger.log(Level.FINE, "Error details:", e);
+            // Returning null would make the caller move on to other drivers and report that none accepted the URL
+            throw new SQLException("Error looking up connection to delegate " + url + " to: " + e.getMessage(),
+                    CONNECTION_FAILURE_STATE, e);
         }
 
-        logger.log(Level.WARNING, "Unable to find a connection string to use for delegating URL {0}", url);
-        return null;
+        if (lookupResult == null) {
+            logger.log(Level.WARNING, "Unable to find a connection string to use for delegating URL {0}", url);
+        }
+        return lookupResult;
     }
 
     @Override
     public Connection connect(String url, Properties info) throws SQLException {
-        if (acceptsURL(url)) {
-            ConnectionLookupResult lookupResult = lookup(url);
-            if (lookupResult != null) {
-                return delegatedConnect(lookupResult, info);
+        if (!acceptsURL(url)) {
+            return null;
+        }
+
+        DriverMetrics metrics = DriverMetrics.getMetrics();
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        metrics.connectStarted();
+        try {
+            DelegatingUrl delegatingUrl = DelegatingUrl.parse(url);
+            String query = delegatingUrl.getQuery();
+            ConnectionLookupResult lookupResult = lookup(delegatingUrl);
+            if (lookupResult == null) {
+                return null;
             }
+
+            Properties properties = delegatingUrl.mergeOptions(info);
+            boolean trace = StatementTracer.isEnabled(properties);
+            properties = StatementTracer.withoutTraceProperties(properties);
+            boolean readOnly = Boolean.parseBoolean(String.valueOf(properties.remove(READ_ONLY_PROPERTY)));
+            String profile = properties.getProperty(ConnectionProfile.PROFILE_PROPERTY);
+            properties = ConnectionProfile.applyProfile(properties, lookupResult.getConnectionString());
+            int statementCacheSize = StatementCachingConnection.removeSizeProperty(properties);
+            ConnectionPoolConfiguration poolConfiguration = ConnectionPoolConfiguration.fromProperties(properties);
+            Connection connection = poolConfiguration != null ?
+                    pooledConnect(query, lookupResult, poolConfiguration, properties, trace, readOnly, profile,
+                            statementCacheSize) :
+                    delegatedConnect(query, lookupResult, properties, trace, readOnly, statementCacheSize);
+            succeeded = true;
+            return connection;
+        } finally {
+            metrics.connectFinished(start, succeeded);
+        }
+    }
+
+    /**
+     * Connects without blocking the calling thread. The future completes with null if the URL is not a {@code jdbc:sf}
+     * URL, like {@link #connect(String, Properties)} returns, and exceptionally with the {@link SQLException} that
+     * connecting failed with.
+     */
+    public CompletableFuture<Connection> connectAsync(String url, Properties info) {
+        return connectAsync(url, info, getAsyncExecutor());
+    }
+
+    public CompletableFuture<Connection> connectAsync(String url, Properties info, Executor executor) {
+        Properties connectInfo = new Properties();
+        if (info != null) {
+            connectInfo.putAll(info);
         }
 
-        return null;
+        // Names are derived from the caller's stack, which the thread that connects does not have
+        Supplier<Connection> connect = NameGenerator.inCallerContext(() -> {
+            try {
+                return connect(url, connectInfo);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+        return CompletableFuture.supplyAsync(connect, executor);
     }
 
     @Override
@@ -116,9 +406,9 @@ public class DelegatingDriver implements Driver {
     @Override
     public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
         if (acceptsURL(url)) {
-            ConnectionLookupResult lookupResult = lookup(url);
+            ConnectionLookupResult lookupResult = lookup(DelegatingUrl.parse(url));
             if (lookupResult != null) {
-                return DriverManager.getDriver(url).getPropertyInfo(url, info);
+                return lookupResult.getDriver().getPropertyInfo(lookupResult.getConnectionString(), info);
             }
         }
 
@@ -0,0 +1,196 @@
+package foundation.stack.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A parsed {@code jdbc:sf} URL:
+ * <pre>
+ * url     = "jdbc:sf:" query [ "?" options ]
+ * query   = one or more characters other than "?", "&amp;", "=" and whitespace
+ * options = option *( "&amp;" option )
+ * option  = name "=" value
+ * </pre>
+ * The query is what lookups resolve, and all that results are cached under, so URLs that only differ in their options
+ * share one backend. Options are passed on as connection properties, taking precedence over properties given to the
+ * connect itself. Option names and values may use {@code %XX} escapes, e.g. for an {@code &amp;} in a value; a later
+ * option replaces an earlier one of the same name.
+ * <p>
+ * The same few URLs are connected to over and over, so parsed URLs are kept, up to
+ * {@value #DEFAULT_CACHE_MAXIMUM_SIZE} of them by default ({@value #CACHE_MAXIMUM_SIZE_PROPERTY}).
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public final class DelegatingUrl {
+    public static final String PREFIX = "jdbc:sf:";
+
+    private static final char OPTIONS_SEPARATOR = '?';
+    private static final char OPTION_SEPARATOR = '&';
+    private static final char VALUE_SEPARATOR = '=';
+
+    private static final String CACHE_MAXIMUM_SIZE_PROPERTY = "sf.url.cache.maximumSize";
+    private static final int DEFAULT_CACHE_MAXIMUM_SIZE = 256;
+
+    private static final int cacheMaximumSize = Integer.getInteger(CACHE_MAXIMUM_SIZE_PROPERTY,
+            DEFAULT_CACHE_MAXIMUM_SIZE);
+
+    // Once full, further URLs are parsed on every connect rather than evicting any; real applications use a handful
+    private static final ConcurrentMap<String, DelegatingUrl> parsedUrls = new ConcurrentHashMap<>();
+
+    private final String url;
+    private final String query;
+    private final Map<String, String> options;
+
+    private DelegatingUrl(String url, String query, Map<String, String> options) {
+        this.url = url;
+        this.query = query;
+        this.options = Collections.unmodifiableMap(options);
+    }
+
+    public static boolean isDelegatingUrl(String url) {
+        return url != null && url.length() > PREFIX.length() && url.startsWith(PREFIX);
+    }
+
+    /**
+     * @throws SQLException if the URL is not a {@code jdbc:sf} URL or does not follow its grammar
+     */
+    public static DelegatingUrl parse(String url) throws SQLException {
+        DelegatingUrl parsed = parsedUrls.get(url);
+        if (parsed == null) {
+            parsed = parseUncached(url);
+            if (parsedUrls.size() < cacheMaximumSize) {
+                parsedUrls.putIfAbsent(url, parsed);
+            }
+        }
+
+        return parsed;
+    }
+
+    static DelegatingUrl parseUncached(String url) throws SQLException {
+        if (!isDelegatingUrl(url)) {
+            throw new SQLException("Not a " + PREFIX + " URL: " + url);
+        }
+
+        int optionsStart = url.indexOf(OPTIONS_SEPARATOR, PREFIX.length());
+        String query = optionsStart < 0 ? url.substring(PREFIX.length()) : url.substring(PREFIX.length(), optionsStart);
+        if (query.isEmpty()) {
+            throw new SQLException("Missing query in URL " + url);
+        }
+
+        for (int i = 0; i < query.length(); i++) {
+            char character = query.charAt(i);
+            if (character == OPTION_SEPARATOR || character == VALUE_SEPARATOR || Character.isWhitespace(character)) {
+                // Most likely options without the '?', which would otherwise end up in a database name
+                throw new SQLException("Invalid character '" + character + "' in query " + query + " of URL " + url);
+            }
+        }
+
+        Map<String, String> options = new LinkedHashMap<>();
+        if (optionsStart >= 0) {
+            int optionStart = optionsStart + 1;
+            while (optionStart <= url.length()) {
+                int optionEnd = url.indexOf(OPTION_SEPARATOR, optionStart);
+                if (optionEnd < 0) {
+                    optionEnd = url.length();
+                }
+
+                // Empty options, as in "?&a=b" or a trailing "&", are harmless so are skipped
+                if (optionEnd > optionStart) {
+                    int valueStart = url.indexOf(VALUE_SEPARATOR, optionStart);
+                    if (valueStart <= optionStart || valueStart >= optionEnd) {
+                        throw new SQLException("Option '" + url.substring(optionStart, optionEnd) +
+                                "' is not of the form name=value in URL " + url);
+                    }
+
+                    options.put(decode(url, optionStart, valueStart), decode(url, valueStart + 1, optionEnd));
+                }
+
+                optionStart = optionEnd + 1;
+            }
+        }
+
+        return new DelegatingUrl(url, query, options);
+    }
+
+    private static int hexValue(char character) {
+        return Character.digit(character, 16);
+    }
+
+    /**
+     * Decodes {@code %XX} escapes as UTF-8. A '%' that does not start an escape is kept as it is, so values written
+     * before escapes were understood, like a password containing "%", still work.
+     */
+    private static String decode(String url, int start, int end) {
+        int escape = url.indexOf('%', start);
+        if (escape < 0 || escape >= end) {
+            return url.substring(start, end);
+        }
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(end - start);
+        int i = start;
+        while (i < end) {
+            if (escape < 0 || escape >= end) {
+                escape = end;
+            }
+
+            // Everything up to the next '%' as it is, which keeps surrogate pairs together
+            byte[] unescaped = url.substring(i, escape).getBytes(StandardCharsets.UTF_8);
+            decoded.write(unescaped, 0, unescaped.length);
+            i = escape;
+
+            if (i < end) {
+                if (i + 2 < end && hexValue(url.charAt(i + 1)) >= 0 && hexValue(url.charAt(i + 2)) >= 0) {
+                    decoded.write((hexValue(url.charAt(i + 1)) << 4) + hexValue(url.charAt(i + 2)));
+                    i += 3;
+                } else {
+                    decoded.write('%');
+                    i++;
+                }
+                escape = url.indexOf('%', i);
+            }
+        }
+
+        return new String(decoded.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public Map<String, String> getOptions() {
+        return options;
+    }
+
+    public String getOption(String name) {
+        return options.get(name);
+    }
+
+    /**
+     * @return new properties with the connection properties given and the options of this URL
+     */
+    public Properties mergeOptions(Properties info) {
+        Properties properties = new Properties();
+        if (info != null) {
+            properties.putAll(info);
+        }
+        properties.putAll(options);
+
+        return properties;
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -3,9 +3,17 @@ package foundation.stack.jdbc;
 import foundation.stack.docker.management.ContainerProperties;
 import foundation.stack.docker.management.DockerClient;
 import foundation.stack.docker.management.ContainerManager;
+import foundation.stack.docker.management.SpecificationBuilder;
 
 import java.io.IOException;
-import java.net.Socket;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,29 +33,152 @@ public class DockerDatabaseServerContainerReferenceManager extends ContainerMana
     private static final String APPLICATION_USER_PASSWORD_PROPERTY = "APPLICATION_USER_PASSWORD";
     private static final String DEFAULT_APPLICATION_PASSWORD = null;
 
+    // With a pool size of K, each JVM leases one of K containers per application instead of all sharing one
+    static final String POOL_SIZE_PROPERTY = "sf.container.pool.size";
+    private static final String POOL_LEASE_TIMEOUT_PROPERTY = "sf.container.pool.leaseTimeout";
+    private static final long DEFAULT_POOL_LEASE_TIMEOUT = 600000;
+    private static final String POOL_RESET_PROPERTY = "sf.container.pool.reset";
+    private static final String POOL_CONTAINER_SUFFIX = "-pool-";
+
+    private static final String SHARD_CONTAINER_SUFFIX = "-shard-";
+
+    /**
+     * Brings a leased server back to a clean state before this JVM starts using it.
+     */
+    public interface ContainerReset {
+        void reset(String connectionString) throws SQLException;
+    }
+
+    private final DatabaseServerReadiness readiness = DatabaseServerReadiness.fromSystemProperties();
+
+    private final int poolSize = Integer.getInteger(POOL_SIZE_PROPERTY, 0);
+    private final ContainerReset containerReset;
+    // Acquiring a lease can wait for minutes and resetting a container runs statements, so both are guarded by locks
+    // rather than monitors (including the ones inside ConcurrentHashMap.computeIfAbsent) that pin virtual threads
+    private final ReentrantLock leasesLock = new ReentrantLock();
+    private final Map<String, ContainerLease> leases = new HashMap<>();
+    private final ReentrantLock resetLock = new ReentrantLock();
+    private final Set<String> resetContainers = new HashSet<>();
+
     protected DockerDatabaseServerContainerReferenceManager(DockerClient dockerClient) {
+        this(dockerClient, null);
+    }
+
+    protected DockerDatabaseServerContainerReferenceManager(DockerClient dockerClient, ContainerReset containerReset) {
         super(dockerClient);
+        this.containerReset = containerReset;
+    }
+
+    private static String getPoolContainerName(String applicationName, int slot) {
+        return applicationName + POOL_CONTAINER_SUFFIX + slot;
+    }
+
+    private ContainerLease leaseContainer(String applicationName, SpecificationBuilder specification) {
+        leasesLock.lock();
+        try {
+            ContainerLease lease = leases.get(applicationName);
+            if (lease == null) {
+                lease = ContainerLease.acquire(applicationName, poolSize,
+                        Long.getLong(POOL_LEASE_TIMEOUT_PROPERTY, DEFAULT_POOL_LEASE_TIMEOUT), TimeUnit.MILLISECONDS);
+                logger.log(Level.INFO, "Leased container {0}", getPoolContainerName(applicationName, lease.getSlot()));
+                warmPool(applicationName, lease.getSlot(), specification);
+                leases.put(applicationName, lease);
+            }
+
+            return lease;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to lease a container for " + applicationName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            leasesLock.unlock();
+        }
     }
 
-    private void waitBrieflyForDatabaseServerConnect(String containerIp, int sqlServerPort) throws InterruptedException {
-        int retries = 25;
-        boolean connected = false;
-        logger.log(java.util.logging.Level.INFO, "Trying to connect to DB..");
-        while (!connected) {
-            try (Socket ignored = new Socket(containerIp, sqlServerPort)) {
-                connected = true;
-                logger.log(java.util.logging.Level.INFO, "Successfully connected to DB on {0}:{1} after {2} retries",
-                        new Object[]{containerIp, sqlServerPort, (100 - retries)});
-            } catch (IOException e) {
-                Thread.sleep(500);
-                if (retries == 0) {
-                    break;
+    /**
+     * Starts the other containers of the pool in the background, so JVMs leasing them later find them ready.
+     */
+    private void warmPool(String applicationName, int leasedSlot, SpecificationBuilder specification) {
+        Runnable warm = () -> {
+            for (int slot = 0; slot < poolSize; slot++) {
+                if (slot != leasedSlot) {
+                    try {
+                        getOrCreateContainer(getPoolContainerName(applicationName, slot), specification);
+                    } catch (ExecutionException | RuntimeException e) {
+                        // Most likely another JVM is starting the same container
+                        logger.log(Level.FINE, "Unable to warm container " +
+                                getPoolContainerName(applicationName, slot), e);
+                    }
                 }
-                retries--;
             }
+        };
+
+        Thread warmThread = new Thread(warm, "stack.foundation container pool warming: " + applicationName);
+        warmThread.setDaemon(true);
+        warmThread.start();
+    }
+
+    /**
+     * @return the name of the container this JVM uses for an application, which is the application name itself
+     * unless pooling is on
+     */
+    public String getApplicationContainerName(String applicationName, SpecificationBuilder specification) {
+        if (poolSize <= 0) {
+            return applicationName;
         }
-        if (!connected) {
-            logger.log(java.util.logging.Level.INFO, "Could not connect to database!!");
+
+        return getPoolContainerName(applicationName, leaseContainer(applicationName, specification).getSlot());
+    }
+
+    /**
+     * Gets (creating if needed) the container this JVM uses for an application. With pooling on, a container that was
+     * leased by this JVM is reset the first time it is handed out, since another JVM may have used it before.
+     */
+    public String getOrCreateApplicationContainer(String applicationName, SpecificationBuilder specification)
+            throws ExecutionException, SQLException {
+        String containerName = getApplicationContainerName(applicationName, specification);
+        String connectionString = getOrCreateContainer(containerName, specification);
+        resetLeasedContainer(containerName, connectionString);
+
+        return connectionString;
+    }
+
+    /**
+     * @return the name of one of the containers the databases of an application are spread across, the first being
+     * the application container itself, so turning sharding on keeps the databases that stay on it
+     */
+    public String getShardContainerName(String applicationName, int shard, SpecificationBuilder specification) {
+        String containerName = getApplicationContainerName(applicationName, specification);
+        return shard == 0 ? containerName : containerName + SHARD_CONTAINER_SUFFIX + shard;
+    }
+
+    /**
+     * Gets (creating if needed) one of the containers the databases of an application are spread across. With pooling
+     * on, the shards belong to the leased application container and are reset along with it.
+     */
+    public String getOrCreateShardContainer(String applicationName, int shard, SpecificationBuilder specification)
+            throws ExecutionException, SQLException {
+        String containerName = getShardContainerName(applicationName, shard, specification);
+        String connectionString = getOrCreateContainer(containerName, specification);
+        resetLeasedContainer(containerName, connectionString);
+
+        return connectionString;
+    }
+
+    private void resetLeasedContainer(String containerName, String connectionString) throws SQLException {
+        if (poolSize > 0 && containerReset != null &&
+                Boolean.parseBoolean(System.getProperty(POOL_RESET_PROPERTY, "true"))) {
+            resetLock.lock();
+            try {
+                if (!resetContainers.contains(containerName)) {
+                    logger.log(Level.INFO, "Resetting leased container {0}", containerName);
+                    containerReset.reset(connectionString);
+                    resetContainers.add(containerName);
+                }
+            } finally {
+                resetLock.unlock();
+            }
         }
     }
 
@@ -65,14 +196,16 @@ public class DockerDatabaseServerContainerReferenceManager extends ContainerMana
 
     protected String createContainerReference(ContainerProperties containerProperties) {
         int sqlServerPort = containerProperties.getPublishedPorts().entrySet().iterator().next().getValue().getPort();
+        String connectionString = buildConnectionString(containerProperties, sqlServerPort);
         try {
-            waitBrieflyForDatabaseServerConnect(containerProperties.getHostIp(), sqlServerPort);
+            readiness.awaitReady(containerProperties.getHostIp(), sqlServerPort, connectionString);
         } catch (InterruptedException e) {
             logger.log(Level.FINE, "Error testing connection to database server ", e);
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
         }
 
-        return buildConnectionString(containerProperties, sqlServerPort);
+        return connectionString;
     }
 
     private String buildConnectionString(ContainerProperties containerProperties, Integer sqlServerPort) {
@@ -7,14 +7,28 @@ import foundation.stack.docker.management.DockerClient;
 import foundation.stack.docker.management.HostIdentifier;
 import foundation.stack.docker.management.SpecificationBuilder;
 
+import java.net.URI;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static foundation.stack.jdbc.DockerDatabaseServerContainerReferenceManager.ROOT_PASSWORD_PROPERTY;
 
 /**
+ * Finds databases in MySQL containers started for each application, optionally spread across a number of shard
+ * containers by database name.
+ * <p>
+ * Raising the number of shards moves about 1 / n of the databases to the new shards, but their data is not migrated:
+ * a moved database starts out empty on its new shard, and its old data stays behind on the shard it was on. A WARNING
+ * names any such database the first time it is created on its new shard (the old data can be copied over with
+ * {@code mysqldump}, or the number of shards put back). Branch databases are only cloned from their template when it
+ * is on the same shard, which is also warned about.
+ *
  * @author Ravi Chodavarapu (rchodava@gmail.com)
  */
 public class DockerDatabaseServerPerApplicationConnectionLookup implements ConnectionLookup {
@@ -31,37 +45,80 @@ public class DockerDatabaseServerPerApplicationConnectionLookup implements Conne
 
     private static final int MYSQL_PORT = 3306;
 
+    // Number of replica containers to start for each application; replication needs a primary with binary logging on
+    private static final String REPLICAS_PROPERTY = "sf.mysql.replicas";
+    private static final String REPLICA_CONTAINER_SUFFIX = "-replica-";
+    private static final String REPLICATION_USER = "root";
+    // Replicas reach the primary over the Docker network, by default by its container name; this names a network alias
+    // of the primary's to use instead. The published port is on the Docker host, so is no use from inside a container.
+    private static final String REPLICATION_HOST_PROPERTY = "sf.mysql.replicas.primaryHost";
+
+    // Number of containers to spread the databases of each application across, placed by their name
+    private static final String SHARDS_PROPERTY = "sf.mysql.shards";
+    private static final String SHARD_VIRTUAL_NODES_PROPERTY = "sf.mysql.shards.virtualNodes";
+    private static final int DEFAULT_SHARD_VIRTUAL_NODES = 160;
+
+    // Lets a new JVM reuse the endpoints the last one resolved, once it has checked the server is still there
+    private static final String PERSISTENT_CACHE_PROPERTY = "sf.lookup.persistentCache";
+
     private static final String DOCKER_HOST_NAME = "stackfoundation";
     private static final String BYPASS_INSTALLATION = "BYPASS_INSTALLATION";
 
     private static final String MYSQL_ROOT_PASSWORD = "MYSQL_ROOT_PASSWORD";
 
+    static {
+        // A different branch means a different branch database, so the cached one must not be handed out any more.
+        // The cache is the registry's, not any one lookup's, so this is done once rather than by every instance.
+        NameGenerator.addBranchChangeListener(
+                branch -> ConnectionLookupRegistry.getRegistry().invalidate(BRANCH_DATABASE_NAME));
+    }
+
+    // Bootstrapping Docker can take seconds, which should not pin the carrier of a virtual thread waiting for it
+    private final ReentrantLock initializationLock = new ReentrantLock();
     private DockerClient dockerClient;
     private DockerDatabaseServerContainerReferenceManager containerManager;
 
     private final MySqlDatabaseManager databaseManager = new MySqlDatabaseManager();
+    private final MySqlServerProfile serverProfile = MySqlServerProfile.fromSystemProperties();
+    private final ConsistentHashRing shardRing = new ConsistentHashRing(
+            Math.max(1, Integer.getInteger(SHARDS_PROPERTY, 1)),
+            Integer.getInteger(SHARD_VIRTUAL_NODES_PROPERTY, DEFAULT_SHARD_VIRTUAL_NODES));
+    private final PersistentLookupCache persistentCache =
+            Boolean.parseBoolean(System.getProperty(PERSISTENT_CACHE_PROPERTY, "true")) ?
+                    new PersistentLookupCache(PersistentLookupCache.getDefaultFile()) : null;
 
     private final Bootstrap bootstrap = new Bootstrap();
 
     private DockerClient getDockerClient() {
-        if (dockerClient == null) {
-            try {
-                dockerClient = bootstrap.bootstrap(System.getenv().containsKey(BYPASS_INSTALLATION), null)
-                        .connect(HostIdentifier.fromName(DOCKER_HOST_NAME));
-            } catch (Exception e) {
-                logger.log(Level.FINE, "Error building docker client", e);
-                throw new RuntimeException(e);
+        initializationLock.lock();
+        try {
+            if (dockerClient == null) {
+                try {
+                    dockerClient = bootstrap.bootstrap(System.getenv().containsKey(BYPASS_INSTALLATION), null)
+                            .connect(HostIdentifier.fromName(DOCKER_HOST_NAME));
+                } catch (Exception e) {
+                    logger.log(Level.FINE, "Error building docker client", e);
+                    throw new RuntimeException(e);
+                }
             }
+            return dockerClient;
+        } finally {
+            initializationLock.unlock();
         }
-        return dockerClient;
     }
 
     private DockerDatabaseServerContainerReferenceManager getContainerReferenceManager() {
-        if (this.containerManager == null) {
-            this.containerManager = new DockerDatabaseServerContainerReferenceManager(getDockerClient());
-        }
+        initializationLock.lock();
+        try {
+            if (this.containerManager == null) {
+                this.containerManager = new DockerDatabaseServerContainerReferenceManager(getDockerClient(),
+                        databaseManager::dropAllDatabases);
+            }
 
-        return containerManager;
+            return containerManager;
+        } finally {
+            initializationLock.unlock();
+        }
     }
 
     private String appendDatabaseName(String connectionString, String databaseName) {
@@ -73,6 +130,28 @@ public class DockerDatabaseServerPerApplicationConnectionLookup implements Conne
         return connectionString + '/' + databaseName;
     }
 
+    /**
+     * @return the connection string of the server a database connection string (as composed by
+     * {@link #appendDatabaseName(String, String)}) connects to
+     */
+    private static String removeDatabaseName(String connectionString) {
+        int querySeparator = connectionString.indexOf('?');
+        String address = querySeparator > 0 ? connectionString.substring(0, querySeparator) : connectionString;
+        int databaseSeparator = address.lastIndexOf('/');
+        if (databaseSeparator <= address.indexOf("//") + 1) {
+            return connectionString;
+        }
+
+        return address.substring(0, databaseSeparator) +
+                (querySeparator > 0 ? connectionString.substring(querySeparator) : "");
+    }
+
+    @Override
+    public int getOrder() {
+        // Bootstrapping Docker and starting containers is far more expensive than any other lookup, so try this last
+        return Integer.MAX_VALUE;
+    }
+
     @Override
     public String getDefaultPassword() {
         return null;
@@ -83,9 +162,145 @@ public class DockerDatabaseServerPerApplicationConnectionLookup implements Conne
         return null;
     }
 
+    @Override
+    public void invalidate(String query, ConnectionEndpoints endpoints) {
+        // The database may have been dropped while the server stayed up, which only creating it again fixes
+        databaseManager.forgetKnownDatabases(removeDatabaseName(endpoints.getPrimary()));
+    }
+
     @Override
     public String find(String query) {
+        return findEndpoints(query).getPrimary();
+    }
+
+    private static URI parseServerAddress(String serverConnectionString) {
+        return URI.create(serverConnectionString.substring("jdbc:".length()));
+    }
+
+    private List<String> findReplicas(String containerName, ContainerSpecification containerSpecification,
+                                      String primaryConnectionString, String databaseName)
+            throws ExecutionException, SQLException {
+        int replicaCount = Integer.getInteger(REPLICAS_PROPERTY, 0);
+        if (replicaCount <= 0) {
+            return Collections.emptyList();
+        }
+
+        if (!databaseManager.isBinaryLoggingEnabled(primaryConnectionString)) {
+            logger.log(Level.WARNING, "Binary logging is off on the database server for {0}, so replicas cannot be " +
+                    "set up (MySQL 8.0 images have it on by default)", containerName);
+            return Collections.emptyList();
+        }
+
+        String primaryHost = System.getProperty(REPLICATION_HOST_PROPERTY, containerName);
+        List<String> replicas = new ArrayList<>(replicaCount);
+        for (int i = 1; i <= replicaCount; i++) {
+            String replicaConnectionString = getContainerReferenceManager()
+                    .getOrCreateContainer(containerName + REPLICA_CONTAINER_SUFFIX + i,
+                            SpecificationBuilder.just(containerSpecification));
+            databaseManager.applyServerProfile(replicaConnectionString, serverProfile);
+            // The primary keeps the default server id of 1
+            databaseManager.replicateFrom(replicaConnectionString, primaryHost, MYSQL_PORT, i + 1, REPLICATION_USER,
+                    System.getProperty(ROOT_PASSWORD_PROPERTY));
+            replicas.add(appendDatabaseName(replicaConnectionString, databaseName));
+        }
+
+        return replicas;
+    }
+
+    /**
+     * @return the key endpoints are saved to disk under, or null if they should not be (a generated application name
+     * is never seen again, and a pooled container is leased to one JVM at a time so must not be reused without a lease)
+     */
+    private String getPersistentCacheKey(String applicationName, String branchName, String query) {
+        if (persistentCache == null || NameGenerator.isGeneratedApplicationName(applicationName) ||
+                Integer.getInteger(DockerDatabaseServerContainerReferenceManager.POOL_SIZE_PROPERTY, 0) > 0) {
+            return null;
+        }
+
+        // Endpoints saved with a different number of shards may be on what is now the wrong shard
+        String shardedApplicationName = shardRing.getShardCount() > 1 ?
+                applicationName + " [" + shardRing.getShardCount() + " shards]" : applicationName;
+        return PersistentLookupCache.composeKey(shardedApplicationName, branchName, query);
+    }
+
+    /**
+     * @return the shard a database is on, which only depends on its name (as created), so it stays put across restarts
+     */
+    private int getShard(String branchName, String query) {
+        String databaseName = branchName != null ? MySqlDatabaseManager.composeBranchDatabaseName(branchName) : query;
+        return shardRing.getShard(MySqlDatabaseManager.sanitize(databaseName));
+    }
+
+    /**
+     * Warns about what sharding means for a database that is about to be created on its shard: its data being left
+     * behind on the shard it was on with fewer shards, or, for a branch database, a template it cannot be cloned from.
+     */
+    private void checkShardPlacement(String applicationName, int shard, String databaseName,
+                                     String containerConnectionString, boolean branch,
+                                     SpecificationBuilder specification) throws ExecutionException, SQLException {
+        if (shardRing.getShardCount() == 1 || databaseManager.hasDatabase(containerConnectionString, databaseName)) {
+            return;
+        }
+
+        String shardKey = MySqlDatabaseManager.sanitize(databaseName);
+        if (branch && MySqlDatabaseManager.isBranchCloningEnabled()) {
+            String templateName = MySqlDatabaseManager.getBranchTemplateDatabaseName();
+            int templateShard = shardRing.getShard(MySqlDatabaseManager.sanitize(templateName));
+            if (templateShard != shard) {
+                logger.log(Level.WARNING, "Not cloning {0} from {1}, which is on shard {2} rather than shard {3}; " +
+                        "branch databases can only be cloned from a template on the same shard", new Object[]{
+                        databaseName, templateName, String.valueOf(templateShard), String.valueOf(shard)});
+            }
+        }
+
+        for (int previousShard : shardRing.getPreviousShards(shardKey)) {
+            String previousConnectionString = getContainerReferenceManager().getOrCreateShardContainer(
+                    applicationName, previousShard, specification);
+            if (databaseManager.hasDatabase(previousConnectionString, databaseName)) {
+                logger.log(Level.WARNING, "{0} is now on shard {1} of {2}, but its data is still on shard {3} from " +
+                        "when there were fewer shards; it is not migrated, so {0} starts out empty", new Object[]{
+                        databaseName, String.valueOf(shard), String.valueOf(shardRing.getShardCount()),
+                        String.valueOf(previousShard)});
+                return;
+            }
+        }
+    }
+
+    private ConnectionEndpoints findPersistedEndpoints(String cacheKey) {
+        return persistentCache.getChecked(cacheKey, endpoints -> {
+            URI primaryAddress = parseServerAddress(endpoints.getPrimary());
+            // Connecting to the database itself also catches a server that was replaced by one without it
+            new MySqlReadinessProbe().probe(primaryAddress.getHost(), primaryAddress.getPort(),
+                    endpoints.getPrimary());
+
+            // The container may have been restarted since, which resets its global settings, while applying a profile
+            // that has already been applied costs nothing
+            databaseManager.applyServerProfile(removeDatabaseName(endpoints.getPrimary()), serverProfile);
+            for (String replica : endpoints.getReplicas()) {
+                databaseManager.applyServerProfile(removeDatabaseName(replica), serverProfile);
+            }
+        });
+    }
+
+    @Override
+    public ConnectionEndpoints findEndpoints(String query) {
+        DriverMetrics metrics = DriverMetrics.getMetrics();
+
+        long start = System.nanoTime();
         String applicationName = NameGenerator.generateContextApplicationName();
+        String branchName = BRANCH_DATABASE_NAME.equals(query) ? NameGenerator.generateDatabaseName() : null;
+        metrics.record(ConnectPhase.NAME_RESOLUTION, start);
+
+        String cacheKey = getPersistentCacheKey(applicationName, branchName, query);
+        if (cacheKey != null) {
+            start = System.nanoTime();
+            ConnectionEndpoints persisted = findPersistedEndpoints(cacheKey);
+            metrics.record(ConnectPhase.CONTAINER, start);
+            if (persisted != null) {
+                return persisted;
+            }
+        }
+
         try {
             String imageName = System.getProperty(MYSQL_IMAGE_NAME_PROPERTY, MYSQL_IMAGE_NAME);
             String versionTag = System.getProperty(MYSQL_IMAGE_TAG_PROPERTY, MYSQL_VERSION);
@@ -94,18 +309,42 @@ public class DockerDatabaseServerPerApplicationConnectionLookup implements Conne
             containerSpecification.addPortMapping(MYSQL_PORT, null);
             addRootPasswordEnvironmentVariable(containerSpecification, applicationName);
 
-            String containerConnectionString = getContainerReferenceManager()
-                    .getOrCreateContainer(applicationName,
-                            SpecificationBuilder.just(containerSpecification));
+            start = System.nanoTime();
+            int shard = getShard(branchName, query);
+            String containerConnectionString = getContainerReferenceManager().getOrCreateShardContainer(
+                    applicationName, shard, SpecificationBuilder.just(containerSpecification));
+            databaseManager.applyServerProfile(containerConnectionString, serverProfile);
+            checkShardPlacement(applicationName, shard, branchName != null ?
+                            MySqlDatabaseManager.composeBranchDatabaseName(branchName) : query,
+                    containerConnectionString, branchName != null, SpecificationBuilder.just(containerSpecification));
+            metrics.record(ConnectPhase.CONTAINER, start);
 
-            if (BRANCH_DATABASE_NAME.equals(query)) {
-                String databaseName = databaseManager.getOrCreateBranchDatabase(containerConnectionString,
-                        NameGenerator.generateDatabaseName());
-                return appendDatabaseName(containerConnectionString, databaseName);
+            String databaseName;
+            if (branchName != null) {
+                start = System.nanoTime();
+                databaseName = databaseManager.getOrCreateBranchDatabase(containerConnectionString, branchName);
+                metrics.record(ConnectPhase.DATABASE_CREATION, start);
             } else {
-                String databaseName = databaseManager.getOrCreateNamedDatabase(containerConnectionString, query);
-                return appendDatabaseName(containerConnectionString, databaseName);
+                start = System.nanoTime();
+                databaseName = databaseManager.getOrCreateNamedDatabase(containerConnectionString, query);
+                metrics.record(ConnectPhase.DATABASE_CREATION, start);
+            }
+
+            start = System.nanoTime();
+            String containerName = getContainerReferenceManager().getShardContainerName(applicationName, shard,
+                    SpecificationBuilder.just(containerSpecification));
+            List<String> replicas = findReplicas(containerName, containerSpecification, containerConnectionString,
+                    databaseName);
+            if (!replicas.isEmpty()) {
+                metrics.record(ConnectPhase.CONTAINER, start);
+            }
+
+            ConnectionEndpoints endpoints = new ConnectionEndpoints(
+                    appendDatabaseName(containerConnectionString, databaseName), replicas);
+            if (cacheKey != null) {
+                persistentCache.put(cacheKey, endpoints);
             }
+            return endpoints;
         } catch (ExecutionException | SQLException e) {
             logger.log(Level.FINE, "Error getting/creating database for application {0}", applicationName);
             throw new RuntimeException(e);
@@ -0,0 +1,208 @@
+package foundation.stack.jdbc;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counters and latency histograms for the {@code jdbc:sf} connect path, published as an MXBean named
+ * {@value #OBJECT_NAME}. Recording only touches striped counters, so it is cheap enough to leave on all the time.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class DriverMetrics implements DriverMetricsMXBean {
+    private static final Logger logger = Logger.getLogger(DriverMetrics.class.getName());
+
+    public static final String OBJECT_NAME = "foundation.stack.jdbc:type=DriverMetrics";
+
+    private static final DriverMetrics metrics = new DriverMetrics();
+
+    public static DriverMetrics getMetrics() {
+        return metrics;
+    }
+
+    private final Map<ConnectPhase, LatencyHistogram> phases = new EnumMap<>(ConnectPhase.class);
+    private final LongAdder lookupCacheHits = new LongAdder();
+    private final LongAdder lookupCacheMisses = new LongAdder();
+    private final LongAdder coalescedLookups = new LongAdder();
+    private final AtomicInteger connectsInFlight = new AtomicInteger();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder statementCacheEvictions = new LongAdder();
+
+    private DriverMetrics() {
+        for (ConnectPhase phase : ConnectPhase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            logger.log(Level.FINE, "Driver metrics already registered, probably by another class loader");
+        } catch (JMException | SecurityException e) {
+            logger.log(Level.WARNING, "Unable to register driver metrics", e);
+        }
+    }
+
+    public LatencyHistogram getHistogram(ConnectPhase phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a value previously returned by {@link System#nanoTime()}.
+     */
+    public void record(ConnectPhase phase, long startNanos) {
+        phases.get(phase).recordSince(startNanos);
+    }
+
+    void lookupCacheHit() {
+        lookupCacheHits.increment();
+    }
+
+    void lookupCacheMiss() {
+        lookupCacheMisses.increment();
+    }
+
+    void lookupCoalesced() {
+        coalescedLookups.increment();
+    }
+
+    void statementCacheHit() {
+        statementCacheHits.increment();
+    }
+
+    void statementCacheMiss() {
+        statementCacheMisses.increment();
+    }
+
+    void statementCacheEviction() {
+        statementCacheEvictions.increment();
+    }
+
+    void connectStarted() {
+        connectsInFlight.incrementAndGet();
+    }
+
+    void connectFinished(long startNanos, boolean succeeded) {
+        connectsInFlight.decrementAndGet();
+        record(ConnectPhase.CONNECT, startNanos);
+        if (!succeeded) {
+            connectFailures.increment();
+        }
+    }
+
+    @Override
+    public List<PhaseStatistics> getPhaseStatistics() {
+        List<PhaseStatistics> statistics = new ArrayList<>();
+        for (Map.Entry<ConnectPhase, LatencyHistogram> phase : phases.entrySet()) {
+            statistics.add(new PhaseStatistics(phase.getKey().name(), phase.getValue()));
+        }
+
+        return statistics;
+    }
+
+    @Override
+    public List<ConnectionPoolStatistics> getConnectionPoolStatistics() {
+        List<ConnectionPoolStatistics> statistics = new ArrayList<>();
+        for (ConnectionPool pool : DelegatingDriver.getConnectionPools()) {
+            statistics.add(new ConnectionPoolStatistics(pool));
+        }
+
+        return statistics;
+    }
+
+    @Override
+    public List<CircuitBreakerStatistics> getCircuitBreakerStatistics() {
+        List<CircuitBreakerStatistics> statistics = new ArrayList<>();
+        for (LookupCircuitBreaker circuitBreaker : ConnectionLookupRegistry.getRegistry().getCircuitBreakers()) {
+            statistics.add(new CircuitBreakerStatistics(circuitBreaker));
+        }
+
+        return statistics;
+    }
+
+    @Override
+    public long getLookupCacheHits() {
+        return lookupCacheHits.sum();
+    }
+
+    @Override
+    public long getLookupCacheMisses() {
+        return lookupCacheMisses.sum();
+    }
+
+    @Override
+    public long getCoalescedLookups() {
+        return coalescedLookups.sum();
+    }
+
+    @Override
+    public double getLookupCacheHitRatio() {
+        long hits = lookupCacheHits.sum() + coalescedLookups.sum();
+        long total = hits + lookupCacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public int getConnectsInFlight() {
+        return connectsInFlight.get();
+    }
+
+    @Override
+    public long getConnectFailures() {
+        return connectFailures.sum();
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions.sum();
+    }
+
+    @Override
+    public double getStatementCacheHitRatio() {
+        long hits = statementCacheHits.sum();
+        long total = hits + statementCacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public int getInternedStatementCount() {
+        return SqlMetadata.getInternedCount();
+    }
+
+    @Override
+    public void resetStatistics() {
+        for (LatencyHistogram histogram : phases.values()) {
+            histogram.reset();
+        }
+        lookupCacheHits.reset();
+        lookupCacheMisses.reset();
+        coalescedLookups.reset();
+        connectFailures.reset();
+        statementCacheHits.reset();
+        statementCacheMisses.reset();
+        statementCacheEvictions.reset();
+    }
+}
@@ -0,0 +1,47 @@
+package foundation.stack.jdbc;
+
+import java.util.List;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public interface DriverMetricsMXBean {
+    List<PhaseStatistics> getPhaseStatistics();
+
+    List<ConnectionPoolStatistics> getConnectionPoolStatistics();
+
+    List<CircuitBreakerStatistics> getCircuitBreakerStatistics();
+
+    long getLookupCacheHits();
+
+    long getLookupCacheMisses();
+
+    /**
+     * @return lookups that found another thread already resolving the same query and waited for it
+     */
+    long getCoalescedLookups();
+
+    double getLookupCacheHitRatio();
+
+    int getConnectsInFlight();
+
+    long getConnectFailures();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+
+    /**
+     * @return prepared statements closed because the cache of their connection was full
+     */
+    long getStatementCacheEvictions();
+
+    double getStatementCacheHitRatio();
+
+    /**
+     * @return distinct prepared SQL texts whose parsed form is shared across connections
+     */
+    int getInternedStatementCount();
+
+    void resetStatistics();
+}
@@ -0,0 +1,39 @@
+package foundation.stack.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * The file formats test fixtures can be loaded from, all read as UTF-8.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public enum FixtureFormat {
+    /**
+     * Comma separated values with a header row naming the columns, quoted as in RFC 4180. An empty field is NULL,
+     * while an empty quoted field ({@code ""}) is an empty string.
+     */
+    CSV,
+
+    /**
+     * One flat JSON object per line, with the keys of the first object naming the columns. Keys missing from later
+     * objects are NULL, and nested objects and arrays are loaded as their JSON text.
+     */
+    NDJSON;
+
+    public static FixtureFormat fromFileName(String fileName) {
+        String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+        if (lowerCaseName.endsWith(".csv")) {
+            return CSV;
+        } else if (lowerCaseName.endsWith(".ndjson") || lowerCaseName.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+
+        throw new IllegalArgumentException("Unable to tell the fixture format of " + fileName);
+    }
+
+    FixtureRows open(InputStream input) throws IOException {
+        return this == CSV ? new CsvFixtureRows(input) : new NdjsonFixtureRows(input);
+    }
+}
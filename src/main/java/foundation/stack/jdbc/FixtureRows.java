@@ -0,0 +1,20 @@
+package foundation.stack.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Rows of a fixture, read one at a time so that fixtures of any size are loaded in constant memory.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+interface FixtureRows extends Closeable {
+    List<String> getColumns();
+
+    /**
+     * @return the values of the next row, in the order of {@link #getColumns()} with null for NULL, or null once
+     * there are no more rows
+     */
+    String[] next() throws IOException;
+}
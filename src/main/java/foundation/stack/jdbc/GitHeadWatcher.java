@@ -0,0 +1,150 @@
+package foundation.stack.jdbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Watches the {@code HEAD} file and {@code refs/heads} of git repositories on a single daemon thread, and runs a callback
+ * for a repository whenever they change (e.g. because a different branch was checked out).
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class GitHeadWatcher {
+    private static final Logger logger = Logger.getLogger(GitHeadWatcher.class.getName());
+
+    private static final String HEAD = "HEAD";
+    private static final String REFS_HEADS = "refs/heads";
+
+    private static GitHeadWatcher watcher;
+
+    private static class WatchedDirectory {
+        private final Path directory;
+        private final boolean isGitRoot;
+        private final File gitRoot;
+        private final Runnable onChange;
+
+        private WatchedDirectory(Path directory, boolean isGitRoot, File gitRoot, Runnable onChange) {
+            this.directory = directory;
+            this.isGitRoot = isGitRoot;
+            this.gitRoot = gitRoot;
+            this.onChange = onChange;
+        }
+    }
+
+    private final WatchService watchService;
+    private final ConcurrentMap<WatchKey, WatchedDirectory> watchedDirectories = new ConcurrentHashMap<>();
+
+    private GitHeadWatcher(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    static synchronized GitHeadWatcher getWatcher() throws IOException {
+        if (watcher == null) {
+            watcher = new GitHeadWatcher(FileSystems.getDefault().newWatchService());
+
+            Thread watchThread = new Thread(watcher::processEvents, "stack.foundation git HEAD watcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+
+        return watcher;
+    }
+
+    void watch(File gitRoot, Runnable onChange) throws IOException {
+        Path root = gitRoot.toPath();
+        register(root, true, gitRoot, onChange);
+
+        Path refsHeads = root.resolve(REFS_HEADS);
+        if (Files.isDirectory(refsHeads)) {
+            registerTree(refsHeads, gitRoot, onChange);
+        }
+    }
+
+    private void register(Path directory, boolean isGitRoot, File gitRoot, Runnable onChange) throws IOException {
+        WatchKey key = directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirectories.put(key, new WatchedDirectory(directory, isGitRoot, gitRoot, onChange));
+    }
+
+    private void registerTree(Path directory, File gitRoot, Runnable onChange) throws IOException {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path subdirectory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                register(subdirectory, false, gitRoot, onChange);
+            }
+        }
+    }
+
+    private boolean isRelevant(WatchedDirectory watchedDirectory, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            return true;
+        }
+
+        Path changed = (Path) event.context();
+        if (watchedDirectory.isGitRoot) {
+            return HEAD.equals(changed.toString());
+        }
+
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+            Path created = watchedDirectory.directory.resolve(changed);
+            if (Files.isDirectory(created)) {
+                // Branch names with slashes create nested directories under refs/heads
+                try {
+                    registerTree(created, watchedDirectory.gitRoot, watchedDirectory.onChange);
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Unable to watch " + created, e);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            // Several writes usually make up one checkout, so each affected repository is only notified once
+            Set<Runnable> callbacks = new LinkedHashSet<>();
+            do {
+                WatchedDirectory watchedDirectory = watchedDirectories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (watchedDirectory != null && isRelevant(watchedDirectory, event)) {
+                        callbacks.add(watchedDirectory.onChange);
+                    }
+                }
+
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            } while ((key = watchService.poll()) != null);
+
+            for (Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Error handling git repository change", e);
+                }
+            }
+        }
+    }
+}
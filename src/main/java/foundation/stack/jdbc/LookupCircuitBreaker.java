@@ -0,0 +1,130 @@
+package foundation.stack.jdbc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stops calling a lookup that keeps failing, e.g. the Docker lookup while Docker is down, so that connects fail at
+ * once instead of each waiting for the failure all over again. After enough consecutive failures the circuit opens
+ * and the lookup is skipped until a cooldown has passed. Then a single call is let through to try it again: if that
+ * succeeds the circuit closes, otherwise it opens for another cooldown.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class LookupCircuitBreaker {
+    private static final Logger logger = Logger.getLogger(LookupCircuitBreaker.class.getName());
+
+    // Consecutive failures that open the circuit; 0 or less never opens it
+    private static final String FAILURE_THRESHOLD_PROPERTY = "sf.lookup.breaker.failureThreshold";
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    private static final String COOLDOWN_PROPERTY = "sf.lookup.breaker.cooldown";
+    private static final long DEFAULT_COOLDOWN = 30000;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        /** The cooldown has passed and one call is trying the lookup again */
+        HALF_OPEN
+    }
+
+    private final String lookupName;
+    private final int failureThreshold;
+    private final long cooldownNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private String lastFailure;
+    private long rejectedCalls;
+
+    public LookupCircuitBreaker(String lookupName, int failureThreshold, long cooldown, TimeUnit unit) {
+        this.lookupName = lookupName;
+        this.failureThreshold = failureThreshold;
+        this.cooldownNanos = unit.toNanos(cooldown);
+    }
+
+    static LookupCircuitBreaker fromSystemProperties(String lookupName) {
+        return new LookupCircuitBreaker(lookupName,
+                Integer.getInteger(FAILURE_THRESHOLD_PROPERTY, DEFAULT_FAILURE_THRESHOLD),
+                Long.getLong(COOLDOWN_PROPERTY, DEFAULT_COOLDOWN), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return true if the lookup may be called, in which case the outcome must be recorded
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= cooldownNanos) {
+            logger.log(Level.INFO, "Trying lookup {0} again", lookupName);
+            state = State.HALF_OPEN;
+            return true;
+        }
+
+        if (state != State.CLOSED) {
+            rejectedCalls++;
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.log(Level.INFO, "Lookup {0} is available again", lookupName);
+        }
+
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure(Throwable failure) {
+        consecutiveFailures++;
+        lastFailure = String.valueOf(failure);
+
+        if (state == State.HALF_OPEN || (failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+            if (state != State.OPEN) {
+                logger.log(Level.WARNING, "Not calling lookup {0} for {1}ms after {2} consecutive failures: {3}",
+                        new Object[]{lookupName, String.valueOf(TimeUnit.NANOSECONDS.toMillis(cooldownNanos)),
+                                String.valueOf(consecutiveFailures), lastFailure});
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    public String getLookupName() {
+        return lookupName;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized String getLastFailure() {
+        return lastFailure;
+    }
+
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    /**
+     * @return how long until the lookup is tried again, or 0 if the circuit is not open
+     */
+    public synchronized long getRetryDelay(TimeUnit unit) {
+        if (state != State.OPEN) {
+            return 0;
+        }
+
+        return unit.convert(Math.max(0, cooldownNanos - (System.nanoTime() - openedAt)), TimeUnit.NANOSECONDS);
+    }
+
+    LookupUnavailableException createUnavailableException(String query) {
+        return new LookupUnavailableException("Lookup " + lookupName + " is unavailable after " +
+                getConsecutiveFailures() + " consecutive failures, so " + query + " could not be resolved; it will " +
+                "be tried again in " + getRetryDelay(TimeUnit.MILLISECONDS) + "ms. Last failure: " + getLastFailure());
+    }
+}
@@ -0,0 +1,14 @@
+package foundation.stack.jdbc;
+
+/**
+ * Thrown instead of calling a lookup whose {@link LookupCircuitBreaker} is open.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class LookupUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public LookupUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,605 @@
+package foundation.stack.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copies one database into another on the same server. Tables are created from {@code SHOW CREATE TABLE}, so they
+ * keep their foreign keys, and filled with {@code INSERT ... SELECT} so no data leaves the server, with several tables
+ * copied at once over separate connections and foreign key checks off while they are. Views, triggers and routines
+ * are then created from their own {@code SHOW CREATE} statements.
+ * <p>
+ * What each table of the template looked like when it was copied into a database is remembered in the
+ * {@value #STATE_DATABASE} database, outside of the clone itself, so cloning into it again only copies the tables that
+ * changed since. A database that does not exist yet is cloned into a staging database whose tables are renamed into
+ * place once they have all been copied, so a clone that fails part way leaves nothing behind and is simply tried
+ * again. Clones into the same database are serialized with a named lock, which also holds off other processes sharing
+ * the server.
+ * <p>
+ * Events are not copied, since a branch running its template's scheduled jobs would be a surprise. A template with
+ * any is refused, as its clone would have a different schema than a database migrated from scratch, unless incomplete
+ * clones are allowed.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class MySqlDatabaseCloner {
+    private static final Logger logger = Logger.getLogger(MySqlDatabaseCloner.class.getName());
+
+    static final String STATE_DATABASE = "_sf";
+    static final String CLONE_STATE_TABLE = "clone_state";
+
+    private static final String STAGING_PREFIX = "_sf_staging_";
+    private static final String LOCK_PREFIX = "sf.clone.";
+    // Both database and lock names are limited to 64 characters
+    private static final int MAXIMUM_NAME_LENGTH = 64;
+
+    private final String serverConnectionString;
+    private final int threads;
+    private final boolean copyData;
+    private final boolean allowIncomplete;
+    private final int lockTimeoutSeconds;
+
+    MySqlDatabaseCloner(String serverConnectionString, int threads, boolean copyData, boolean allowIncomplete,
+                        int lockTimeoutSeconds) {
+        this.serverConnectionString = serverConnectionString;
+        this.threads = Math.max(1, threads);
+        this.copyData = copyData;
+        this.allowIncomplete = allowIncomplete;
+        this.lockTimeoutSeconds = lockTimeoutSeconds;
+    }
+
+    private static String prefixedName(String prefix, String name) {
+        String prefixedName = prefix + name;
+        // Names too long to prefix are hashed; a collision only means two clones wait on each other
+        return prefixedName.length() <= MAXIMUM_NAME_LENGTH ? prefixedName :
+                prefix + Integer.toHexString(name.hashCode());
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return '`' + identifier.replace("`", "``") + '`';
+    }
+
+    private static String qualify(String database, String table) {
+        return quoteIdentifier(database) + '.' + quoteIdentifier(table);
+    }
+
+    private static void disableStatisticsCaching(Connection connection) {
+        // MySQL 8 caches table statistics (including UPDATE_TIME) for a day by default; 5.7 has no such variable
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET SESSION information_schema_stats_expiry = 0");
+        } catch (SQLException e) {
+            logger.log(Level.FINEST, "Table statistics are not cached by this server", e);
+        }
+    }
+
+    /**
+     * A table's signature changes whenever it is altered (which rebuilds it) or written to.
+     */
+    private static Map<String, String> readTableSignatures(Connection connection, String database)
+            throws SQLException {
+        Map<String, String> signatures = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT table_name, create_time, update_time, table_rows FROM information_schema.tables " +
+                        "WHERE table_schema = ? AND table_type = 'BASE TABLE'")) {
+            statement.setString(1, database);
+            try (ResultSet tables = statement.executeQuery()) {
+                while (tables.next()) {
+                    signatures.put(tables.getString(1),
+                            tables.getString(2) + '|' + tables.getString(3) + '|' + tables.getString(4));
+                }
+            }
+        }
+
+        return signatures;
+    }
+
+    private static Set<String> readTables(Connection connection, String database) throws SQLException {
+        return new HashSet<>(readTableSignatures(connection, database).keySet());
+    }
+
+    private static List<String> readNames(Connection connection, String sql, String database) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, database);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    names.add(rows.getString(1));
+                }
+            }
+        }
+
+        return names;
+    }
+
+    private static boolean databaseExists(Connection connection, String database) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT schema_name FROM information_schema.schemata WHERE schema_name = ?")) {
+            statement.setString(1, database);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        }
+    }
+
+    private static void addCount(List<String> descriptions, int count, String singular, String plural) {
+        if (count > 0) {
+            descriptions.add(count + " " + (count == 1 ? singular : plural));
+        }
+    }
+
+    /**
+     * @return descriptions of what the template has that cloning does not copy, empty if there is nothing
+     */
+    private static List<String> findUncopiedObjects(Connection connection, String template) throws SQLException {
+        List<String> descriptions = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.events WHERE event_schema = ?")) {
+            statement.setString(1, template);
+            try (ResultSet counts = statement.executeQuery()) {
+                if (counts.next()) {
+                    addCount(descriptions, counts.getInt(1), "event", "events");
+                }
+            }
+        }
+
+        return descriptions;
+    }
+
+    private void checkTemplate(Connection connection, String template, String target) throws SQLException {
+        List<String> uncopied = findUncopiedObjects(connection, template);
+        if (uncopied.isEmpty()) {
+            return;
+        }
+
+        String description = template + " has " + String.join(", ", uncopied) + ", which cloning does not copy";
+        if (!allowIncomplete) {
+            throw new SQLFeatureNotSupportedException("Not cloning " + template + " into " + target + ": " +
+                    description);
+        }
+
+        logger.log(Level.WARNING, "Cloning {0} into {1} anyway, but {2}; the clone will not have them",
+                new Object[]{template, target, description});
+    }
+
+    private void lock(Connection connection, String lockName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, lockName);
+            statement.setInt(2, lockTimeoutSeconds);
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next() || result.getInt(1) != 1) {
+                    throw new SQLTransientException("Timed out after " + lockTimeoutSeconds + "s waiting for " +
+                            "another clone holding " + lockName);
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection connection, String lockName) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, lockName);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            // Closing the connection releases the lock anyway
+            logger.log(Level.FINE, "Error releasing " + lockName, e);
+        }
+    }
+
+    private static void dropQuietly(Connection connection, String database) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + quoteIdentifier(database));
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Unable to drop " + database + " after a failed clone", e);
+        }
+    }
+
+    /**
+     * Moves every table of the staging database into a new target database with a single (atomic) rename, along with
+     * what was recorded about copying them.
+     */
+    private static void publish(Connection connection, String staging, String target) throws SQLException {
+        Set<String> tables = readTables(connection, staging);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + quoteIdentifier(target));
+            moveCloneState(connection, staging, target);
+            if (tables.isEmpty()) {
+                return;
+            }
+
+            StringBuilder renames = new StringBuilder("RENAME TABLE ");
+            for (String table : tables) {
+                if (renames.length() > "RENAME TABLE ".length()) {
+                    renames.append(", ");
+                }
+                renames.append(qualify(staging, table)).append(" TO ").append(qualify(target, table));
+            }
+
+            try {
+                statement.execute(renames.toString());
+            } catch (SQLException e) {
+                dropQuietly(connection, target);
+                throw e;
+            }
+        }
+    }
+
+    private static Map<String, String> readCloneState(Connection connection, String target) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE IF NOT EXISTS " + quoteIdentifier(STATE_DATABASE));
+            statement.execute("CREATE TABLE IF NOT EXISTS " + qualify(STATE_DATABASE, CLONE_STATE_TABLE) +
+                    " (database_name VARCHAR(64) NOT NULL, table_name VARCHAR(64) NOT NULL, " +
+                    "template_signature VARCHAR(255) NOT NULL, PRIMARY KEY (database_name, table_name))");
+        }
+
+        Map<String, String> state = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT table_name, template_signature FROM " +
+                qualify(STATE_DATABASE, CLONE_STATE_TABLE) + " WHERE database_name = ?")) {
+            statement.setString(1, target);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    state.put(rows.getString(1), rows.getString(2));
+                }
+            }
+        }
+
+        return state;
+    }
+
+    private static void forgetCloneState(Connection connection, String database) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " +
+                qualify(STATE_DATABASE, CLONE_STATE_TABLE) + " WHERE database_name = ?")) {
+            statement.setString(1, database);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Hands what was recorded about a staging database over to the database its tables are being renamed into,
+     * replacing whatever was left over from an earlier database of the same name.
+     */
+    private static void moveCloneState(Connection connection, String staging, String target) throws SQLException {
+        forgetCloneState(connection, target);
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " +
+                qualify(STATE_DATABASE, CLONE_STATE_TABLE) + " SET database_name = ? WHERE database_name = ?")) {
+            statement.setString(1, target);
+            statement.setString(2, staging);
+            statement.executeUpdate();
+        }
+    }
+
+    private static List<String> readCopyableColumns(Connection connection, String database, String table)
+            throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT column_name FROM information_schema.columns WHERE table_schema = ? AND table_name = ? " +
+                        "AND extra NOT LIKE '%GENERATED%' ORDER BY ordinal_position")) {
+            statement.setString(1, database);
+            statement.setString(2, table);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    columns.add(quoteIdentifier(rows.getString(1)));
+                }
+            }
+        }
+
+        return columns;
+    }
+
+    /**
+     * @return the statement that creates an object, from the given column of its {@code SHOW CREATE} result
+     */
+    private static String showCreate(Statement statement, String sql, int column) throws SQLException {
+        try (ResultSet result = statement.executeQuery(sql)) {
+            String definition = result.next() ? result.getString(column) : null;
+            if (definition == null) {
+                throw new SQLException("No definition returned by " + sql);
+            }
+            return definition;
+        }
+    }
+
+    /**
+     * Copies a table into the connection's default database, which has to be the target.
+     */
+    private void copyTable(Connection connection, String template, String target, String table, String signature)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + qualify(target, table));
+            // Foreign keys to tables in the same database come out unqualified, so they refer to the target's tables
+            statement.execute(showCreate(statement, "SHOW CREATE TABLE " + qualify(template, table), 2));
+
+            if (copyData) {
+                // Generated columns cannot be inserted into, they are computed again instead
+                String columns = String.join(", ", readCopyableColumns(connection, template, table));
+                statement.execute("INSERT INTO " + qualify(target, table) + " (" + columns + ") SELECT " + columns +
+                        " FROM " + qualify(template, table));
+            }
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("REPLACE INTO " +
+                qualify(STATE_DATABASE, CLONE_STATE_TABLE) + " (database_name, table_name, template_signature) " +
+                "VALUES (?, ?, ?)")) {
+            statement.setString(1, target);
+            statement.setString(2, table);
+            statement.setString(3, signature);
+            statement.executeUpdate();
+        }
+    }
+
+    private void copyTables(String template, String target, BlockingQueue<Map.Entry<String, String>> tables)
+            throws SQLException {
+        try (Connection connection = MySqlDatabaseManager.openAdminConnection(serverConnectionString);
+             Statement statement = connection.createStatement()) {
+            // Tables are copied in no particular order, so some are created (and filled) before those they refer to
+            statement.execute("SET SESSION foreign_key_checks = 0");
+            statement.execute("USE " + quoteIdentifier(target));
+
+            Map.Entry<String, String> table;
+            while ((table = tables.poll()) != null) {
+                copyTable(connection, template, target, table.getKey(), table.getValue());
+            }
+        }
+    }
+
+    /**
+     * Runs each statement, over and over for those that fail as long as others succeed, since a view can only be
+     * created once the views it selects from have been.
+     */
+    private static void executeInAnyOrder(Statement statement, List<String> statements) throws SQLException {
+        List<String> pending = statements;
+        while (!pending.isEmpty()) {
+            List<String> failed = new ArrayList<>();
+            SQLException lastError = null;
+            for (String sql : pending) {
+                try {
+                    statement.execute(sql);
+                } catch (SQLException e) {
+                    failed.add(sql);
+                    lastError = e;
+                }
+            }
+
+            if (failed.size() == pending.size()) {
+                throw lastError;
+            }
+            pending = failed;
+        }
+    }
+
+    private static void setSqlMode(Connection connection, String sqlMode) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SET SESSION sql_mode = ?")) {
+            statement.setString(1, sqlMode);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Creates the template's routines, views and triggers in the target, replacing any it already has of the same
+     * names (a table that was copied again has lost its triggers anyway). This leaves the connection's default
+     * database and SQL mode changed.
+     */
+    private static void copyObjects(Connection connection, String template, String target) throws SQLException {
+        List<String> routines = readNames(connection, "SELECT CONCAT(routine_type, ' ', routine_name) " +
+                "FROM information_schema.routines WHERE routine_schema = ?", template);
+        List<String> views = readNames(connection,
+                "SELECT table_name FROM information_schema.views WHERE table_schema = ?", template);
+        List<String> triggers = readNames(connection, "SELECT trigger_name FROM information_schema.triggers " +
+                "WHERE trigger_schema = ? ORDER BY event_object_table, action_order", template);
+        if (routines.isEmpty() && views.isEmpty() && triggers.isEmpty()) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            // Names in a view's definition are only left unqualified while the default database is the view's own
+            statement.execute("USE " + quoteIdentifier(template));
+            String templatePrefix = quoteIdentifier(template) + '.';
+            List<String> viewDefinitions = new ArrayList<>();
+            for (String view : views) {
+                viewDefinitions.add(showCreate(statement, "SHOW CREATE VIEW " + qualify(template, view), 2)
+                        .replace(templatePrefix, quoteIdentifier(target) + '.'));
+            }
+
+            // Routines and triggers are created in the SQL mode they were created in, which SHOW CREATE also gives
+            Map<String, String[]> routineDefinitions = new LinkedHashMap<>();
+            for (String routine : routines) {
+                String[] typeAndName = routine.split(" ", 2);
+                routineDefinitions.put(typeAndName[0] + ' ' + qualify(target, typeAndName[1]),
+                        showCreateWithSqlMode(statement, "SHOW CREATE " + typeAndName[0] + ' ' +
+                                qualify(template, typeAndName[1])));
+            }
+            Map<String, String[]> triggerDefinitions = new LinkedHashMap<>();
+            for (String trigger : triggers) {
+                triggerDefinitions.put("TRIGGER " + qualify(target, trigger),
+                        showCreateWithSqlMode(statement, "SHOW CREATE TRIGGER " + qualify(template, trigger)));
+            }
+
+            statement.execute("USE " + quoteIdentifier(target));
+            for (Map.Entry<String, String[]> routine : routineDefinitions.entrySet()) {
+                statement.execute("DROP " + routine.getKey().replaceFirst(" ", " IF EXISTS "));
+                setSqlMode(connection, routine.getValue()[0]);
+                statement.execute(routine.getValue()[1]);
+            }
+
+            for (String view : views) {
+                statement.execute("DROP VIEW IF EXISTS " + qualify(target, view));
+            }
+            executeInAnyOrder(statement, viewDefinitions);
+
+            for (Map.Entry<String, String[]> trigger : triggerDefinitions.entrySet()) {
+                statement.execute("DROP " + trigger.getKey().replaceFirst(" ", " IF EXISTS "));
+                setSqlMode(connection, trigger.getValue()[0]);
+                statement.execute(trigger.getValue()[1]);
+            }
+        }
+    }
+
+    /**
+     * @return the SQL mode and statement from the {@code SHOW CREATE} result of a routine or trigger
+     */
+    private static String[] showCreateWithSqlMode(Statement statement, String sql) throws SQLException {
+        try (ResultSet result = statement.executeQuery(sql)) {
+            String definition = result.next() ? result.getString(3) : null;
+            if (definition == null) {
+                throw new SQLException("No definition returned by " + sql);
+            }
+            return new String[]{result.getString(2), definition};
+        }
+    }
+
+    /**
+     * Clones a template into a target database, which is created if it does not exist.
+     *
+     * @param intoExisting whether to bring a target that already exists up to date with the template, rather than
+     *                     leave it as it is
+     * @return the number of tables that were copied, as opposed to skipped because they were already up to date
+     * @throws SQLFeatureNotSupportedException if the template has objects that cloning does not copy, and incomplete
+     *                                         clones are not allowed
+     */
+    int cloneDatabase(String template, String target, boolean intoExisting) throws SQLException {
+        long start = System.nanoTime();
+        String lockName = prefixedName(LOCK_PREFIX, target);
+
+        try (Connection connection = MySqlDatabaseManager.openAdminConnection(serverConnectionString)) {
+            checkTemplate(connection, template, target);
+
+            lock(connection, lockName);
+            try {
+                int copied;
+                if (databaseExists(connection, target)) {
+                    if (!intoExisting) {
+                        // Cloned by someone else while this was waiting for the lock
+                        logger.log(Level.FINE, "{0} was created while waiting to clone it", target);
+                        return 0;
+                    }
+                    copied = cloneTables(connection, template, target);
+                    copyObjects(connection, template, target);
+                } else {
+                    String staging = prefixedName(STAGING_PREFIX, target);
+                    try (Statement statement = connection.createStatement()) {
+                        // Left over from a clone that was killed part way
+                        statement.execute("DROP DATABASE IF EXISTS " + quoteIdentifier(staging));
+                        statement.execute("CREATE DATABASE " + quoteIdentifier(staging));
+                    }
+
+                    try {
+                        copied = cloneTables(connection, template, staging);
+                        publish(connection, staging, target);
+                    } finally {
+                        dropQuietly(connection, staging);
+                    }
+
+                    // Views and triggers cannot be renamed into another database, so they go straight into the target
+                    try {
+                        copyObjects(connection, template, target);
+                    } catch (SQLException e) {
+                        dropQuietly(connection, target);
+                        throw e;
+                    }
+                }
+
+                logger.log(Level.INFO, "Cloned {0} into {1} in {2}ms ({3} tables copied)", new Object[]{template,
+                        target, String.valueOf((System.nanoTime() - start) / 1000000), String.valueOf(copied)});
+                return copied;
+            } finally {
+                unlock(connection, lockName);
+            }
+        }
+    }
+
+    private int cloneTables(Connection connection, String template, String target) throws SQLException {
+        BlockingQueue<Map.Entry<String, String>> changedTables = new LinkedBlockingQueue<>();
+
+        disableStatisticsCaching(connection);
+
+        Map<String, String> templateSignatures = readTableSignatures(connection, template);
+        Map<String, String> cloneState = readCloneState(connection, target);
+        Set<String> targetTables = readTables(connection, target);
+
+        for (Map.Entry<String, String> table : templateSignatures.entrySet()) {
+            if (!targetTables.contains(table.getKey()) ||
+                    !Objects.equals(cloneState.get(table.getKey()), table.getValue())) {
+                changedTables.add(table);
+            }
+        }
+
+        // Tables that were cloned before but have since been dropped from the template
+        try (Statement statement = connection.createStatement();
+             PreparedStatement forget = connection.prepareStatement("DELETE FROM " +
+                     qualify(STATE_DATABASE, CLONE_STATE_TABLE) + " WHERE database_name = ? AND table_name = ?")) {
+            for (String table : cloneState.keySet()) {
+                if (!templateSignatures.containsKey(table)) {
+                    statement.execute("DROP TABLE IF EXISTS " + qualify(target, table));
+                    forget.setString(1, target);
+                    forget.setString(2, table);
+                    forget.executeUpdate();
+                }
+            }
+        }
+
+        int copied = changedTables.size();
+        if (copied > 0) {
+            runInParallel(template, target, changedTables);
+        }
+
+        return copied;
+    }
+
+    private void runInParallel(String template, String target, BlockingQueue<Map.Entry<String, String>> tables)
+            throws SQLException {
+        int workers = Math.min(threads, tables.size());
+        AtomicInteger workerNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "stack.foundation clone " + target + '-' +
+                    workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                results.add(executor.submit(() -> {
+                    copyTables(template, target, tables);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while cloning " + template + " into " + target, e);
+        } catch (ExecutionException e) {
+            // Whatever failed stays out of the clone state, so the next clone copies it again
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException("Error cloning " + template + " into " + target, cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
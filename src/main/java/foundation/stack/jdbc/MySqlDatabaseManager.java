@@ -2,18 +2,186 @@ package foundation.stack.jdbc;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * @author Ravi Chodavarapu (rchodava@gmail.com)
  */
 public class MySqlDatabaseManager {
-    private static String composeBranchDatabaseName(String branchName) {
+    private static final Logger logger = Logger.getLogger(MySqlDatabaseManager.class.getName());
+
+    private static volatile boolean driverLoaded;
+
+    // SQL states of this class mean the connection itself failed, rather than the statement
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    // New branch databases are cloned from the template instead of starting out empty when this is on
+    private static final String BRANCH_CLONE_PROPERTY = "sf.branch.clone";
+    private static final String BRANCH_TEMPLATE_PROPERTY = "sf.branch.template";
+    private static final String DEFAULT_BRANCH_TEMPLATE = "master";
+    private static final String BRANCH_CLONE_DATA_PROPERTY = "sf.branch.cloneData";
+    private static final String BRANCH_CLONE_THREADS_PROPERTY = "sf.branch.cloneThreads";
+    // Templates with events, which cloning does not copy, are not cloned unless this is on
+    private static final String BRANCH_CLONE_INCOMPLETE_PROPERTY = "sf.branch.cloneIncomplete";
+    private static final String BRANCH_CLONE_LOCK_TIMEOUT_PROPERTY = "sf.branch.cloneLockTimeout";
+    private static final int DEFAULT_BRANCH_CLONE_LOCK_TIMEOUT = 300;
+
+    /**
+     * A long lived connection used for administrative statements against one server. JDBC connections are not safe
+     * for concurrent use, so statements are serialized.
+     */
+    private static class AdminConnection {
+        private final String serverConnectionString;
+        private final ReentrantLock lock = new ReentrantLock();
+        private Connection connection;
+
+        private AdminConnection(String serverConnectionString) {
+            this.serverConnectionString = serverConnectionString;
+        }
+
+        private void closeQuietly() {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.log(Level.FINE, "Error closing admin connection", e);
+                }
+                connection = null;
+            }
+        }
+
+        /**
+         * Whether a failure was down to the connection rather than the statement, in which case the connection is
+         * of no further use and the statement may not have run at all.
+         */
+        private boolean isBroken(SQLException e) {
+            String sqlState = e.getSQLState();
+            if (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_CLASS)) {
+                return true;
+            }
+
+            try {
+                return connection == null || !connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException validationFailure) {
+                return true;
+            }
+        }
+
+        private void executeOnce(String sql) throws SQLException {
+            if (connection == null) {
+                connection = openAdminConnection(serverConnectionString);
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            }
+        }
+
+        /**
+         * @return the first column of every row the query returns
+         */
+        private List<String> queryColumn(String sql) throws SQLException {
+            lock.lock();
+            try {
+                if (connection == null) {
+                    connection = openAdminConnection(serverConnectionString);
+                }
+
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery(sql)) {
+                    List<String> values = new ArrayList<>();
+                    while (resultSet.next()) {
+                        values.add(resultSet.getString(1));
+                    }
+                    return values;
+                } catch (SQLException e) {
+                    if (isBroken(e)) {
+                        closeQuietly();
+                    }
+                    throw e;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return the first column of the first row the query returns, or null if it returns no rows
+         */
+        private String query(String sql) throws SQLException {
+            List<String> values = queryColumn(sql);
+            return values.isEmpty() ? null : values.get(0);
+        }
+
+        /**
+         * Statements that fail for any reason other than a broken connection (a syntax error, a database that
+         * already exists) are not retried, as running them again would fail the same way or, for batches, repeat
+         * whatever part of the batch did run.
+         *
+         * @return true if the statement ran on a freshly opened connection because the previous one was broken
+         */
+        private boolean execute(String sql) throws SQLException {
+            lock.lock();
+            try {
+                boolean reused = connection != null;
+                try {
+                    executeOnce(sql);
+                    return false;
+                } catch (SQLException e) {
+                    boolean broken = isBroken(e);
+                    if (broken) {
+                        closeQuietly();
+                    }
+                    if (!broken || !reused) {
+                        throw e;
+                    }
+                }
+
+                // The server may have restarted or dropped an idle connection; try once more on a new connection
+                executeOnce(sql);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, AdminConnection> adminConnections = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> knownDatabases = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MySqlServerProfile> appliedProfiles = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> serverVersions = new ConcurrentHashMap<>();
+
+    static String composeBranchDatabaseName(String branchName) {
         return "branch_" + branchName;
     }
 
-    private static String sanitize(String name) {
+    static boolean isBranchCloningEnabled() {
+        return Boolean.getBoolean(BRANCH_CLONE_PROPERTY);
+    }
+
+    /**
+     * @return the name of the database new branch databases are cloned from
+     */
+    static String getBranchTemplateDatabaseName() {
+        return composeBranchDatabaseName(System.getProperty(BRANCH_TEMPLATE_PROPERTY, DEFAULT_BRANCH_TEMPLATE));
+    }
+
+    static String sanitize(String name) {
         int length = name.length();
         int sanitizedLength = 0;
         char[] sanitized = new char[length];
@@ -28,30 +196,184 @@ public class MySqlDatabaseManager {
         return new String(sanitized, 0, sanitizedLength);
     }
 
-    private static Connection openRawConnection(String connectionString) throws SQLException {
-        try {
-            Class.forName("com.mysql.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            throw new SQLException(e);
+    /**
+     * @return whether a server version, like {@code 8.0.36} or {@code 5.7.44-log}, is the given version or later
+     */
+    static boolean isVersionAtLeast(String version, int... minimum) {
+        String[] parts = version.split("[^0-9]+");
+        for (int i = 0; i < minimum.length; i++) {
+            int part = i < parts.length && !parts[i].isEmpty() ? Integer.parseInt(parts[i]) : 0;
+            if (part != minimum[i]) {
+                return part > minimum[i];
+            }
         }
 
-        return DriverManager.getConnection(connectionString);
+        return true;
     }
 
-    private static void executeUpdateStatement(String connectionString, String sql) throws SQLException {
-        try (Connection dbConnection = openRawConnection(connectionString);
-             Statement statement = dbConnection.createStatement()) {
-            statement.execute(sql);
+    static void loadDriver() throws SQLException {
+        if (!driverLoaded) {
+            try {
+                Class.forName("com.mysql.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                throw new SQLException(e);
+            }
+            driverLoaded = true;
+        }
+    }
+
+    static Connection openAdminConnection(String connectionString) throws SQLException {
+        loadDriver();
+
+        Properties properties = new Properties();
+        // Lets a batch of statements go to the server in a single round trip
+        properties.setProperty("allowMultiQueries", "true");
+        return DriverManager.getConnection(connectionString, properties);
+    }
+
+    private Set<String> getKnownDatabases(String serverConnectionString) {
+        return knownDatabases.computeIfAbsent(serverConnectionString, server -> ConcurrentHashMap.newKeySet());
+    }
+
+    private AdminConnection getAdminConnection(String serverConnectionString) {
+        return adminConnections.computeIfAbsent(serverConnectionString, AdminConnection::new);
+    }
+
+    private void executeAdminStatement(String serverConnectionString, String sql) throws SQLException {
+        if (getAdminConnection(serverConnectionString).execute(sql)) {
+            // A broken admin connection suggests the server was restarted, so databases may have disappeared with it
+            logger.log(Level.FINE, "Reconnected to {0}, forgetting known databases", serverConnectionString);
+            forgetKnownDatabases(serverConnectionString);
+        }
+    }
+
+    /**
+     * Forgets which databases are known to exist on a server, so they are created again if needed.
+     */
+    public void forgetKnownDatabases(String serverConnectionString) {
+        knownDatabases.remove(serverConnectionString);
+        // Global settings do not survive a restart either, and the server may have been upgraded
+        appliedProfiles.remove(serverConnectionString);
+        serverVersions.remove(serverConnectionString);
+    }
+
+    /**
+     * @return the version of a server, e.g. {@code 8.0.36}
+     */
+    public String getServerVersion(String serverConnectionString) throws SQLException {
+        String version = serverVersions.get(serverConnectionString);
+        if (version == null) {
+            version = getAdminConnection(serverConnectionString).query("SELECT VERSION()");
+            serverVersions.put(serverConnectionString, version);
+        }
+
+        return version;
+    }
+
+    /**
+     * Sets global variables on a server. Names and values are limited to letters, digits and underscores.
+     */
+    public void applyGlobalSettings(String serverConnectionString, Map<String, String> settings) throws SQLException {
+        if (settings.isEmpty()) {
+            return;
+        }
+
+        StringBuilder statements = new StringBuilder();
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            statements.append("SET GLOBAL ").append(sanitize(setting.getKey())).append(" = ")
+                    .append(sanitize(setting.getValue())).append(';');
+        }
+
+        executeAdminStatement(serverConnectionString, statements.toString());
+    }
+
+    /**
+     * Tunes a server according to a profile, unless the profile has already been applied to it.
+     */
+    public void applyServerProfile(String serverConnectionString, MySqlServerProfile profile) throws SQLException {
+        if (appliedProfiles.get(serverConnectionString) != profile) {
+            logger.log(Level.FINE, "Applying the {0} profile to {1}", new Object[]{profile, serverConnectionString});
+            applyGlobalSettings(serverConnectionString, profile.getGlobalSettings());
+            if (profile != MySqlServerProfile.STANDARD) {
+                for (String statement : profile.getInstanceStatements(getServerVersion(serverConnectionString))) {
+                    executeAdminStatement(serverConnectionString, statement);
+                }
+            }
+            appliedProfiles.put(serverConnectionString, profile);
         }
     }
 
     private void createDatabaseIfNotExists(String serverConnectionString, String databaseName) throws SQLException {
         String sanitizedName = sanitize(databaseName);
-        executeUpdateStatement(serverConnectionString, "CREATE DATABASE IF NOT EXISTS " + sanitizedName);
+        if (!getKnownDatabases(serverConnectionString).contains(sanitizedName)) {
+            executeAdminStatement(serverConnectionString, "CREATE DATABASE IF NOT EXISTS " + sanitizedName);
+            getKnownDatabases(serverConnectionString).add(sanitizedName);
+        }
+    }
+
+    /**
+     * @return whether a database exists on a server, which is only asked of the server if it is not known to exist
+     */
+    public boolean hasDatabase(String serverConnectionString, String databaseName) throws SQLException {
+        String sanitizedName = sanitize(databaseName);
+        return getKnownDatabases(serverConnectionString).contains(sanitizedName) ||
+                databaseExists(serverConnectionString, sanitizedName);
+    }
+
+    private boolean databaseExists(String serverConnectionString, String databaseName) throws SQLException {
+        return getAdminConnection(serverConnectionString).query("SELECT schema_name FROM information_schema.schemata " +
+                "WHERE schema_name = " + quote(databaseName)) != null;
+    }
+
+    private static MySqlDatabaseCloner createCloner(String serverConnectionString) {
+        int defaultThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+        return new MySqlDatabaseCloner(serverConnectionString,
+                Integer.getInteger(BRANCH_CLONE_THREADS_PROPERTY, defaultThreads),
+                Boolean.parseBoolean(System.getProperty(BRANCH_CLONE_DATA_PROPERTY, "true")),
+                Boolean.getBoolean(BRANCH_CLONE_INCOMPLETE_PROPERTY),
+                Integer.getInteger(BRANCH_CLONE_LOCK_TIMEOUT_PROPERTY, DEFAULT_BRANCH_CLONE_LOCK_TIMEOUT));
+    }
+
+    /**
+     * Copies a template database (its tables, views, triggers and routines) into another database on the same server,
+     * creating it if needed. Tables the template has not changed since they were last cloned into the target are left
+     * as they are.
+     *
+     * @return the number of tables that were copied
+     * @throws SQLFeatureNotSupportedException if the template has events, which are not copied, unless
+     *                                         {@value #BRANCH_CLONE_INCOMPLETE_PROPERTY} is set
+     */
+    public int cloneDatabase(String serverConnectionString, String templateName, String databaseName)
+            throws SQLException {
+        int copied = createCloner(serverConnectionString).cloneDatabase(sanitize(templateName), sanitize(databaseName),
+                true);
+        getKnownDatabases(serverConnectionString).add(sanitize(databaseName));
+        return copied;
     }
 
     public String getOrCreateBranchDatabase(String serverConnectionString, String branchName) throws SQLException {
         String databaseName = composeBranchDatabaseName(branchName);
+        if (isBranchCloningEnabled() && !getKnownDatabases(serverConnectionString).contains(sanitize(databaseName))) {
+            String templateName = getBranchTemplateDatabaseName();
+
+            // Only brand new branches are cloned, so nothing done on a branch is ever overwritten
+            if (!sanitize(templateName).equals(sanitize(databaseName)) &&
+                    !databaseExists(serverConnectionString, sanitize(databaseName)) &&
+                    databaseExists(serverConnectionString, sanitize(templateName))) {
+                try {
+                    createCloner(serverConnectionString).cloneDatabase(sanitize(templateName),
+                            sanitize(databaseName), false);
+                    getKnownDatabases(serverConnectionString).add(sanitize(databaseName));
+                    return databaseName;
+                } catch (SQLFeatureNotSupportedException e) {
+                    // An empty database is migrated from scratch, which at least gives the right schema
+                    logger.log(Level.WARNING, "{0}; {1} starts out empty instead (set {2}=true to clone the " +
+                            "rest anyway)", new Object[]{e.getMessage(), databaseName,
+                            BRANCH_CLONE_INCOMPLETE_PROPERTY});
+                }
+            }
+        }
+
         createDatabaseIfNotExists(serverConnectionString, databaseName);
         return databaseName;
     }
@@ -60,4 +382,82 @@ public class MySqlDatabaseManager {
         createDatabaseIfNotExists(serverConnectionString, name);
         return name;
     }
+
+    /**
+     * Creates all of the named databases that are not already known to exist using a single round trip to the server.
+     */
+    public List<String> getOrCreateNamedDatabases(String serverConnectionString, Collection<String> names)
+            throws SQLException {
+        Set<String> known = getKnownDatabases(serverConnectionString);
+        List<String> missing = new ArrayList<>();
+        StringBuilder statements = new StringBuilder();
+        for (String name : names) {
+            String sanitizedName = sanitize(name);
+            if (!known.contains(sanitizedName) && !missing.contains(sanitizedName)) {
+                missing.add(sanitizedName);
+                statements.append("CREATE DATABASE IF NOT EXISTS ").append(sanitizedName).append(';');
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            executeAdminStatement(serverConnectionString, statements.toString());
+            getKnownDatabases(serverConnectionString).addAll(missing);
+        }
+
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Drops every database on a server apart from the system ones, so that it can be handed to someone else as if it
+     * had just been started.
+     */
+    public void dropAllDatabases(String serverConnectionString) throws SQLException {
+        List<String> databases = getAdminConnection(serverConnectionString).queryColumn(
+                "SELECT schema_name FROM information_schema.schemata WHERE schema_name NOT IN " +
+                        "('mysql', 'information_schema', 'performance_schema', 'sys')");
+        forgetKnownDatabases(serverConnectionString);
+        if (databases.isEmpty()) {
+            return;
+        }
+
+        StringBuilder statements = new StringBuilder();
+        for (String database : databases) {
+            statements.append("DROP DATABASE `").append(database.replace("`", "``")).append("`;");
+        }
+
+        logger.log(Level.FINE, "Dropping {0} databases", databases.size());
+        executeAdminStatement(serverConnectionString, statements.toString());
+    }
+
+    public boolean isBinaryLoggingEnabled(String serverConnectionString) throws SQLException {
+        return "1".equals(getAdminConnection(serverConnectionString).query("SELECT @@log_bin"));
+    }
+
+    private static String quote(String value) {
+        return '\'' + value.replace("\\", "\\\\").replace("'", "\\'") + '\'';
+    }
+
+    /**
+     * Makes one server replicate everything from another, unless it has already been set up as a replica. The
+     * primary needs binary logging enabled (the default from MySQL 8.0 on).
+     */
+    public void replicateFrom(String replicaConnectionString, String primaryHost, int primaryPort, int serverId,
+                              String user, String password) throws SQLException {
+        if (getAdminConnection(replicaConnectionString).query("SHOW SLAVE STATUS") != null) {
+            return;
+        }
+
+        logger.log(Level.INFO, "Setting up replication from {0}:{1}",
+                new Object[]{primaryHost, String.valueOf(primaryPort)});
+        // Only MySQL 8.0 has the option, which caching_sha2_password (its default) needs without TLS
+        String publicKey = isVersionAtLeast(getServerVersion(replicaConnectionString), 8) ?
+                ", GET_MASTER_PUBLIC_KEY = 1" : "";
+        executeAdminStatement(replicaConnectionString,
+                "SET GLOBAL server_id = " + serverId + ';' +
+                "CHANGE MASTER TO MASTER_HOST = " + quote(primaryHost) + ", MASTER_PORT = " + primaryPort +
+                ", MASTER_USER = " + quote(user) + ", MASTER_PASSWORD = " + quote(password == null ? "" : password) +
+                publicKey + ';' +
+                "START SLAVE;" +
+                "SET GLOBAL super_read_only = ON;");
+    }
 }
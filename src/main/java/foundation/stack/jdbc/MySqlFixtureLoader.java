@@ -0,0 +1,388 @@
+package foundation.stack.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams test fixtures into the tables of a database. Rows are handed to the server with
+ * {@code LOAD DATA LOCAL INFILE} when both Connector/J and the server allow it, and otherwise as batches of inserts
+ * that Connector/J rewrites into multi-row statements. Either way a fixture is read one row at a time, so memory use
+ * does not grow with its size.
+ * <p>
+ * Foreign key checks are off while loading, so fixtures can be loaded in any order. The server skips rows it cannot
+ * load with {@code LOAD DATA LOCAL} (e.g. duplicate keys) and adjusts values that do not fit, only warning about it,
+ * so a load that leaves any warnings fails, even though the rows the server did take stay loaded.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class MySqlFixtureLoader {
+    private static final Logger logger = Logger.getLogger(MySqlFixtureLoader.class.getName());
+
+    private static final String BATCH_SIZE_PROPERTY = "sf.fixtures.batchSize";
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final String THREADS_PROPERTY = "sf.fixtures.threads";
+    private static final String LOCAL_INFILE_PROPERTY = "sf.fixtures.localInfile";
+
+    private final String serverConnectionString;
+    private final String databaseName;
+    private final int batchSize;
+    private final int threads;
+    private final boolean useLocalInfile;
+
+    private volatile Boolean serverAllowsLocalInfile;
+
+    /**
+     * Streams the rows of a fixture to the server in the tab separated form {@code LOAD DATA} reads by default.
+     */
+    private static class RowEncodingInputStream extends InputStream {
+        private final FixtureRows rows;
+        private final StringBuilder line = new StringBuilder();
+        private byte[] buffer = new byte[0];
+        private int position;
+        private boolean finished;
+        private long rowCount;
+
+        private RowEncodingInputStream(FixtureRows rows) {
+            this.rows = rows;
+        }
+
+        private void appendEscaped(String value) {
+            if (value == null) {
+                line.append("\\N");
+                return;
+            }
+
+            for (int i = 0; i < value.length(); i++) {
+                char character = value.charAt(i);
+                switch (character) {
+                    case '\\':
+                        line.append("\\\\");
+                        break;
+                    case '\t':
+                        line.append("\\t");
+                        break;
+                    case '\n':
+                        line.append("\\n");
+                        break;
+                    case '\r':
+                        line.append("\\r");
+                        break;
+                    case '\0':
+                        line.append("\\0");
+                        break;
+                    default:
+                        line.append(character);
+                }
+            }
+        }
+
+        private boolean fill() throws IOException {
+            while (position >= buffer.length) {
+                String[] row = finished ? null : rows.next();
+                if (row == null) {
+                    finished = true;
+                    return false;
+                }
+
+                rowCount++;
+                line.setLength(0);
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        line.append('\t');
+                    }
+                    appendEscaped(row[i]);
+                }
+                line.append('\n');
+
+                buffer = line.toString().getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? buffer[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            int read = 0;
+            while (read < length && fill()) {
+                int chunk = Math.min(length - read, buffer.length - position);
+                System.arraycopy(buffer, position, bytes, offset + read, chunk);
+                position += chunk;
+                read += chunk;
+            }
+
+            return read == 0 ? -1 : read;
+        }
+    }
+
+    public MySqlFixtureLoader(String serverConnectionString, String databaseName) {
+        this(serverConnectionString, databaseName, Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE),
+                Integer.getInteger(THREADS_PROPERTY, Math.min(4, Runtime.getRuntime().availableProcessors())),
+                Boolean.parseBoolean(System.getProperty(LOCAL_INFILE_PROPERTY, "true")));
+    }
+
+    public MySqlFixtureLoader(String serverConnectionString, String databaseName, int batchSize, int threads,
+                              boolean useLocalInfile) {
+        this.serverConnectionString = serverConnectionString;
+        this.databaseName = databaseName;
+        this.batchSize = Math.max(1, batchSize);
+        this.threads = Math.max(1, threads);
+        this.useLocalInfile = useLocalInfile;
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return '`' + identifier.replace("`", "``") + '`';
+    }
+
+    private static String columnList(List<String> columns) {
+        StringBuilder list = new StringBuilder();
+        for (String column : columns) {
+            if (list.length() > 0) {
+                list.append(", ");
+            }
+            list.append(quoteIdentifier(column));
+        }
+        return list.toString();
+    }
+
+    private Connection openConnection() throws SQLException {
+        MySqlDatabaseManager.loadDriver();
+
+        Properties properties = new Properties();
+        properties.setProperty("allowLoadLocalInfile", "true");
+        properties.setProperty("rewriteBatchedStatements", "true");
+        Connection connection = DriverManager.getConnection(serverConnectionString, properties);
+        try (Statement statement = connection.createStatement()) {
+            connection.setCatalog(databaseName);
+            statement.execute("SET SESSION foreign_key_checks = 0");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+
+        return connection;
+    }
+
+    /**
+     * Connector/J lets a statement read a {@code LOAD DATA LOCAL INFILE} from a stream instead of a file, through a
+     * method that is not part of JDBC and that moved between driver versions, so it is looked up by name.
+     */
+    private static Method findLocalInfileSetter(Statement statement) {
+        try {
+            return statement.getClass().getMethod("setLocalInfileInputStream", InputStream.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private boolean serverAllowsLocalInfile(Statement statement) throws SQLException {
+        if (serverAllowsLocalInfile == null) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT @@local_infile")) {
+                serverAllowsLocalInfile = resultSet.next() && resultSet.getBoolean(1);
+            }
+            if (!serverAllowsLocalInfile) {
+                logger.log(Level.INFO, "The server does not allow LOAD DATA LOCAL INFILE, so fixtures are inserted " +
+                        "in batches instead");
+            }
+        }
+
+        return serverAllowsLocalInfile;
+    }
+
+    private long loadLocally(Statement statement, Method localInfileSetter, String table, FixtureRows rows)
+            throws SQLException {
+        RowEncodingInputStream input = new RowEncodingInputStream(rows);
+        try {
+            localInfileSetter.invoke(statement, input);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new SQLException("Unable to stream a fixture to the server", e);
+        }
+
+        statement.clearWarnings();
+        long loaded = statement.executeUpdate("LOAD DATA LOCAL INFILE 'fixture' INTO TABLE " +
+                quoteIdentifier(table) + " CHARACTER SET utf8mb4 (" + columnList(rows.getColumns()) + ")");
+
+        SQLWarning warning = statement.getWarnings();
+        if (loaded != input.rowCount || warning != null) {
+            SQLException failure = new SQLException("Loaded " + loaded + " of the " + input.rowCount +
+                    " rows of the fixture for " + table + (warning == null ? "" : ": " + warning.getMessage()));
+            if (warning != null) {
+                failure.setNextException(warning);
+            }
+            throw failure;
+        }
+
+        return loaded;
+    }
+
+    private long insertInBatches(Connection connection, String table, FixtureRows rows)
+            throws SQLException, IOException {
+        List<String> columns = rows.getColumns();
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(quoteIdentifier(table)).append(" (")
+                .append(columnList(columns)).append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        sql.append(')');
+
+        // One transaction for the whole fixture, so a row that fails to load leaves none of the others behind
+        long loaded = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(sql.toString())) {
+            int pending = 0;
+            String[] row;
+            while ((row = rows.next()) != null) {
+                for (int i = 0; i < row.length; i++) {
+                    insert.setString(i + 1, row[i]);
+                }
+                insert.addBatch();
+
+                if (++pending == batchSize) {
+                    insert.executeBatch();
+                    loaded += pending;
+                    pending = 0;
+                }
+            }
+
+            if (pending > 0) {
+                insert.executeBatch();
+                loaded += pending;
+            }
+            connection.commit();
+        } catch (SQLException | IOException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * @return the number of rows loaded
+     */
+    public long load(String table, InputStream input, FixtureFormat format) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long loaded;
+        try (FixtureRows rows = format.open(input);
+             Connection connection = openConnection();
+             Statement statement = connection.createStatement()) {
+            Method localInfileSetter = useLocalInfile ? findLocalInfileSetter(statement) : null;
+            if (localInfileSetter != null && serverAllowsLocalInfile(statement)) {
+                loaded = loadLocally(statement, localInfileSetter, table, rows);
+            } else {
+                loaded = insertInBatches(connection, table, rows);
+            }
+        }
+
+        logger.log(Level.FINE, "Loaded {0} rows into {1} in {2}ms", new Object[]{String.valueOf(loaded), table,
+                String.valueOf((System.nanoTime() - start) / 1000000)});
+        return loaded;
+    }
+
+    /**
+     * Loads a CSV or NDJSON file, telling which it is from the file extension.
+     *
+     * @return the number of rows loaded
+     */
+    public long load(String table, Path fixture) throws IOException, SQLException {
+        try (InputStream input = Files.newInputStream(fixture)) {
+            return load(table, input, FixtureFormat.fromFileName(fixture.getFileName().toString()));
+        }
+    }
+
+    /**
+     * Loads a fixture file into each table, loading several tables at once.
+     *
+     * @return the number of rows loaded into each table
+     */
+    public Map<String, Long> loadAll(Map<String, Path> fixtures) throws IOException, SQLException {
+        if (fixtures.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        AtomicInteger workerNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, fixtures.size()), runnable -> {
+            Thread thread = new Thread(runnable, "stack.foundation fixture loader " + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Map<String, Future<Long>> results = new LinkedHashMap<>();
+            for (Map.Entry<String, Path> fixture : fixtures.entrySet()) {
+                results.put(fixture.getKey(), executor.submit(() -> load(fixture.getKey(), fixture.getValue())));
+            }
+
+            Map<String, Long> loaded = new LinkedHashMap<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (Map.Entry<String, Future<Long>> result : results.entrySet()) {
+                try {
+                    loaded.put(result.getKey(), result.getValue().get());
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                Throwable failure = failures.get(0);
+                for (int i = 1; i < failures.size(); i++) {
+                    failure.addSuppressed(failures.get(i));
+                }
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                } else if (failure instanceof SQLException) {
+                    throw (SQLException) failure;
+                }
+                throw new RuntimeException(failure);
+            }
+
+            return loaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading fixtures", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package foundation.stack.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * Considers the server ready once it completes a MySQL handshake, authenticates and answers {@code SELECT 1}.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class MySqlReadinessProbe implements DatabaseServerReadinessProbe {
+    private static final String CONNECT_TIMEOUT = "1000";
+    private static final String SOCKET_TIMEOUT = "2000";
+
+    @Override
+    public void probe(String host, int port, String connectionString) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("connectTimeout", CONNECT_TIMEOUT);
+        properties.setProperty("socketTimeout", SOCKET_TIMEOUT);
+
+        try (Connection connection = DriverManager.getConnection(connectionString, properties);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SELECT 1");
+        }
+    }
+}
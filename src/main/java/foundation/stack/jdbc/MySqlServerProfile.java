@@ -0,0 +1,99 @@
+package foundation.stack.jdbc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * How a MySQL server started for development or tests is tuned. {@link #FAST} gives up durability for speed: commits
+ * no longer wait for the redo log or binary log to reach the disk, which is what most of the time spent in schema
+ * migrations and fixture inserts goes to. A server that crashes may lose its last second or so of transactions, which
+ * does not matter for a throwaway container.
+ * <p>
+ * The settings are applied with {@code SET GLOBAL} once the server is up, so only settings that can be changed while
+ * the server runs are included. Containers are created with nothing but port mappings and environment variables, so
+ * mounting the data directory on tmpfs or starting the server with {@code --skip-log-bin} is not possible. On MySQL
+ * 8.0.21 and later, {@link #FAST} can also turn off the redo log altogether, but only when asked to: containers keep
+ * their data directory from one JVM to the next, and one whose server crashes with the redo log off cannot be started
+ * again.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public enum MySqlServerProfile {
+    /**
+     * Leaves the server as the image configures it.
+     */
+    STANDARD,
+
+    /**
+     * Flushes the redo and binary logs lazily and, if {@value #DISABLE_REDO_LOG_PROPERTY} is true and the server
+     * supports it, turns off redo logging. Each setting can be overridden with a system property.
+     */
+    FAST;
+
+    private static final Logger logger = Logger.getLogger(MySqlServerProfile.class.getName());
+
+    static final String PROFILE_PROPERTY = "sf.mysql.profile";
+
+    // 0 writes the redo log out about once a second instead of at every commit, 2 writes it at every commit but
+    // leaves flushing it to the operating system
+    private static final String FLUSH_LOG_AT_TRX_COMMIT_PROPERTY = "sf.mysql.fast.flushLogAtTrxCommit";
+    private static final String SYNC_BINLOG_PROPERTY = "sf.mysql.fast.syncBinlog";
+    private static final String BUFFER_POOL_SIZE_PROPERTY = "sf.mysql.fast.bufferPoolSize";
+    private static final long DEFAULT_BUFFER_POOL_SIZE = 256L * 1024 * 1024;
+    // A server that crashes with redo logging off cannot be started again, and the container's data directory is
+    // reused by every JVM that starts it, so this is opt-in
+    private static final String DISABLE_REDO_LOG_PROPERTY = "sf.mysql.fast.disableRedoLog";
+
+    /**
+     * @return the profile named by the {@value #PROFILE_PROPERTY} system property, or {@link #STANDARD} if it is not
+     * set or names no profile
+     */
+    public static MySqlServerProfile fromSystemProperties() {
+        String name = System.getProperty(PROFILE_PROPERTY);
+        if (name == null) {
+            return STANDARD;
+        }
+
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Unknown {0} {1}, expected one of {2}; using {3}", new Object[]{
+                    PROFILE_PROPERTY, name, Arrays.toString(values()), STANDARD});
+            return STANDARD;
+        }
+    }
+
+    /**
+     * @return the global variables to set on the server, in the order they should be set
+     */
+    public Map<String, String> getGlobalSettings() {
+        if (this == STANDARD) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("innodb_flush_log_at_trx_commit", System.getProperty(FLUSH_LOG_AT_TRX_COMMIT_PROPERTY, "0"));
+        settings.put("sync_binlog", System.getProperty(SYNC_BINLOG_PROPERTY, "0"));
+        settings.put("innodb_buffer_pool_size",
+                String.valueOf(Long.getLong(BUFFER_POOL_SIZE_PROPERTY, DEFAULT_BUFFER_POOL_SIZE)));
+        return settings;
+    }
+
+    /**
+     * @return statements to run on a server of the given version after the global settings, in order
+     */
+    public List<String> getInstanceStatements(String serverVersion) {
+        if (this == STANDARD || !Boolean.getBoolean(DISABLE_REDO_LOG_PROPERTY) ||
+                !MySqlDatabaseManager.isVersionAtLeast(serverVersion, 8, 0, 21)) {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList("ALTER INSTANCE DISABLE INNODB REDO_LOG");
+    }
+}
@@ -12,7 +12,14 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.security.CodeSource;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,6 +32,32 @@ public class NameGenerator {
 	private static final String APPLICATION_NAME = "application.name";
 	private final static String GENERATED_APP_NAME = "APP-NAME-%s";
 	private final static String GIT_EXTENSION = ".git";
+	private static final String WATCH_GIT_PROPERTY = "sf.git.watch";
+
+	// Git root captured on another thread by inCallerContext, used in place of this thread's own stack
+	private static final ThreadLocal<File> callerGitRoot = new ThreadLocal<>();
+
+	// Everything below is memoized so that, after the first call, generating a name costs a stack walk and a map lookup
+	// per frame rather than class loading, file system probing and reading the git repository
+	private static final ConcurrentMap<String, Optional<File>> gitRootsByCodePath = new ConcurrentHashMap<>();
+	// Keyed by the classes on the stack rather than by anything about the thread, since a thread that happens to ask
+	// first (a pool, prewarm or async connect thread) may have none of the application's classes on its stack
+	private static final ConcurrentMap<String, Optional<File>> gitRootsByClassName = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<File, GitRepositoryState> gitRepositoryStates = new ConcurrentHashMap<>();
+
+	private static final String generatedApplicationName = String.format(GENERATED_APP_NAME, UUID.randomUUID().toString());
+
+	private static final CopyOnWriteArrayList<Consumer<String>> branchChangeListeners = new CopyOnWriteArrayList<>();
+
+	private static class GitRepositoryState {
+		private final String applicationName;
+		private volatile String branch;
+
+		private GitRepositoryState(String applicationName, String branch) {
+			this.applicationName = applicationName;
+			this.branch = branch;
+		}
+	}
 
 	private static File findGitRoot(File file) {
         while (file != null) {
@@ -54,30 +87,103 @@ public class NameGenerator {
     private static File findGitRootOfClassSource(Class<?> clazz) {
         String codePath = findCodePathOfClass(clazz);
         if (codePath != null) {
-            File codeFile = new File(codePath);
-
-            if (codeFile.exists() && codeFile.isDirectory()) {
-                // Running from a class file (probably an IDE)
-                return findGitRoot(codeFile);
-            } else if (codeFile.exists()) {
-                // Running from a JAR (maybe Maven?)
-                return findGitRoot(codeFile.getParentFile());
-            }
+            return findGitRootOfCodePath(codePath);
         }
 
         return null;
     }
 
-    private static String determineGitBranch(File gitRoot) {
+    static File findGitRootOfCodePath(String codePath) {
+        return gitRootsByCodePath.computeIfAbsent(codePath,
+                path -> Optional.ofNullable(scanForGitRootOfCodePath(path))).orElse(null);
+    }
+
+    static File scanForGitRootOfCodePath(String codePath) {
+        File codeFile = new File(codePath);
+
+        if (codeFile.exists() && codeFile.isDirectory()) {
+            // Running from a class file (probably an IDE)
+            return findGitRoot(codeFile);
+        } else if (codeFile.exists()) {
+            // Running from a JAR (maybe Maven?)
+            return findGitRoot(codeFile.getParentFile());
+        }
+
+        return null;
+    }
+
+    private static String readGitBranch(File gitRoot) {
         try (Repository gitRepository = FileRepositoryBuilder.create(gitRoot)) {
-            String fullBranch = getHeadBranch(gitRepository);
-            if (fullBranch != null) return fullBranch;
+            return getHeadBranch(gitRepository);
         } catch (IOException e) {
+            logger.log(Level.FINE, "Error reading git repository " + gitRoot, e);
         }
 
         return null;
     }
 
+    private static GitRepositoryState readGitRepositoryState(File gitRoot) {
+        try (Repository gitRepository = FileRepositoryBuilder.create(gitRoot)) {
+            String branch = getHeadBranch(gitRepository);
+            return new GitRepositoryState(
+                    generateApplicationNameFromGitRemote(getRemoteUri(gitRepository, branch)), branch);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error reading git repository " + gitRoot, e);
+        }
+
+        return new GitRepositoryState(null, null);
+    }
+
+    private static GitRepositoryState getGitRepositoryState(File gitRoot) {
+        return gitRepositoryStates.computeIfAbsent(gitRoot, root -> {
+            GitRepositoryState state = readGitRepositoryState(root);
+            watchForBranchChanges(root);
+            return state;
+        });
+    }
+
+    private static void watchForBranchChanges(File gitRoot) {
+        if (!Boolean.parseBoolean(System.getProperty(WATCH_GIT_PROPERTY, "true"))) {
+            return;
+        }
+
+        try {
+            GitHeadWatcher.getWatcher().watch(gitRoot, () -> refreshGitBranch(gitRoot));
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.log(Level.FINE, "Unable to watch git repository " + gitRoot + " for branch changes", e);
+        }
+    }
+
+    private static void refreshGitBranch(File gitRoot) {
+        GitRepositoryState state = gitRepositoryStates.get(gitRoot);
+        if (state == null) {
+            return;
+        }
+
+        String branch = readGitBranch(gitRoot);
+        String previousBranch = state.branch;
+        if (!Objects.equals(branch, previousBranch)) {
+            state.branch = branch;
+            logger.log(Level.INFO, "Git branch changed from {0} to {1}", new Object[]{previousBranch, branch});
+
+            for (Consumer<String> listener : branchChangeListeners) {
+                listener.accept(branch);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener that is told the new branch name whenever a different branch is checked out in a repository
+     * that names have been generated from.
+     */
+    public static void addBranchChangeListener(Consumer<String> listener) {
+        branchChangeListeners.addIfAbsent(listener);
+    }
+
+    public static void removeBranchChangeListener(Consumer<String> listener) {
+        branchChangeListeners.remove(listener);
+    }
+
     private static String getHeadBranch(Repository gitRepository) throws IOException {
         String fullBranch = gitRepository.getFullBranch();
         if (fullBranch != null && fullBranch.startsWith(Constants.R_HEADS)) {
@@ -88,17 +194,17 @@ public class NameGenerator {
     }
 
     private static File findGitRootInStack() {
-	    File gitRoot = null;
+	    File gitRoot = callerGitRoot.get();
+	    if (gitRoot != null) {
+		    return gitRoot;
+	    }
+
 	    StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
 	    int index = stackTrace.length;
 	    while (gitRoot == null && index > 1) {
-		    Class<?> callerClass;
-		    try {
-			    callerClass = getCallerClassForName(stackTrace[--index].getClassName());
-			    gitRoot = findGitRootOfClassSource(callerClass);
-		    } catch (ClassNotFoundException e) {
-		    }
+		    gitRoot = findGitRootOfClassNamed(stackTrace[--index].getClassName());
 	    }
+
 	    if (gitRoot != null) {
 		    logger.log(Level.FINE, "Found git root on {0}", gitRoot.getAbsolutePath());
 	    }
@@ -109,6 +215,49 @@ public class NameGenerator {
 	    return gitRoot;
     }
 
+	/**
+	 * Names are derived from the classes on the calling thread's stack, which a task handed to another thread no longer
+	 * has. This captures the git root (and context class loader) of the current thread so the task generates the same
+	 * names wherever it runs.
+	 */
+	public static <T> Supplier<T> inCallerContext(Supplier<T> task) {
+		File gitRoot = findGitRootInStack();
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+		return () -> {
+			Thread thread = Thread.currentThread();
+			ClassLoader previousClassLoader = thread.getContextClassLoader();
+			thread.setContextClassLoader(contextClassLoader);
+			callerGitRoot.set(gitRoot);
+			try {
+				return task.get();
+			} finally {
+				callerGitRoot.remove();
+				thread.setContextClassLoader(previousClassLoader);
+			}
+		};
+	}
+
+	private static File findGitRootOfClassNamed(String className) {
+		Optional<File> gitRoot = gitRootsByClassName.get(className);
+		if (gitRoot != null) {
+			return gitRoot.orElse(null);
+		}
+
+		Class<?> callerClass;
+		try {
+			callerClass = getCallerClassForName(className);
+		} catch (ClassNotFoundException | LinkageError e) {
+			// Not visible to this thread's context class loader, which says nothing about where the class came from,
+			// so this is not remembered; a thread with the right class loader may ask next
+			return null;
+		}
+
+		// Where a class was loaded from never changes, so whether or not it is in a git repository can be remembered
+		return gitRootsByClassName.computeIfAbsent(className,
+				name -> Optional.ofNullable(findGitRootOfClassSource(callerClass))).orElse(null);
+	}
+
 	private static Class<?> getCallerClassForName(String className) throws ClassNotFoundException {
 		if (className != null) {
 			ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
@@ -116,24 +265,13 @@ public class NameGenerator {
 				classLoader = DockerDatabaseServerPerApplicationConnectionLookup.class.getClassLoader();
 			}
 
-			return Class.forName(className, true, classLoader);
+			// Only the code source is needed, so there is no reason to run the class's static initializers
+			return Class.forName(className, false, classLoader);
 		}
 
 		return null;
 	}
 
-
-	private static String determineRemoteUri(File gitRoot) {
-        if (gitRoot != null) {
-            try (Repository gitRepository = FileRepositoryBuilder.create(gitRoot)) {
-                return getRemoteUri(gitRepository, getHeadBranch(gitRepository));
-            } catch (IOException e) {
-            }
-        }
-
-        return null;
-    }
-
     private static String getRemoteUri(Repository gitRepository, String branchName) {
         Config configuration = gitRepository.getConfig();
 
@@ -156,6 +294,21 @@ public class NameGenerator {
         return null;
     }
 
+    private static String generateApplicationNameFromGitRemote(String remoteUri) {
+        if (remoteUri != null) {
+            try {
+                String path = URI.create(remoteUri).getPath();
+                if (path != null) {
+                    return generateApplicationNameFromGitRemoteUri(path);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.log(Level.FINE, "Unable to parse git remote {0}", remoteUri);
+            }
+        }
+
+        return null;
+    }
+
     private static String generateApplicationNameFromGitRemoteUri(String gitUri) {
         StringBuilder applicationName = new StringBuilder();
 
@@ -188,14 +341,10 @@ public class NameGenerator {
 	    if (Strings.isNullOrEmpty(applicationName)) {
 		    File gitRoot = findGitRootInStack();
 		    if (gitRoot != null) {
-			    String remoteUri = determineRemoteUri(gitRoot);
-			    String path = URI.create(remoteUri).getPath();
-			    if (path != null) {
-				    applicationName = generateApplicationNameFromGitRemoteUri(path);
-				    if (applicationName != null) {
-					    logger.log(Level.FINE, "Derived application {0} name from git ", applicationName);
-					    return applicationName;
-				    }
+			    applicationName = getGitRepositoryState(gitRoot).applicationName;
+			    if (applicationName != null) {
+				    logger.log(Level.FINE, "Derived application {0} name from git ", applicationName);
+				    return applicationName;
 			    }
 		    }
 	    }
@@ -211,7 +360,16 @@ public class NameGenerator {
     }
 
 	private static String generateRandomApplicationName() {
-		return String.format(GENERATED_APP_NAME, UUID.randomUUID().toString());
+		// Generated once per JVM, otherwise every lookup would end up with a server of its own
+		return generatedApplicationName;
+	}
+
+	/**
+	 * @return true for the random name used when no application name could be derived, which is never used again by
+	 * another JVM
+	 */
+	static boolean isGeneratedApplicationName(String applicationName) {
+		return generatedApplicationName.equals(applicationName);
 	}
 
 	private static String getApplicationName() {
@@ -221,7 +379,7 @@ public class NameGenerator {
 	public static String generateDatabaseName() {
         File gitRoot = findGitRootInStack();
         if (gitRoot != null) {
-            return determineGitBranch(gitRoot);
+            return getGitRepositoryState(gitRoot).branch;
         }
 
         return "master";
@@ -0,0 +1,366 @@
+package foundation.stack.jdbc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads NDJSON fixtures, see {@link FixtureFormat#NDJSON}. Booleans are loaded as 1 and 0, and nested objects and
+ * arrays as their JSON text. Blank lines are skipped. Anything that is not JSON is rejected with where it was found.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class NdjsonFixtureRows implements FixtureRows {
+    // Deeper nesting than this is rejected rather than risking running out of stack checking it
+    private static final int MAX_DEPTH = 256;
+
+    private final BufferedReader reader;
+    private final List<String> columns;
+    private Map<String, String> firstObject;
+    private int lineNumber;
+
+    NdjsonFixtureRows(InputStream input) throws IOException {
+        reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        firstObject = nextObject();
+        if (firstObject == null) {
+            throw new IOException("NDJSON fixture has no rows to take column names from");
+        }
+        columns = Collections.unmodifiableList(new ArrayList<>(firstObject.keySet()));
+    }
+
+    /**
+     * Parses one line holding a JSON object.
+     */
+    private class ObjectParser {
+        private final String line;
+        private int position;
+
+        private ObjectParser(String line) {
+            this.line = line;
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " at line " + lineNumber + ", column " + (position + 1));
+        }
+
+        private void skipWhitespace() {
+            while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() throws IOException {
+            skipWhitespace();
+            if (position >= line.length()) {
+                throw error("Unexpected end of line");
+            }
+            return line.charAt(position);
+        }
+
+        private void expect(char expected) throws IOException {
+            if (peek() != expected) {
+                throw error("Expected '" + expected + "'");
+            }
+            position++;
+        }
+
+        private void expectWord(String word) throws IOException {
+            if (!line.startsWith(word, position)) {
+                throw error("Expected " + word);
+            }
+            position += word.length();
+        }
+
+        private char parseHexEscape() throws IOException {
+            if (position + 4 > line.length()) {
+                throw error("Incomplete unicode escape");
+            }
+
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(line.charAt(position), 16);
+                if (digit < 0) {
+                    throw error("Invalid unicode escape");
+                }
+                value = value * 16 + digit;
+                position++;
+            }
+            return (char) value;
+        }
+
+        private String parseString() throws IOException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= line.length()) {
+                    throw error("Unterminated string");
+                }
+
+                char character = line.charAt(position++);
+                if (character == '"') {
+                    return value.toString();
+                } else if (character != '\\') {
+                    value.append(character);
+                } else if (position >= line.length()) {
+                    throw error("Unterminated string");
+                } else {
+                    char escaped = line.charAt(position++);
+                    switch (escaped) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                            value.append(escaped);
+                            break;
+                        case 'b':
+                            value.append('\b');
+                            break;
+                        case 'f':
+                            value.append('\f');
+                            break;
+                        case 'n':
+                            value.append('\n');
+                            break;
+                        case 'r':
+                            value.append('\r');
+                            break;
+                        case 't':
+                            value.append('\t');
+                            break;
+                        case 'u':
+                            int escapeStart = position - 2;
+                            char unit = parseHexEscape();
+                            if (Character.isHighSurrogate(unit)) {
+                                // Characters outside the basic plane are escaped as a pair of UTF-16 surrogates
+                                if (!line.startsWith("\\u", position)) {
+                                    position = escapeStart;
+                                    throw error("Unpaired surrogate escape");
+                                }
+                                position += 2;
+                                char low = parseHexEscape();
+                                if (!Character.isLowSurrogate(low)) {
+                                    position = escapeStart;
+                                    throw error("Unpaired surrogate escape");
+                                }
+                                value.append(unit).append(low);
+                            } else if (Character.isLowSurrogate(unit)) {
+                                position = escapeStart;
+                                throw error("Unpaired surrogate escape");
+                            } else {
+                                value.append(unit);
+                            }
+                            break;
+                        default:
+                            position -= 2;
+                            throw error("Invalid escape");
+                    }
+                }
+            }
+        }
+
+        private boolean isDigit(int index) {
+            return index < line.length() && line.charAt(index) >= '0' && line.charAt(index) <= '9';
+        }
+
+        private void skipDigits() throws IOException {
+            if (!isDigit(position)) {
+                throw error("Expected a digit");
+            }
+            while (isDigit(position)) {
+                position++;
+            }
+        }
+
+        /**
+         * @return the text of a number, which must be as JSON has them: no leading '+' or zeros, and digits on both
+         * sides of any decimal point
+         */
+        private String parseNumber() throws IOException {
+            int start = position;
+            if (line.charAt(position) == '-') {
+                position++;
+            }
+
+            if (isDigit(position) && line.charAt(position) == '0') {
+                position++;
+                if (isDigit(position)) {
+                    throw error("Leading zero in number");
+                }
+            } else {
+                skipDigits();
+            }
+
+            if (position < line.length() && line.charAt(position) == '.') {
+                position++;
+                skipDigits();
+            }
+
+            if (position < line.length() && (line.charAt(position) == 'e' || line.charAt(position) == 'E')) {
+                position++;
+                if (position < line.length() && (line.charAt(position) == '+' || line.charAt(position) == '-')) {
+                    position++;
+                }
+                skipDigits();
+            }
+
+            return line.substring(start, position);
+        }
+
+        private void expectMore(String unterminated) throws IOException {
+            skipWhitespace();
+            if (position >= line.length()) {
+                throw error(unterminated);
+            }
+        }
+
+        /**
+         * Checks a nested object or array, at most {@link #MAX_DEPTH} deep.
+         */
+        private void skipComposite(int depth) throws IOException {
+            if (depth > MAX_DEPTH) {
+                throw error("Nested more than " + MAX_DEPTH + " deep");
+            }
+
+            boolean isObject = line.charAt(position++) == '{';
+            char end = isObject ? '}' : ']';
+            String unterminated = isObject ? "Unterminated object" : "Unterminated array";
+            expectMore(unterminated);
+            if (line.charAt(position) == end) {
+                position++;
+                return;
+            }
+
+            while (true) {
+                if (isObject) {
+                    parseString();
+                    expectMore(unterminated);
+                    expect(':');
+                }
+                expectMore(unterminated);
+                skipValue(depth);
+                expectMore(unterminated);
+                if (line.charAt(position) == ',') {
+                    position++;
+                    expectMore(unterminated);
+                } else {
+                    expect(end);
+                    return;
+                }
+            }
+        }
+
+        private void skipValue(int depth) throws IOException {
+            char first = peek();
+            if (first == '{' || first == '[') {
+                skipComposite(depth + 1);
+            } else {
+                parseValue();
+            }
+        }
+
+        private String parseValue() throws IOException {
+            char first = peek();
+            switch (first) {
+                case '"':
+                    return parseString();
+                case '{':
+                case '[':
+                    // Loaded as the JSON text it is written as
+                    int start = position;
+                    skipComposite(1);
+                    return line.substring(start, position);
+                case 't':
+                    expectWord("true");
+                    return "1";
+                case 'f':
+                    expectWord("false");
+                    return "0";
+                case 'n':
+                    expectWord("null");
+                    return null;
+                default:
+                    if (first != '-' && (first < '0' || first > '9')) {
+                        throw error("Unexpected '" + first + "'");
+                    }
+                    return parseNumber();
+            }
+        }
+
+        private Map<String, String> parseObject() throws IOException {
+            Map<String, String> object = new LinkedHashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    String key = parseString();
+                    expect(':');
+                    object.put(key, parseValue());
+                    if (peek() == ',') {
+                        position++;
+                    } else {
+                        expect('}');
+                        break;
+                    }
+                }
+            }
+
+            skipWhitespace();
+            if (position < line.length()) {
+                throw error("Unexpected text after the object");
+            }
+            return object;
+        }
+    }
+
+    private Map<String, String> nextObject() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+        } while (line != null && line.trim().isEmpty());
+
+        return line == null ? null : new ObjectParser(line).parseObject();
+    }
+
+    @Override
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String[] next() throws IOException {
+        Map<String, String> object;
+        if (firstObject != null) {
+            object = firstObject;
+            firstObject = null;
+        } else {
+            object = nextObject();
+            if (object == null) {
+                return null;
+            }
+        }
+
+        String[] row = new String[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = object.remove(columns.get(i));
+        }
+        if (!object.isEmpty()) {
+            throw new IOException("Line " + lineNumber + " has keys that are not in the first line: " +
+                    object.keySet());
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
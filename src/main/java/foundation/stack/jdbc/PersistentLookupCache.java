@@ -0,0 +1,273 @@
+package foundation.stack.jdbc;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers resolved endpoints on disk so that a new JVM can reuse the container and database the last one set up,
+ * without bootstrapping Docker or deriving everything again. Entries are only hints: whoever reads one checks that
+ * the server behind it is still there before trusting it, and removes it otherwise.
+ * <p>
+ * The file is small and read through a memory mapping in a single pass. Writers replace it atomically after merging
+ * in whatever other JVMs wrote since, so concurrent JVMs at worst lose an entry, which just means a slower start.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class PersistentLookupCache {
+    private static final Logger logger = Logger.getLogger(PersistentLookupCache.class.getName());
+
+    private static final int MAGIC = 0x53464c43; // SFLC
+    private static final int VERSION = 1;
+
+    private static final int MAXIMUM_ENTRIES = 256;
+    private static final long MAXIMUM_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final long REFRESH_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    interface EndpointsCheck {
+        void check(ConnectionEndpoints endpoints) throws SQLException;
+    }
+
+    private static class Entry {
+        private final ConnectionEndpoints endpoints;
+        private final long savedAt;
+
+        private Entry(ConnectionEndpoints endpoints, long savedAt) {
+            this.endpoints = endpoints;
+            this.savedAt = savedAt;
+        }
+    }
+
+    private final Path file;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<String, Entry> entries;
+
+    PersistentLookupCache(Path file) {
+        this.file = file;
+    }
+
+    static Path getDefaultFile() {
+        return Paths.get(System.getProperty("user.home"), ".stackfoundation", "lookups.cache");
+    }
+
+    static String composeKey(String applicationName, String branchName, String query) {
+        return applicationName + '\n' + (branchName == null ? "" : branchName) + '\n' + query;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private Map<String, Entry> readFile() {
+        Map<String, Entry> read = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.log(Level.FINE, "Ignoring lookup cache {0} written in an unknown format", file);
+                return read;
+            }
+
+            long oldest = System.currentTimeMillis() - MAXIMUM_AGE_MILLIS;
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                long savedAt = buffer.getLong();
+                String primary = readString(buffer);
+                int replicaCount = buffer.getInt();
+                List<String> replicas = new ArrayList<>(replicaCount);
+                for (int replica = 0; replica < replicaCount; replica++) {
+                    replicas.add(readString(buffer));
+                }
+
+                if (savedAt > oldest) {
+                    read.put(key, new Entry(new ConnectionEndpoints(primary, replicas), savedAt));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing saved yet
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.log(Level.FINE, "Ignoring unreadable lookup cache " + file, e);
+        }
+
+        return read;
+    }
+
+    private void writeFile(Map<String, Entry> toWrite) throws IOException {
+        List<Map.Entry<String, Entry>> newestFirst = new ArrayList<>(toWrite.entrySet());
+        newestFirst.sort(Comparator.comparingLong((Map.Entry<String, Entry> entry) -> entry.getValue().savedAt)
+                .reversed());
+        if (newestFirst.size() > MAXIMUM_ENTRIES) {
+            newestFirst = newestFirst.subList(0, MAXIMUM_ENTRIES);
+        }
+
+        List<byte[][]> encoded = new ArrayList<>(newestFirst.size());
+        int size = 12;
+        for (Map.Entry<String, Entry> entry : newestFirst) {
+            List<String> replicas = entry.getValue().endpoints.getReplicas();
+            byte[][] strings = new byte[2 + replicas.size()][];
+            strings[0] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            strings[1] = entry.getValue().endpoints.getPrimary().getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < replicas.size(); i++) {
+                strings[2 + i] = replicas.get(i).getBytes(StandardCharsets.UTF_8);
+            }
+            encoded.add(strings);
+
+            size += 8 + 4 + 4 * strings.length;
+            for (byte[] string : strings) {
+                size += string.length;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(encoded.size());
+        for (int i = 0; i < encoded.size(); i++) {
+            byte[][] strings = encoded.get(i);
+            writeString(buffer, strings[0]);
+            buffer.putLong(newestFirst.get(i).getValue().savedAt);
+            writeString(buffer, strings[1]);
+            buffer.putInt(strings.length - 2);
+            for (int replica = 2; replica < strings.length; replica++) {
+                writeString(buffer, strings[replica]);
+            }
+        }
+        buffer.flip();
+
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            // Connection strings carry passwords
+            try {
+                Files.setPosixFilePermissions(temporary, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system
+            }
+
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Map<String, Entry> getEntries() {
+        if (entries == null) {
+            entries = readFile();
+        }
+        return entries;
+    }
+
+    ConnectionEndpoints get(String key) {
+        lock.lock();
+        try {
+            Entry entry = getEntries().get(key);
+            return entry == null ? null : entry.endpoints;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the endpoints saved under a key if they pass a check, such as connecting to them; ones that fail it are
+     * removed
+     */
+    ConnectionEndpoints getChecked(String key, EndpointsCheck check) {
+        ConnectionEndpoints endpoints = get(key);
+        if (endpoints == null) {
+            return null;
+        }
+
+        // Outside the lock, since a check may take as long as a connect timeout
+        try {
+            check.check(endpoints);
+            return endpoints;
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Saved endpoints are no longer reachable, looking them up again", e);
+            remove(key);
+            return null;
+        }
+    }
+
+    private void update(String key, Entry entry) {
+        Map<String, Entry> merged = readFile();
+        if (entry == null) {
+            merged.remove(key);
+        } else {
+            merged.put(key, entry);
+        }
+
+        try {
+            writeFile(merged);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Unable to save lookup cache " + file, e);
+        }
+        entries = merged;
+    }
+
+    void put(String key, ConnectionEndpoints endpoints) {
+        lock.lock();
+        try {
+            Entry existing = getEntries().get(key);
+            long now = System.currentTimeMillis();
+            if (existing == null || now - existing.savedAt > REFRESH_AGE_MILLIS ||
+                    !existing.endpoints.getPrimary().equals(endpoints.getPrimary()) ||
+                    !existing.endpoints.getReplicas().equals(endpoints.getReplicas())) {
+                update(key, new Entry(endpoints, now));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(String key) {
+        lock.lock();
+        try {
+            if (getEntries().containsKey(key)) {
+                update(key, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
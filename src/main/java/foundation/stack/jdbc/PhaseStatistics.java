@@ -0,0 +1,50 @@
+package foundation.stack.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the latencies recorded for one {@link ConnectPhase}, in milliseconds.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class PhaseStatistics {
+    private final String phase;
+    private final long count;
+    private final double meanMillis;
+    private final double medianMillis;
+    private final double percentile99Millis;
+    private final double maximumMillis;
+
+    PhaseStatistics(String phase, LatencyHistogram histogram) {
+        this.phase = phase;
+        this.count = histogram.getCount();
+        this.meanMillis = histogram.getMean(TimeUnit.MILLISECONDS);
+        this.medianMillis = histogram.getPercentile(50, TimeUnit.MILLISECONDS);
+        this.percentile99Millis = histogram.getPercentile(99, TimeUnit.MILLISECONDS);
+        this.maximumMillis = histogram.getMaximum(TimeUnit.MICROSECONDS) / 1000.0;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getMedianMillis() {
+        return medianMillis;
+    }
+
+    public double getPercentile99Millis() {
+        return percentile99Millis;
+    }
+
+    public double getMaximumMillis() {
+        return maximumMillis;
+    }
+}
@@ -0,0 +1,297 @@
+package foundation.stack.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A connection borrowed from a {@link ConnectionPool}. Closing it returns the underlying connection to the pool instead
+ * of closing it; any use after that fails rather than touching a connection that may already belong to someone else.
+ * Statements report this connection rather than the underlying one, so closing {@code statement.getConnection()} also
+ * returns it, and statements left open are closed when it is returned.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class PooledConnection extends DelegatingConnection {
+    private static final Logger logger = Logger.getLogger(PooledConnection.class.getName());
+
+    private static final Connection RETURNED_CONNECTION = (Connection) Proxy.newProxyInstance(
+            PooledConnection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, arguments) -> {
+                switch (method.getName()) {
+                    case "isClosed":
+                        return true;
+                    case "isValid":
+                        return false;
+                    case "close":
+                        return null;
+                    case "toString":
+                        return "Connection returned to pool";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == arguments[0];
+                    default:
+                        throw new SQLNonTransientConnectionException("Connection has already been returned to the pool");
+                }
+            });
+
+    private class PooledResultSet extends DelegatingResultSet {
+        private final Statement statement;
+
+        private PooledResultSet(Statement statement, ResultSet delegate) {
+            super(delegate);
+            this.statement = statement;
+        }
+
+        @Override
+        public Statement getStatement() throws SQLException {
+            return statement;
+        }
+    }
+
+    private class PooledStatement extends DelegatingStatement {
+        private PooledStatement(Statement delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return PooledConnection.this;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            openStatements.remove(this);
+            delegate.close();
+        }
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            return wrap(this, delegate.executeQuery(sql));
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return wrap(this, delegate.getResultSet());
+        }
+
+        @Override
+        public ResultSet getGeneratedKeys() throws SQLException {
+            return wrap(this, delegate.getGeneratedKeys());
+        }
+    }
+
+    private class PooledPreparedStatement extends DelegatingPreparedStatement {
+        private PooledPreparedStatement(PreparedStatement delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return PooledConnection.this;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            openStatements.remove(this);
+            preparedDelegate.close();
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            return wrap(this, preparedDelegate.executeQuery());
+        }
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            return wrap(this, preparedDelegate.executeQuery(sql));
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return wrap(this, preparedDelegate.getResultSet());
+        }
+
+        @Override
+        public ResultSet getGeneratedKeys() throws SQLException {
+            return wrap(this, preparedDelegate.getGeneratedKeys());
+        }
+    }
+
+    private class PooledCallableStatement extends DelegatingCallableStatement {
+        private PooledCallableStatement(CallableStatement delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return PooledConnection.this;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            openStatements.remove(this);
+            callableDelegate.close();
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            return wrap(this, callableDelegate.executeQuery());
+        }
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            return wrap(this, callableDelegate.executeQuery(sql));
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return wrap(this, callableDelegate.getResultSet());
+        }
+
+        @Override
+        public ResultSet getGeneratedKeys() throws SQLException {
+            return wrap(this, callableDelegate.getGeneratedKeys());
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final Connection physicalConnection;
+    private final AtomicBoolean returned = new AtomicBoolean();
+    private final Set<Statement> openStatements = ConcurrentHashMap.newKeySet();
+
+    PooledConnection(ConnectionPool pool, Connection physicalConnection) {
+        super(physicalConnection);
+        this.pool = pool;
+        this.physicalConnection = physicalConnection;
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    private ResultSet wrap(Statement statement, ResultSet resultSet) {
+        return resultSet == null ? null : new PooledResultSet(statement, resultSet);
+    }
+
+    private <T extends Statement> T track(T statement) {
+        openStatements.add(statement);
+        return statement;
+    }
+
+    private void closeOpenStatements() {
+        for (Statement statement : openStatements) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Error closing statement left open on a connection returned to the pool", e);
+            }
+        }
+        openStatements.clear();
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return track(new PooledStatement(delegate.createStatement()));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return track(new PooledStatement(delegate.createStatement(resultSetType, resultSetConcurrency)));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+            throws SQLException {
+        return track(new PooledStatement(
+                delegate.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability)));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return track(new PooledCallableStatement(delegate.prepareCall(sql)));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return track(new PooledCallableStatement(delegate.prepareCall(sql, resultSetType, resultSetConcurrency)));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+                                         int resultSetHoldability) throws SQLException {
+        return track(new PooledCallableStatement(
+                delegate.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return track(new PooledPreparedStatement(delegate.prepareStatement(sql)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return track(new PooledPreparedStatement(delegate.prepareStatement(sql, columnIndexes)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return track(new PooledPreparedStatement(delegate.prepareStatement(sql, columnNames)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return track(new PooledPreparedStatement(delegate.prepareStatement(sql, autoGeneratedKeys)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        return track(new PooledPreparedStatement(
+                delegate.prepareStatement(sql, resultSetType, resultSetConcurrency)));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                              int resultSetHoldability) throws SQLException {
+        return track(new PooledPreparedStatement(
+                delegate.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability)));
+    }
+
+    @Override
+    public void close() throws SQLException {
+        // Only the first of any number of concurrent closes gives the connection back, releasing its permit once
+        if (returned.compareAndSet(false, true)) {
+            // Closed before the connection goes back, as the next borrower must not share them
+            closeOpenStatements();
+            delegate = RETURNED_CONNECTION;
+            pool.release(physicalConnection);
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        if (returned.compareAndSet(false, true)) {
+            // Aborting the connection closes its statements without waiting on the server
+            openStatements.clear();
+            delegate = RETURNED_CONNECTION;
+            try {
+                physicalConnection.abort(executor);
+            } finally {
+                pool.discard(physicalConnection);
+            }
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package foundation.stack.jdbc;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A connection to the primary that moves over to a replica while it is read-only. The switch only happens outside of
+ * a transaction (i.e. in auto-commit mode), which is when frameworks normally call {@link #setReadOnly(boolean)}; the
+ * replica connection is opened the first time it is needed and kept until this connection is closed.
+ * <p>
+ * Session settings (catalog, schema, transaction isolation, auto-commit and client info) made on either connection are
+ * made on the other before it is used again. Statements report this connection rather than the one they run on, and a
+ * query that fails because the replica's connection broke ejects the replica and moves back to the primary.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class ReadWriteSplittingConnection extends DelegatingConnection {
+    private static final Logger logger = Logger.getLogger(ReadWriteSplittingConnection.class.getName());
+
+    // SQL state class for a connection that could not be established or was lost
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    private interface SessionSetting {
+        void applyTo(Connection connection) throws SQLException;
+    }
+
+    private class SplitResultSet extends DelegatingResultSet {
+        private final Statement statement;
+
+        private SplitResultSet(Statement statement, ResultSet delegate) {
+            super(delegate);
+            this.statement = statement;
+        }
+
+        @Override
+        public Statement getStatement() throws SQLException {
+            return statement;
+        }
+    }
+
+    private class SplitStatement extends DelegatingStatement {
+        private final Connection connection;
+
+        private SplitStatement(Connection connection, Statement delegate) {
+            super(delegate);
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return ReadWriteSplittingConnection.this;
+        }
+
+        @Override
+        public boolean execute(String sql) throws SQLException {
+            try {
+                return delegate.execute(sql);
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            try {
+                return wrap(this, delegate.executeQuery(sql));
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return wrap(this, delegate.getResultSet());
+        }
+
+        @Override
+        public ResultSet getGeneratedKeys() throws SQLException {
+            return wrap(this, delegate.getGeneratedKeys());
+        }
+    }
+
+    private class SplitPreparedStatement extends DelegatingPreparedStatement {
+        private final Connection connection;
+
+        private SplitPreparedStatement(Connection connection, PreparedStatement delegate) {
+            super(delegate);
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return ReadWriteSplittingConnection.this;
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            try {
+                return preparedDelegate.execute();
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            try {
+                return wrap(this, preparedDelegate.executeQuery());
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public boolean execute(String sql) throws SQLException {
+            try {
+                return preparedDelegate.execute(sql);
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            try {
+                return wrap(this, preparedDelegate.executeQuery(sql));
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return wrap(this, preparedDelegate.getResultSet());
+        }
+
+        @Override
+        public ResultSet getGeneratedKeys() throws SQLException {
+            return wrap(this, preparedDelegate.getGeneratedKeys());
+        }
+    }
+
+    private class SplitCallableStatement extends DelegatingCallableStatement {
+        private final Connection connection;
+
+        private SplitCallableStatement(Connection connection, CallableStatement delegate) {
+            super(delegate);
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return ReadWriteSplittingConnection.this;
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            try {
+                return callableDelegate.execute();
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            try {
+                return wrap(this, callableDelegate.executeQuery());
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public boolean execute(String sql) throws SQLException {
+            try {
+                return callableDelegate.execute(sql);
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            try {
+                return wrap(this, callableDelegate.executeQuery(sql));
+            } catch (SQLException e) {
+                throw failed(connection, e);
+            }
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return wrap(this, callableDelegate.getResultSet());
+        }
+
+        @Override
+        public ResultSet getGeneratedKeys() throws SQLException {
+            return wrap(this, callableDelegate.getGeneratedKeys());
+        }
+    }
+
+    private final Connection primary;
+    private final ConnectionLookupResult lookupResult;
+    private final Properties info;
+    private Connection replica;
+
+    // Every session setting made through this connection, by name with the latest last, and the names of those that
+    // the primary or the replica has not been given yet because it was not in use
+    private final Map<String, SessionSetting> sessionSettings = new LinkedHashMap<>();
+    private final Set<String> pendingOnPrimary = new HashSet<>();
+    private final Set<String> pendingOnReplica = new HashSet<>();
+
+    ReadWriteSplittingConnection(Connection primary, ConnectionLookupResult lookupResult, Properties info) {
+        super(primary);
+        this.primary = primary;
+        this.lookupResult = lookupResult;
+        this.info = info;
+    }
+
+    boolean isUsingReplica() {
+        return delegate != primary;
+    }
+
+    private ResultSet wrap(Statement statement, ResultSet resultSet) {
+        return resultSet == null ? null : new SplitResultSet(statement, resultSet);
+    }
+
+    private static boolean isBroken(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith(CONNECTION_EXCEPTION_CLASS);
+    }
+
+    /**
+     * Ejects the replica if a statement on it failed because its connection broke, so that reads go to the primary
+     * until the next switch to a (different) replica.
+     *
+     * @return the failure, to be thrown
+     */
+    private SQLException failed(Connection connection, SQLException e) {
+        if (connection != replica || !isBroken(e)) {
+            return e;
+        }
+
+        lookupResult.ejectReplica(connection, e);
+        replica = null;
+        try {
+            connection.close();
+        } catch (SQLException closeError) {
+            logger.log(Level.FINE, "Error closing broken replica connection", closeError);
+        }
+
+        if (delegate == connection) {
+            delegate = primary;
+            try {
+                replaySessionSettings(primary, pendingOnPrimary, false);
+                primary.setReadOnly(true);
+            } catch (SQLException primaryError) {
+                e.addSuppressed(primaryError);
+            }
+        }
+        return e;
+    }
+
+    private Connection getOrOpenReplica() throws SQLException {
+        if (replica == null || replica.isClosed()) {
+            replica = lookupResult.connectToReplica(info);
+            if (replica != null) {
+                // A new connection has none of the settings made so far
+                replaySessionSettings(replica, pendingOnReplica, true);
+            }
+        }
+
+        return replica;
+    }
+
+    private void replaySessionSettings(Connection connection, Set<String> pending, boolean all) throws SQLException {
+        for (Map.Entry<String, SessionSetting> setting : sessionSettings.entrySet()) {
+            if (all || pending.contains(setting.getKey())) {
+                setting.getValue().applyTo(connection);
+            }
+        }
+        pending.clear();
+    }
+
+    private void setSessionSetting(String name, SessionSetting setting) throws SQLException {
+        setting.applyTo(delegate);
+        sessionSettings.remove(name);
+        sessionSettings.put(name, setting);
+        (isUsingReplica() ? pendingOnPrimary : pendingOnReplica).add(name);
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        if (readOnly && !isUsingReplica() && primary.getAutoCommit()) {
+            Connection replicaConnection = getOrOpenReplica();
+            if (replicaConnection != null) {
+                replaySessionSettings(replicaConnection, pendingOnReplica, false);
+                if (!replicaConnection.getAutoCommit()) {
+                    replicaConnection.setAutoCommit(true);
+                }
+                replicaConnection.setReadOnly(true);
+                delegate = replicaConnection;
+                return;
+            }
+
+            logger.log(Level.FINE, "No replica available for {0}, staying on the primary",
+                    lookupResult.getConnectionString());
+        } else if (!readOnly && isUsingReplica()) {
+            delegate = primary;
+            replaySessionSettings(primary, pendingOnPrimary, false);
+            return;
+        }
+
+        delegate.setReadOnly(readOnly);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        setSessionSetting("autoCommit", connection -> connection.setAutoCommit(autoCommit));
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        setSessionSetting("catalog", connection -> connection.setCatalog(catalog));
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        setSessionSetting("schema", connection -> connection.setSchema(schema));
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        setSessionSetting("transactionIsolation", connection -> connection.setTransactionIsolation(level));
+    }
+
+    private static SQLClientInfoException toClientInfoException(SQLException e) {
+        return e instanceof SQLClientInfoException ? (SQLClientInfoException) e :
+                new SQLClientInfoException(e.getMessage(), e.getSQLState(), e.getErrorCode(), null, e);
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        try {
+            setSessionSetting("clientInfo." + name, connection -> connection.setClientInfo(name, value));
+        } catch (SQLException e) {
+            throw toClientInfoException(e);
+        }
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        Properties clientInfo = new Properties();
+        clientInfo.putAll(properties);
+        try {
+            // Replaces every client info property, including those set one at a time before
+            sessionSettings.keySet().removeIf(name -> name.startsWith("clientInfo."));
+            setSessionSetting("clientInfo", connection -> connection.setClientInfo(clientInfo));
+        } catch (SQLException e) {
+            throw toClientInfoException(e);
+        }
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return new SplitStatement(delegate, delegate.createStatement());
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new SplitStatement(delegate, delegate.createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+            throws SQLException {
+        return new SplitStatement(delegate,
+                delegate.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return new SplitCallableStatement(delegate, delegate.prepareCall(sql));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new SplitCallableStatement(delegate, delegate.prepareCall(sql, resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+                                         int resultSetHoldability) throws SQLException {
+        return new SplitCallableStatement(delegate,
+                delegate.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new SplitPreparedStatement(delegate, delegate.prepareStatement(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return new SplitPreparedStatement(delegate, delegate.prepareStatement(sql, columnIndexes));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return new SplitPreparedStatement(delegate, delegate.prepareStatement(sql, columnNames));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return new SplitPreparedStatement(delegate, delegate.prepareStatement(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        return new SplitPreparedStatement(delegate,
+                delegate.prepareStatement(sql, resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                              int resultSetHoldability) throws SQLException {
+        return new SplitPreparedStatement(delegate,
+                delegate.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    /**
+     * @return whether the connection in use is closed; a closed replica that is not in use is simply reopened the next
+     * time the connection is made read-only
+     */
+    @Override
+    public boolean isClosed() throws SQLException {
+        return primary.isClosed() || isUsingReplica() && delegate.isClosed();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        delegate = primary;
+        try {
+            if (replica != null) {
+                replica.close();
+            }
+        } finally {
+            primary.close();
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        delegate = primary;
+        try {
+            if (replica != null) {
+                replica.abort(executor);
+            }
+        } finally {
+            primary.abort(executor);
+        }
+    }
+}
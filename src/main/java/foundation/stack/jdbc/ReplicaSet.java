@@ -0,0 +1,222 @@
+package foundation.stack.jdbc;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Spreads read-only connections across the replicas of a database. A replica that cannot be connected to is ejected
+ * for a while, and connections go to the remaining ones until it is given another chance.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class ReplicaSet {
+    private static final Logger logger = Logger.getLogger(ReplicaSet.class.getName());
+
+    private static final String BALANCING_PROPERTY = "sf.replica.balancing";
+    private static final String ROUND_ROBIN = "roundRobin";
+    private static final String LEAST_OUTSTANDING = "leastOutstanding";
+
+    private static final String EJECTION_TIME_PROPERTY = "sf.replica.ejectionTime";
+    private static final long DEFAULT_EJECTION_TIME = 30000;
+
+    // So that an unknown balancing is only reported once, rather than for every lookup with replicas
+    private static final Set<String> reportedBalancings = ConcurrentHashMap.newKeySet();
+
+    enum Balancing {
+        ROUND_ROBIN,
+        LEAST_OUTSTANDING
+    }
+
+    private static class Replica {
+        private final String connectionString;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile Driver driver;
+        private volatile boolean ejected;
+        private volatile long ejectedUntil;
+
+        private Replica(String connectionString) {
+            this.connectionString = connectionString;
+        }
+
+        private boolean isAvailable(long now) {
+            return !ejected || now - ejectedUntil >= 0;
+        }
+
+        private Connection connect(Properties info) throws SQLException {
+            Driver resolvedDriver = driver;
+            if (resolvedDriver == null) {
+                resolvedDriver = DriverManager.getDriver(connectionString);
+                driver = resolvedDriver;
+            }
+
+            Connection connection = resolvedDriver.connect(connectionString, info);
+            if (connection == null) {
+                throw new SQLException("Driver " + resolvedDriver.getClass().getName() + " does not accept " +
+                        connectionString);
+            }
+
+            return connection;
+        }
+    }
+
+    /**
+     * Keeps the replica's count of outstanding connections up to date.
+     */
+    private static class ReplicaConnection extends DelegatingConnection {
+        private final Replica replica;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReplicaConnection(Connection delegate, Replica replica) {
+            super(delegate);
+            this.replica = replica;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                replica.outstanding.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                delegate.close();
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        public void abort(Executor executor) throws SQLException {
+            try {
+                delegate.abort(executor);
+            } finally {
+                release();
+            }
+        }
+    }
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Balancing balancing;
+    private final long ejectionNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaSet(List<String> connectionStrings, Balancing balancing, long ejectionTime, TimeUnit unit) {
+        for (String connectionString : connectionStrings) {
+            replicas.add(new Replica(connectionString));
+        }
+        this.balancing = balancing;
+        this.ejectionNanos = unit.toNanos(ejectionTime);
+    }
+
+    static ReplicaSet fromSystemProperties(List<String> connectionStrings) {
+        return new ReplicaSet(connectionStrings, balancingFromSystemProperties(),
+                Long.getLong(EJECTION_TIME_PROPERTY, DEFAULT_EJECTION_TIME), TimeUnit.MILLISECONDS);
+    }
+
+    private static Balancing balancingFromSystemProperties() {
+        String balancing = System.getProperty(BALANCING_PROPERTY, ROUND_ROBIN).trim();
+        if (LEAST_OUTSTANDING.equalsIgnoreCase(balancing)) {
+            return Balancing.LEAST_OUTSTANDING;
+        }
+
+        if (!ROUND_ROBIN.equalsIgnoreCase(balancing) && reportedBalancings.add(balancing)) {
+            logger.log(Level.WARNING, "Unknown {0} {1}, expected {2} or {3}; using {2}", new Object[]{
+                    BALANCING_PROPERTY, balancing, ROUND_ROBIN, LEAST_OUTSTANDING});
+        }
+
+        return Balancing.ROUND_ROBIN;
+    }
+
+    private List<Replica> candidates() {
+        long now = System.nanoTime();
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+
+        List<Replica> candidates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isAvailable(now)) {
+                candidates.add(replica);
+            }
+        }
+
+        if (balancing == Balancing.LEAST_OUTSTANDING) {
+            // Stable, so replicas with the same load are still taken in round robin order
+            candidates.sort(Comparator.comparingInt(replica -> replica.outstanding.get()));
+        }
+
+        return candidates;
+    }
+
+    private void eject(Replica replica, SQLException cause) {
+        replica.ejectedUntil = System.nanoTime() + ejectionNanos;
+        replica.ejected = true;
+        logger.log(Level.WARNING, "Ejecting replica {0} for {1}ms: {2}", new Object[]{replica.connectionString,
+                String.valueOf(TimeUnit.NANOSECONDS.toMillis(ejectionNanos)), cause.getMessage()});
+    }
+
+    /**
+     * Ejects the replica a connection from {@link #connect(Properties)} is to.
+     */
+    void eject(Connection connection, SQLException cause) {
+        if (connection instanceof ReplicaConnection) {
+            eject(((ReplicaConnection) connection).replica, cause);
+        }
+    }
+
+    /**
+     * @return a connection to one of the available replicas, or null if none of them could be connected to
+     */
+    Connection connect(Properties info) {
+        for (Replica replica : candidates()) {
+            replica.outstanding.incrementAndGet();
+            try {
+                Connection connection = replica.connect(info);
+                replica.ejected = false;
+                return new ReplicaConnection(connection, replica);
+            } catch (SQLException e) {
+                replica.outstanding.decrementAndGet();
+                eject(replica, e);
+            }
+        }
+
+        return null;
+    }
+
+    List<String> getConnectionStrings() {
+        List<String> connectionStrings = new ArrayList<>();
+        for (Replica replica : replicas) {
+            connectionStrings.add(replica.connectionString);
+        }
+
+        return Collections.unmodifiableList(connectionStrings);
+    }
+
+    int getAvailableReplicaCount() {
+        long now = System.nanoTime();
+        int available = 0;
+        for (Replica replica : replicas) {
+            if (replica.isAvailable(now)) {
+                available++;
+            }
+        }
+
+        return available;
+    }
+}
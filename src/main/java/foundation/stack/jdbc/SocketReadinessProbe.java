@@ -0,0 +1,22 @@
+package foundation.stack.jdbc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Considers the server ready as soon as its port accepts TCP connections. This is cheap, but the port of a MySQL server
+ * opens before crash recovery has finished, so prefer {@link MySqlReadinessProbe} for anything that runs statements.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class SocketReadinessProbe implements DatabaseServerReadinessProbe {
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    @Override
+    public void probe(String host, int port, String connectionString) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+        }
+    }
+}
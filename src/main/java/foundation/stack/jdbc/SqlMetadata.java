@@ -0,0 +1,128 @@
+package foundation.stack.jdbc;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * What the driver works out from the text of a statement: its normalized form and how many parameters it takes. An
+ * application prepares the same few hundred statements over and over, on every connection, so this is worked out
+ * once per distinct text and shared by all connections, up to {@value #DEFAULT_MAXIMUM_STATEMENTS} texts by default
+ * ({@value #MAXIMUM_STATEMENTS_PROPERTY}).
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+final class SqlMetadata {
+    private static final String MAXIMUM_STATEMENTS_PROPERTY = "sf.sqlMetadata.maximumStatements";
+    private static final int DEFAULT_MAXIMUM_STATEMENTS = 2000;
+
+    private static final int maximumStatements = Integer.getInteger(MAXIMUM_STATEMENTS_PROPERTY,
+            DEFAULT_MAXIMUM_STATEMENTS);
+
+    // Once full, anything else is worked out on every prepare rather than evicting statements that are in use; an
+    // application that keeps generating new statement texts would otherwise just churn it
+    private static final ConcurrentMap<String, SqlMetadata> internedStatements = new ConcurrentHashMap<>();
+
+    private final String sql;
+    private final String normalizedSql;
+    private final int parameterCount;
+
+    private SqlMetadata(String sql) {
+        this.sql = sql;
+        this.normalizedSql = StatementTracer.normalize(sql);
+        this.parameterCount = countParameters(sql);
+    }
+
+    static SqlMetadata of(String sql) {
+        SqlMetadata metadata = internedStatements.get(sql);
+        if (metadata != null) {
+            return metadata;
+        }
+
+        metadata = new SqlMetadata(sql);
+        if (internedStatements.size() < maximumStatements) {
+            SqlMetadata interned = internedStatements.putIfAbsent(sql, metadata);
+            if (interned != null) {
+                return interned;
+            }
+        }
+
+        return metadata;
+    }
+
+    static int getInternedCount() {
+        return internedStatements.size();
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char character = sql.charAt(i++);
+            if (character == '\\' && quote != '`') {
+                i++;
+            } else if (character == quote) {
+                if (i < sql.length() && sql.charAt(i) == quote) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        return i;
+    }
+
+    /**
+     * Counts the {@code ?} placeholders that are not inside quotes or comments.
+     */
+    static int countParameters(String sql) {
+        int count = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char character = sql.charAt(i);
+            if (character == '\'' || character == '"' || character == '`') {
+                i = skipQuoted(sql, i, character);
+            } else if (character == '#' || (character == '-' && sql.startsWith("--", i))) {
+                int lineEnd = sql.indexOf('\n', i);
+                i = lineEnd < 0 ? length : lineEnd + 1;
+            } else if (character == '/' && sql.startsWith("/*", i)) {
+                int commentEnd = sql.indexOf("*/", i + 2);
+                i = commentEnd < 0 ? length : commentEnd + 2;
+            } else {
+                if (character == '?') {
+                    count++;
+                }
+                i++;
+            }
+        }
+
+        return count;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    String getNormalizedSql() {
+        return normalizedSql;
+    }
+
+    int getParameterCount() {
+        return parameterCount;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof SqlMetadata && sql.equals(((SqlMetadata) other).sql));
+    }
+
+    @Override
+    public int hashCode() {
+        return sql.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return normalizedSql;
+    }
+}
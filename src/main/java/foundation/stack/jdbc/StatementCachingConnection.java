@@ -0,0 +1,267 @@
+package foundation.stack.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A physical connection that keeps prepared statements once they are closed, up to the number given by the
+ * {@value #SIZE_PROPERTY} option with the least recently used going first, and hands them out again when the same SQL
+ * is prepared. Once an application has warmed up, preparing costs nothing whatever driver the connection is to. Pooled
+ * connections keep their cache while they are in the pool.
+ * <p>
+ * Only statements prepared with the SQL alone, with auto-generated keys on or off, or with a result set type,
+ * concurrency and holdability are cached. A statement that is in use is not in the cache, so two users of the same
+ * SQL on one connection each get their own.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class StatementCachingConnection extends DelegatingConnection {
+    private static final Logger logger = Logger.getLogger(StatementCachingConnection.class.getName());
+
+    /**
+     * Connection option that turns on caching with the number of statements to keep per physical connection. Its
+     * default comes from the {@value #DEFAULT_SIZE_PROPERTY} system property, which is 0 (off) unless set.
+     */
+    static final String SIZE_PROPERTY = "statementCache.size";
+    private static final String DEFAULT_SIZE_PROPERTY = "sf.statementCache.size";
+
+    // Stands in for the holdability of statements prepared without one, i.e. with the default of the driver
+    private static final int DEFAULT_HOLDABILITY = 0;
+
+    static final class StatementKey {
+        private final SqlMetadata metadata;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int resultSetHoldability;
+        private final int autoGeneratedKeys;
+
+        StatementKey(SqlMetadata metadata, int resultSetType, int resultSetConcurrency, int resultSetHoldability,
+                     int autoGeneratedKeys) {
+            this.metadata = metadata;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.resultSetHoldability = resultSetHoldability;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof StatementKey)) {
+                return false;
+            }
+
+            StatementKey key = (StatementKey) other;
+            return resultSetType == key.resultSetType && resultSetConcurrency == key.resultSetConcurrency &&
+                    resultSetHoldability == key.resultSetHoldability && autoGeneratedKeys == key.autoGeneratedKeys &&
+                    metadata.equals(key.metadata);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = metadata.hashCode();
+            hash = 31 * hash + resultSetType;
+            hash = 31 * hash + resultSetConcurrency;
+            hash = 31 * hash + resultSetHoldability;
+            return 31 * hash + autoGeneratedKeys;
+        }
+    }
+
+    private interface Preparer {
+        PreparedStatement prepare() throws SQLException;
+    }
+
+    private final int maximumSize;
+
+    // Closing statements can mean talking to the server, which is done after unlocking
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<StatementKey, PreparedStatement> cachedStatements =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed;
+
+    private StatementCachingConnection(Connection delegate, int maximumSize) {
+        super(delegate);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return the size given by the {@value #SIZE_PROPERTY} option, which is removed from the properties
+     */
+    static int removeSizeProperty(Properties properties) throws SQLException {
+        Object size = properties.remove(SIZE_PROPERTY);
+        if (size == null) {
+            return Integer.getInteger(DEFAULT_SIZE_PROPERTY, 0);
+        }
+
+        try {
+            return Integer.parseInt(String.valueOf(size).trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Invalid value '" + size + "' for " + SIZE_PROPERTY, e);
+        }
+    }
+
+    static Connection wrap(Connection connection, int maximumSize) {
+        return maximumSize > 0 ? new StatementCachingConnection(connection, maximumSize) : connection;
+    }
+
+    int getCachedStatementCount() {
+        lock.lock();
+        try {
+            return cachedStatements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PreparedStatement prepare(StatementKey key, Preparer preparer) throws SQLException {
+        PreparedStatement statement;
+        lock.lock();
+        try {
+            statement = cachedStatements.remove(key);
+        } finally {
+            lock.unlock();
+        }
+
+        if (statement != null) {
+            DriverMetrics.getMetrics().statementCacheHit();
+        } else {
+            DriverMetrics.getMetrics().statementCacheMiss();
+            statement = preparer.prepare();
+        }
+
+        return new CachedPreparedStatement(this, key, statement);
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Error closing cached statement", e);
+        }
+    }
+
+    private static void resetStatement(StatementKey key, PreparedStatement statement, boolean batched)
+            throws SQLException {
+        ResultSet resultSet = statement.getResultSet();
+        if (resultSet != null) {
+            resultSet.close();
+        }
+        if (key.metadata.getParameterCount() > 0) {
+            statement.clearParameters();
+        }
+        if (batched) {
+            statement.clearBatch();
+        }
+        statement.clearWarnings();
+    }
+
+    /**
+     * Puts a statement a {@link CachedPreparedStatement} was closed with back in the cache, or closes it if it should
+     * not be used again.
+     */
+    void release(StatementKey key, PreparedStatement statement, boolean batched, boolean reconfigured) {
+        if (reconfigured) {
+            closeQuietly(statement);
+            return;
+        }
+
+        try {
+            resetStatement(key, statement, batched);
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Error resetting statement, closing it instead of caching it", e);
+            closeQuietly(statement);
+            return;
+        }
+
+        PreparedStatement evicted = null;
+        lock.lock();
+        try {
+            if (closed || cachedStatements.containsKey(key)) {
+                evicted = statement;
+            } else {
+                cachedStatements.put(key, statement);
+                if (cachedStatements.size() > maximumSize) {
+                    Iterator<PreparedStatement> leastRecentlyUsed = cachedStatements.values().iterator();
+                    evicted = leastRecentlyUsed.next();
+                    leastRecentlyUsed.remove();
+                    DriverMetrics.getMetrics().statementCacheEviction();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (evicted != null) {
+            closeQuietly(evicted);
+        }
+    }
+
+    private List<PreparedStatement> removeAll() {
+        lock.lock();
+        try {
+            closed = true;
+            List<PreparedStatement> statements = new ArrayList<>(cachedStatements.values());
+            cachedStatements.clear();
+            return statements;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement statement : removeAll()) {
+            closeQuietly(statement);
+        }
+        delegate.close();
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        // Aborting closes the statements along with the connection, without waiting on the server
+        removeAll();
+        delegate.abort(executor);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return prepare(new StatementKey(SqlMetadata.of(sql), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY,
+                DEFAULT_HOLDABILITY, Statement.NO_GENERATED_KEYS), () -> delegate.prepareStatement(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return prepare(new StatementKey(SqlMetadata.of(sql), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY,
+                DEFAULT_HOLDABILITY, autoGeneratedKeys), () -> delegate.prepareStatement(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        return prepare(new StatementKey(SqlMetadata.of(sql), resultSetType, resultSetConcurrency, DEFAULT_HOLDABILITY,
+                        Statement.NO_GENERATED_KEYS),
+                () -> delegate.prepareStatement(sql, resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                              int resultSetHoldability) throws SQLException {
+        return prepare(new StatementKey(SqlMetadata.of(sql), resultSetType, resultSetConcurrency, resultSetHoldability,
+                        Statement.NO_GENERATED_KEYS),
+                () -> delegate.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+}
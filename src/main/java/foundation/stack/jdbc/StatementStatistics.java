@@ -0,0 +1,81 @@
+package foundation.stack.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of what has been recorded for one normalized SQL text, with latencies in milliseconds.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class StatementStatistics {
+    private final String sql;
+    private final long executions;
+    private final long failures;
+    private final double totalMillis;
+    private final double meanMillis;
+    private final double medianMillis;
+    private final double percentile99Millis;
+    private final double maximumMillis;
+    private final long rowsFetched;
+    private final long batches;
+    private final double meanBatchSize;
+
+    StatementStatistics(StatementTrace trace) {
+        LatencyHistogram histogram = trace.getExecutions();
+        this.sql = trace.getSql();
+        this.executions = histogram.getCount();
+        this.failures = trace.getFailures();
+        this.totalMillis = histogram.getTotal(TimeUnit.MICROSECONDS) / 1000.0;
+        this.meanMillis = histogram.getMean(TimeUnit.MILLISECONDS);
+        this.medianMillis = histogram.getPercentile(50, TimeUnit.MILLISECONDS);
+        this.percentile99Millis = histogram.getPercentile(99, TimeUnit.MILLISECONDS);
+        this.maximumMillis = histogram.getMaximum(TimeUnit.MICROSECONDS) / 1000.0;
+        this.rowsFetched = trace.getRowsFetched();
+        this.batches = trace.getBatches();
+        this.meanBatchSize = batches == 0 ? 0 : (double) trace.getBatchedStatements() / batches;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getMedianMillis() {
+        return medianMillis;
+    }
+
+    public double getPercentile99Millis() {
+        return percentile99Millis;
+    }
+
+    public double getMaximumMillis() {
+        return maximumMillis;
+    }
+
+    public long getRowsFetched() {
+        return rowsFetched;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public double getMeanBatchSize() {
+        return meanBatchSize;
+    }
+}
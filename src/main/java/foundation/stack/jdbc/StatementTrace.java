@@ -0,0 +1,66 @@
+package foundation.stack.jdbc;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What has been recorded for one normalized SQL text.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class StatementTrace {
+    private final String sql;
+    private final LatencyHistogram executions = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rowsFetched = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedStatements = new LongAdder();
+
+    StatementTrace(String sql) {
+        this.sql = sql;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    LatencyHistogram getExecutions() {
+        return executions;
+    }
+
+    long getFailures() {
+        return failures.sum();
+    }
+
+    long getRowsFetched() {
+        return rowsFetched.sum();
+    }
+
+    long getBatches() {
+        return batches.sum();
+    }
+
+    long getBatchedStatements() {
+        return batchedStatements.sum();
+    }
+
+    void failed() {
+        failures.increment();
+    }
+
+    void fetched(long rows) {
+        rowsFetched.add(rows);
+    }
+
+    void batched(int size) {
+        batches.increment();
+        batchedStatements.add(size);
+    }
+
+    void reset() {
+        executions.reset();
+        failures.reset();
+        rowsFetched.reset();
+        batches.reset();
+        batchedStatements.reset();
+    }
+}
@@ -0,0 +1,246 @@
+package foundation.stack.jdbc;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects execution times, rows fetched and batch sizes per normalized SQL text for connections opened with the
+ * {@value #TRACE_PROPERTY} option, and publishes the most expensive statements as an MXBean named
+ * {@value #OBJECT_NAME}. Connections opened without the option are not wrapped at all.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class StatementTracer implements StatementTracerMXBean {
+    private static final Logger logger = Logger.getLogger(StatementTracer.class.getName());
+
+    public static final String OBJECT_NAME = "foundation.stack.jdbc:type=StatementTracer";
+    public static final String TRACE_PROPERTY = "trace";
+
+    private static final String MAXIMUM_STATEMENTS_PROPERTY = "sf.trace.maximumStatements";
+    private static final int DEFAULT_MAXIMUM_STATEMENTS = 500;
+
+    private static final String SLOW_THRESHOLD_PROPERTY = "sf.trace.slowThreshold";
+    private static final long DEFAULT_SLOW_THRESHOLD = 1000;
+
+    private static final String TOP_STATEMENTS_PROPERTY = "sf.trace.topStatements";
+    private static final int DEFAULT_TOP_STATEMENTS = 20;
+
+    // Once the maximum number of distinct statements is reached, everything else is counted together
+    static final String OTHER_STATEMENTS = "<other statements>";
+
+    interface TracedCall<T> {
+        T call() throws SQLException;
+    }
+
+    private static final StatementTracer tracer = new StatementTracer(
+            Integer.getInteger(MAXIMUM_STATEMENTS_PROPERTY, DEFAULT_MAXIMUM_STATEMENTS),
+            Long.getLong(SLOW_THRESHOLD_PROPERTY, DEFAULT_SLOW_THRESHOLD),
+            Integer.getInteger(TOP_STATEMENTS_PROPERTY, DEFAULT_TOP_STATEMENTS));
+
+    public static StatementTracer getTracer() {
+        return tracer;
+    }
+
+    private final ConcurrentMap<String, StatementTrace> traces = new ConcurrentHashMap<>();
+    private final StatementTrace otherStatements = new StatementTrace(OTHER_STATEMENTS);
+    private final int maximumStatements;
+    private final int topStatements;
+    private volatile long slowThresholdNanos;
+    private final LongAdder slowStatements = new LongAdder();
+
+    private StatementTracer(int maximumStatements, long slowThresholdMillis, int topStatements) {
+        this.maximumStatements = maximumStatements;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.topStatements = topStatements;
+    }
+
+    static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(tracer, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            logger.log(Level.FINE, "Statement tracer already registered, probably by another class loader");
+        } catch (JMException | SecurityException e) {
+            logger.log(Level.WARNING, "Unable to register statement tracer", e);
+        }
+    }
+
+    static boolean isEnabled(Properties properties) {
+        return Boolean.parseBoolean(properties.getProperty(TRACE_PROPERTY));
+    }
+
+    static Properties withoutTraceProperties(Properties properties) {
+        if (!properties.containsKey(TRACE_PROPERTY)) {
+            return properties;
+        }
+
+        Properties delegateProperties = new Properties();
+        delegateProperties.putAll(properties);
+        delegateProperties.remove(TRACE_PROPERTY);
+        return delegateProperties;
+    }
+
+    private static boolean isIdentifierCharacter(char character) {
+        return Character.isLetterOrDigit(character) || character == '_' || character == '$';
+    }
+
+    /**
+     * Replaces literals with {@code ?} and collapses whitespace, so statements that differ only in their values are
+     * traced together (and values never end up in logs or JMX).
+     */
+    static String normalize(String sql) {
+        int length = sql.length();
+        StringBuilder normalized = new StringBuilder(length);
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char character = sql.charAt(i);
+            if (Character.isWhitespace(character)) {
+                pendingSpace = normalized.length() > 0;
+                i++;
+                continue;
+            }
+
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+
+            if (character == '\'' || character == '"') {
+                i++;
+                while (i < length) {
+                    char quoted = sql.charAt(i++);
+                    if (quoted == '\\') {
+                        i++;
+                    } else if (quoted == character) {
+                        if (i < length && sql.charAt(i) == character) {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                }
+                normalized.append('?');
+            } else if (Character.isDigit(character) &&
+                    (i == 0 || !isIdentifierCharacter(sql.charAt(i - 1)))) {
+                while (i < length && (isIdentifierCharacter(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                normalized.append('?');
+            } else {
+                normalized.append(character);
+                i++;
+            }
+        }
+
+        return normalized.toString();
+    }
+
+    StatementTrace getTrace(String sql) {
+        return getNormalizedTrace(normalize(sql));
+    }
+
+    StatementTrace getTrace(SqlMetadata metadata) {
+        return getNormalizedTrace(metadata.getNormalizedSql());
+    }
+
+    private StatementTrace getNormalizedTrace(String normalized) {
+        StatementTrace trace = traces.get(normalized);
+        if (trace != null) {
+            return trace;
+        }
+
+        if (traces.size() >= maximumStatements) {
+            return otherStatements;
+        }
+
+        return traces.computeIfAbsent(normalized, StatementTrace::new);
+    }
+
+    void record(StatementTrace trace, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        trace.getExecutions().record(elapsed);
+        if (elapsed >= slowThresholdNanos) {
+            slowStatements.increment();
+            logger.log(Level.WARNING, "Slow statement took {0}ms: {1}",
+                    new Object[]{String.valueOf(TimeUnit.NANOSECONDS.toMillis(elapsed)), trace.getSql()});
+        }
+    }
+
+    <T> T trace(StatementTrace trace, TracedCall<T> call) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (SQLException | RuntimeException e) {
+            trace.failed();
+            throw e;
+        } finally {
+            record(trace, start);
+        }
+    }
+
+    @Override
+    public List<StatementStatistics> getTopStatements() {
+        return getTopStatements(topStatements);
+    }
+
+    @Override
+    public List<StatementStatistics> getTopStatements(int count) {
+        List<StatementTrace> candidates = new ArrayList<>(traces.values());
+        candidates.add(otherStatements);
+
+        List<StatementStatistics> statistics = new ArrayList<>();
+        candidates.stream()
+                .filter(trace -> trace.getExecutions().getCount() > 0)
+                .sorted(Comparator.comparingLong((StatementTrace trace) ->
+                        trace.getExecutions().getTotal(TimeUnit.NANOSECONDS)).reversed())
+                .limit(Math.max(count, 0))
+                .forEach(trace -> statistics.add(new StatementStatistics(trace)));
+        return statistics;
+    }
+
+    @Override
+    public int getTracedStatementCount() {
+        return traces.size();
+    }
+
+    @Override
+    public long getSlowStatementCount() {
+        return slowStatements.sum();
+    }
+
+    @Override
+    public long getSlowStatementThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    @Override
+    public void setSlowStatementThresholdMillis(long thresholdMillis) {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /**
+     * Zeroes every trace rather than dropping them, since prepared statements hold on to their trace and would go on
+     * recording into one that is no longer reported.
+     */
+    @Override
+    public void resetStatistics() {
+        for (StatementTrace trace : traces.values()) {
+            trace.reset();
+        }
+        otherStatements.reset();
+        slowStatements.reset();
+    }
+}
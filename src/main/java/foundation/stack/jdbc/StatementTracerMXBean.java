@@ -0,0 +1,25 @@
+package foundation.stack.jdbc;
+
+import java.util.List;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public interface StatementTracerMXBean {
+    /**
+     * @return the statements that have taken the most time in total, up to the configured number
+     */
+    List<StatementStatistics> getTopStatements();
+
+    List<StatementStatistics> getTopStatements(int count);
+
+    int getTracedStatementCount();
+
+    long getSlowStatementCount();
+
+    long getSlowStatementThresholdMillis();
+
+    void setSlowStatementThresholdMillis(long thresholdMillis);
+
+    void resetStatistics();
+}
@@ -0,0 +1,74 @@
+package foundation.stack.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A connection whose statements report to the {@link StatementTracer}.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class TracingConnection extends DelegatingConnection {
+    private final StatementTracer tracer;
+
+    TracingConnection(Connection delegate, StatementTracer tracer) {
+        super(delegate);
+        this.tracer = tracer;
+    }
+
+    private Statement trace(Statement statement) {
+        return new TracingStatement(this, statement, tracer);
+    }
+
+    private PreparedStatement trace(PreparedStatement statement, String sql) {
+        // Prepared statements are mostly prepared from the same texts, which need not be normalized every time
+        return new TracingPreparedStatement(this, statement, tracer, tracer.getTrace(SqlMetadata.of(sql)));
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return trace(delegate.createStatement());
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return trace(delegate.createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return trace(delegate.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return trace(delegate.prepareStatement(sql), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return trace(delegate.prepareStatement(sql, columnIndexes), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return trace(delegate.prepareStatement(sql, columnNames), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return trace(delegate.prepareStatement(sql, autoGeneratedKeys), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return trace(delegate.prepareStatement(sql, resultSetType, resultSetConcurrency), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return trace(delegate.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), sql);
+    }
+}
@@ -0,0 +1,160 @@
+package foundation.stack.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A prepared statement whose executions are all recorded against the normalized text it was prepared with. SQL run
+ * through the plain statement methods it also has is recorded against that SQL instead, as a statement would.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class TracingPreparedStatement extends DelegatingPreparedStatement {
+    private final Connection connection;
+    private final StatementTracer tracer;
+    private final StatementTrace trace;
+    private StatementTrace lastTrace;
+    private int batchSize;
+
+    TracingPreparedStatement(Connection connection, PreparedStatement delegate, StatementTracer tracer,
+                             StatementTrace trace) {
+        super(delegate);
+        this.connection = connection;
+        this.tracer = tracer;
+        this.trace = trace;
+        this.lastTrace = trace;
+    }
+
+    private StatementTrace traceOf(String sql) {
+        lastTrace = tracer.getTrace(sql);
+        return lastTrace;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        lastTrace = trace;
+        return tracer.trace(trace, preparedDelegate::execute);
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        lastTrace = trace;
+        return TracingResultSet.wrap(this, tracer.trace(trace, preparedDelegate::executeQuery), trace);
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        lastTrace = trace;
+        return tracer.trace(trace, preparedDelegate::executeUpdate);
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        lastTrace = trace;
+        return tracer.trace(trace, preparedDelegate::executeLargeUpdate);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.execute(sql));
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.execute(sql, columnIndexes));
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.execute(sql, columnNames));
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.execute(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        StatementTrace sqlTrace = traceOf(sql);
+        return TracingResultSet.wrap(this, tracer.trace(sqlTrace, () -> preparedDelegate.executeQuery(sql)), sqlTrace);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.executeUpdate(sql));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.executeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.executeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.executeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.executeLargeUpdate(sql));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.executeLargeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.executeLargeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> preparedDelegate.executeLargeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return TracingResultSet.wrap(this, preparedDelegate.getResultSet(), lastTrace);
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        preparedDelegate.addBatch();
+        batchSize++;
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        preparedDelegate.clearBatch();
+        batchSize = 0;
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        trace.batched(batchSize);
+        batchSize = 0;
+        return tracer.trace(trace, preparedDelegate::executeBatch);
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        trace.batched(batchSize);
+        batchSize = 0;
+        return tracer.trace(trace, preparedDelegate::executeLargeBatch);
+    }
+}
@@ -0,0 +1,58 @@
+package foundation.stack.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts the rows read from a result set and adds them to its statement's trace once the result set is exhausted or
+ * closed.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class TracingResultSet extends DelegatingResultSet {
+    private final Statement statement;
+    private final StatementTrace trace;
+    private long rows;
+    private boolean finished;
+
+    TracingResultSet(Statement statement, ResultSet delegate, StatementTrace trace) {
+        super(delegate);
+        this.statement = statement;
+        this.trace = trace;
+    }
+
+    static ResultSet wrap(Statement statement, ResultSet resultSet, StatementTrace trace) {
+        return resultSet == null ? null : new TracingResultSet(statement, resultSet, trace);
+    }
+
+    private void finish() {
+        if (!finished) {
+            finished = true;
+            trace.fetched(rows);
+        }
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        boolean hasRow = delegate.next();
+        if (hasRow) {
+            rows++;
+        } else {
+            finish();
+        }
+
+        return hasRow;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        finish();
+        delegate.close();
+    }
+
+    @Override
+    public Statement getStatement() throws SQLException {
+        return statement;
+    }
+}
@@ -0,0 +1,148 @@
+package foundation.stack.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A statement that records every execution against the normalized text of the SQL it ran.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class TracingStatement extends DelegatingStatement {
+    private final Connection connection;
+    private final StatementTracer tracer;
+
+    private StatementTrace lastTrace;
+    private StatementTrace batchTrace;
+    private int batchSize;
+
+    TracingStatement(Connection connection, Statement delegate, StatementTracer tracer) {
+        super(delegate);
+        this.connection = connection;
+        this.tracer = tracer;
+    }
+
+    private StatementTrace traceOf(String sql) {
+        lastTrace = tracer.getTrace(sql);
+        return lastTrace;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.execute(sql));
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.execute(sql, columnIndexes));
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.execute(sql, columnNames));
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.execute(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        StatementTrace trace = traceOf(sql);
+        return TracingResultSet.wrap(this, tracer.trace(trace, () -> delegate.executeQuery(sql)), trace);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.executeUpdate(sql));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.executeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.executeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.executeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.executeLargeUpdate(sql));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.executeLargeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.executeLargeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return tracer.trace(traceOf(sql), () -> delegate.executeLargeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        ResultSet resultSet = delegate.getResultSet();
+        return lastTrace == null ? resultSet : TracingResultSet.wrap(this, resultSet, lastTrace);
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        delegate.addBatch(sql);
+        // A batch of plain statements is traced under its first statement
+        if (batchTrace == null) {
+            batchTrace = tracer.getTrace(sql);
+        }
+        batchSize++;
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        delegate.clearBatch();
+        batchTrace = null;
+        batchSize = 0;
+    }
+
+    private StatementTrace takeBatchTrace() {
+        StatementTrace trace = batchTrace;
+        if (trace != null) {
+            trace.batched(batchSize);
+        }
+
+        batchTrace = null;
+        batchSize = 0;
+        return trace;
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        StatementTrace trace = takeBatchTrace();
+        return trace == null ? delegate.executeBatch() : tracer.trace(trace, delegate::executeBatch);
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        StatementTrace trace = takeBatchTrace();
+        return trace == null ? delegate.executeLargeBatch() : tracer.trace(trace, delegate::executeLargeBatch);
+    }
+}
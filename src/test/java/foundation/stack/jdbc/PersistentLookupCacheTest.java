@@ -0,0 +1,260 @@
+package foundation.stack.jdbc;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * The cache is internal to the Docker lookup, which needs Docker to run, so unlike the other tests this one is in the
+ * driver's package.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class PersistentLookupCacheTest {
+    private static final int MAGIC = 0x53464c43;
+    private static final int VERSION = 1;
+
+    private static final ConnectionEndpoints ENDPOINTS = new ConnectionEndpoints(
+            "jdbc:mysql://localhost:32768/orders?user=root",
+            Arrays.asList("jdbc:mysql://localhost:32769/orders", "jdbc:mysql://localhost:32770/orders"));
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void chooseFile() {
+        // In a directory that does not exist yet, as on first use
+        file = folder.getRoot().toPath().resolve("cache").resolve("lookups.cache");
+    }
+
+    private static String key(String query) {
+        return PersistentLookupCache.composeKey("stack-app", "master", query);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes entries, each saved at the given time, the way a cache would have.
+     */
+    private void writeEntries(Map<String, Long> savedAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(savedAt.size());
+            for (Map.Entry<String, Long> entry : savedAt.entrySet()) {
+                writeString(output, entry.getKey());
+                output.writeLong(entry.getValue());
+                writeString(output, ENDPOINTS.getPrimary());
+                output.writeInt(0);
+            }
+        }
+
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes.toByteArray());
+    }
+
+    /**
+     * @return when each entry in the file was saved
+     */
+    private Map<String, Long> readSavedTimes() throws IOException {
+        Map<String, Long> savedAt = new LinkedHashMap<>();
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals(MAGIC, input.readInt());
+            assertEquals(VERSION, input.readInt());
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(input);
+                savedAt.put(key, input.readLong());
+                readString(input);
+                for (int replicas = input.readInt(); replicas > 0; replicas--) {
+                    readString(input);
+                }
+            }
+            assertEquals(-1, input.read());
+        }
+
+        return savedAt;
+    }
+
+    private static void assertSameEndpoints(ConnectionEndpoints expected, ConnectionEndpoints actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getPrimary(), actual.getPrimary());
+        assertEquals(expected.getReplicas(), actual.getReplicas());
+    }
+
+    @Test
+    public void endpointsAreReadBackByANewCache() {
+        new PersistentLookupCache(file).put(key("orders"), ENDPOINTS);
+
+        PersistentLookupCache cache = new PersistentLookupCache(file);
+        assertSameEndpoints(ENDPOINTS, cache.get(key("orders")));
+        assertNull(cache.get(key("customers")));
+    }
+
+    @Test
+    public void fileIsLaidOutAsDocumented() throws IOException {
+        long before = System.currentTimeMillis();
+        new PersistentLookupCache(file).put(key("orders"), ENDPOINTS);
+
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals(MAGIC, input.readInt());
+            assertEquals(VERSION, input.readInt());
+            assertEquals(1, input.readInt());
+            assertEquals(key("orders"), readString(input));
+            long savedAt = input.readLong();
+            assertTrue(savedAt >= before && savedAt <= System.currentTimeMillis());
+            assertEquals(ENDPOINTS.getPrimary(), readString(input));
+            assertEquals(2, input.readInt());
+            assertEquals(ENDPOINTS.getReplicas().get(0), readString(input));
+            assertEquals(ENDPOINTS.getReplicas().get(1), readString(input));
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    public void corruptFilesAreIgnoredAndReplaced() throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, "not a lookup cache".getBytes(StandardCharsets.US_ASCII));
+        assertNull(new PersistentLookupCache(file).get(key("orders")));
+
+        // A file cut off part way through an entry
+        new PersistentLookupCache(file).put(key("orders"), ENDPOINTS);
+        byte[] complete = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(complete, complete.length - 5));
+        PersistentLookupCache cache = new PersistentLookupCache(file);
+        assertNull(cache.get(key("orders")));
+
+        cache.put(key("customers"), ENDPOINTS);
+        assertSameEndpoints(ENDPOINTS, new PersistentLookupCache(file).get(key("customers")));
+    }
+
+    @Test
+    public void entriesExpireAfterAWeek() throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, Long> savedAt = new LinkedHashMap<>();
+        savedAt.put(key("expired"), now - TimeUnit.DAYS.toMillis(8));
+        savedAt.put(key("recent"), now - TimeUnit.DAYS.toMillis(6));
+        writeEntries(savedAt);
+
+        PersistentLookupCache cache = new PersistentLookupCache(file);
+        assertNull(cache.get(key("expired")));
+        assertEquals(ENDPOINTS.getPrimary(), cache.get(key("recent")).getPrimary());
+    }
+
+    @Test
+    public void unchangedEndpointsAreOnlyRewrittenOnceADay() throws IOException {
+        long now = System.currentTimeMillis();
+        long anHourAgo = now - TimeUnit.HOURS.toMillis(1);
+        long twoDaysAgo = now - TimeUnit.DAYS.toMillis(2);
+        Map<String, Long> savedAt = new LinkedHashMap<>();
+        savedAt.put(key("fresh"), anHourAgo);
+        savedAt.put(key("stale"), twoDaysAgo);
+        writeEntries(savedAt);
+
+        PersistentLookupCache cache = new PersistentLookupCache(file);
+        ConnectionEndpoints sameEndpoints = ConnectionEndpoints.primaryOnly(ENDPOINTS.getPrimary());
+        cache.put(key("fresh"), sameEndpoints);
+        assertEquals(anHourAgo, (long) readSavedTimes().get(key("fresh")));
+
+        cache.put(key("stale"), sameEndpoints);
+        assertTrue(readSavedTimes().get(key("stale")) >= now);
+
+        // Different endpoints are saved however recently the old ones were
+        cache.put(key("fresh"), ENDPOINTS);
+        assertTrue(readSavedTimes().get(key("fresh")) >= now);
+        assertSameEndpoints(ENDPOINTS, new PersistentLookupCache(file).get(key("fresh")));
+    }
+
+    @Test
+    public void onlyTheNewestEntriesAreKept() throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, Long> savedAt = new LinkedHashMap<>();
+        for (int i = 0; i < 300; i++) {
+            savedAt.put(key("database" + i), now - TimeUnit.MINUTES.toMillis(300 - i));
+        }
+        writeEntries(savedAt);
+
+        new PersistentLookupCache(file).put(key("newest"), ENDPOINTS);
+
+        Map<String, Long> kept = readSavedTimes();
+        assertEquals(256, kept.size());
+        assertTrue(kept.containsKey(key("newest")));
+        assertTrue(kept.containsKey(key("database299")));
+        assertTrue(kept.containsKey(key("database45")));
+        assertFalse(kept.containsKey(key("database44")));
+
+        List<Long> times = new ArrayList<>(kept.values());
+        List<Long> newestFirst = new ArrayList<>(times);
+        newestFirst.sort(Collections.reverseOrder());
+        assertEquals(newestFirst, times);
+    }
+
+    @Test
+    public void writesKeepWhatOtherProcessesSaved() {
+        PersistentLookupCache first = new PersistentLookupCache(file);
+        PersistentLookupCache second = new PersistentLookupCache(file);
+        assertNull(second.get(key("orders")));
+
+        first.put(key("orders"), ENDPOINTS);
+        second.put(key("customers"), ENDPOINTS);
+        first.remove(key("missing"));
+
+        PersistentLookupCache third = new PersistentLookupCache(file);
+        assertSameEndpoints(ENDPOINTS, third.get(key("orders")));
+        assertSameEndpoints(ENDPOINTS, third.get(key("customers")));
+        assertSameEndpoints(ENDPOINTS, second.get(key("orders")));
+    }
+
+    @Test
+    public void endpointsThatFailTheirCheckAreRemoved() {
+        PersistentLookupCache cache = new PersistentLookupCache(file);
+        cache.put(key("orders"), ENDPOINTS);
+        cache.put(key("customers"), ENDPOINTS);
+
+        List<String> checked = new ArrayList<>();
+        assertSameEndpoints(ENDPOINTS,
+                cache.getChecked(key("orders"), endpoints -> checked.add(endpoints.getPrimary())));
+        assertEquals(Collections.singletonList(ENDPOINTS.getPrimary()), checked);
+
+        assertNull(cache.getChecked(key("orders"), endpoints -> {
+            throw new SQLException("Communications link failure", "08S01");
+        }));
+        assertNull(cache.get(key("orders")));
+        assertNull(new PersistentLookupCache(file).get(key("orders")));
+        assertSameEndpoints(ENDPOINTS, new PersistentLookupCache(file).get(key("customers")));
+
+        assertNull(cache.getChecked(key("orders"), endpoints -> fail("Nothing is saved to check")));
+    }
+}
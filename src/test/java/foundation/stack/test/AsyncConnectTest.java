@@ -0,0 +1,86 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.DelegatingDriver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class AsyncConnectTest {
+    private static final String PREFIX = "jdbc:asynctest:";
+
+    private static Connection connect(String url, Properties info) throws SQLException {
+        if (url.contains("refused")) {
+            throw new SQLException("Connection refused");
+        }
+
+        String thread = Thread.currentThread().getName();
+        return (Connection) Proxy.newProxyInstance(AsyncConnectTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "getCatalog":
+                            return thread;
+                        case "isClosed":
+                            return false;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private final FakeDriver driver = new FakeDriver(PREFIX, AsyncConnectTest::connect);
+
+    @Before
+    public void registerFakes() throws SQLException {
+        driver.register();
+    }
+
+    @After
+    public void deregisterFakes() throws SQLException {
+        DelegatingDriver.setAsyncExecutor(null);
+        driver.deregister();
+    }
+
+    @Test
+    public void connectsOnTheConfiguredExecutor() throws Exception {
+        DelegatingDriver.setAsyncExecutor(task -> new Thread(task, "async-test-connect").start());
+
+        List<CompletableFuture<Connection>> connections = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            connections.add(new DelegatingDriver().connectAsync("jdbc:sf:async" + i, null));
+        }
+
+        for (CompletableFuture<Connection> connection : connections) {
+            assertEquals("async-test-connect", connection.get().getCatalog());
+        }
+    }
+
+    @Test
+    public void failuresCompleteTheFutureExceptionally() throws InterruptedException {
+        try {
+            new DelegatingDriver().connectAsync("jdbc:sf:refused", new Properties()).get();
+            fail("Expected the connect to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+            assertEquals("Connection refused", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void otherUrlsCompleteWithNull() throws Exception {
+        assertNull(new DelegatingDriver().connectAsync("jdbc:mysql://localhost", null).get());
+    }
+}
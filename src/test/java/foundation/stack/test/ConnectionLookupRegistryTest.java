@@ -0,0 +1,187 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.ConnectionEndpoints;
+import foundation.stack.jdbc.ConnectionLookup;
+import foundation.stack.jdbc.ConnectionLookupRegistry;
+import foundation.stack.jdbc.ConnectionLookupResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConnectionLookupRegistryTest {
+    private static class CountingLookup implements ConnectionLookup {
+        private final AtomicInteger finds = new AtomicInteger();
+        private final List<String> invalidated = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String find(String query) {
+            finds.incrementAndGet();
+            if (query.startsWith("failing")) {
+                throw new IllegalStateException("Lookup backend unavailable");
+            }
+
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return "jdbc:test:" + query;
+        }
+
+        @Override
+        public String getDefaultUsername() {
+            return null;
+        }
+
+        @Override
+        public String getDefaultPassword() {
+            return null;
+        }
+
+        @Override
+        public void invalidate(String query, ConnectionEndpoints endpoints) {
+            invalidated.add(query + " -> " + endpoints.getPrimary());
+        }
+    }
+
+    private static class OrderedLookup implements ConnectionLookup {
+        private final int order;
+
+        private OrderedLookup(int order) {
+            this.order = order;
+        }
+
+        @Override
+        public String find(String query) {
+            return "ordered".equals(query) ? "jdbc:test:order" + order : null;
+        }
+
+        @Override
+        public String getDefaultUsername() {
+            return null;
+        }
+
+        @Override
+        public String getDefaultPassword() {
+            return null;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+    }
+
+    private final CountingLookup lookup = new CountingLookup();
+
+    @Before
+    public void registerLookup() {
+        ConnectionLookupRegistry.getRegistry().registerLookup(lookup);
+    }
+
+    @After
+    public void deregisterLookup() {
+        ConnectionLookupRegistry.getRegistry().deregisterLookup(lookup);
+        ConnectionLookupRegistry.getRegistry().invalidateAll();
+    }
+
+    @Test
+    public void concurrentLookupsOfTheSameQueryAreResolvedOnce() throws Exception {
+        int threads = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ConnectionLookupResult>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return ConnectionLookupRegistry.getRegistry().lookupConnection("single-flight");
+                }));
+            }
+
+            start.countDown();
+            for (Future<ConnectionLookupResult> result : results) {
+                assertEquals("jdbc:test:single-flight", result.get().getConnectionString());
+            }
+
+            assertEquals(1, lookup.finds.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void resolvedLookupsAreCached() {
+        ConnectionLookupResult first = ConnectionLookupRegistry.getRegistry().lookupConnection("cached");
+        ConnectionLookupResult second = ConnectionLookupRegistry.getRegistry().lookupConnection("cached");
+
+        assertSame(first, second);
+        assertEquals(1, lookup.finds.get());
+    }
+
+    @Test
+    public void invalidatedLookupsAreResolvedAgain() {
+        ConnectionLookupResult first = ConnectionLookupRegistry.getRegistry().lookupConnection("invalidated");
+        ConnectionLookupRegistry.getRegistry().invalidate("invalidated");
+        ConnectionLookupResult second = ConnectionLookupRegistry.getRegistry().lookupConnection("invalidated");
+
+        assertNotSame(first, second);
+        assertEquals(2, lookup.finds.get());
+    }
+
+    @Test
+    public void lookupsForgetWhatTheyFoundWhenItIsInvalidated() {
+        ConnectionLookupRegistry.getRegistry().lookupConnection("forgotten");
+        ConnectionLookupRegistry.getRegistry().invalidate("forgotten");
+        assertEquals(Collections.singletonList("forgotten -> jdbc:test:forgotten"), lookup.invalidated);
+
+        // Nothing is cached for the query any more, so there is nothing left to forget
+        ConnectionLookupRegistry.getRegistry().invalidate("forgotten");
+        assertEquals(1, lookup.invalidated.size());
+    }
+
+    @Test
+    public void failedLookupsAreCachedBriefly() {
+        for (int i = 0; i < 3; i++) {
+            try {
+                ConnectionLookupRegistry.getRegistry().lookupConnection("failing");
+                fail("Expected the lookup to fail");
+            } catch (IllegalStateException e) {
+                assertEquals("Lookup backend unavailable", e.getMessage());
+            }
+        }
+
+        assertEquals(1, lookup.finds.get());
+    }
+
+    @Test
+    public void lookupsAreTriedInOrder() {
+        ConnectionLookup later = new OrderedLookup(-10);
+        ConnectionLookup earlier = new OrderedLookup(-20);
+        ConnectionLookupRegistry.getRegistry().registerLookup(later);
+        ConnectionLookupRegistry.getRegistry().registerLookup(earlier);
+        try {
+            assertEquals("jdbc:test:order-20",
+                    ConnectionLookupRegistry.getRegistry().lookupConnection("ordered").getConnectionString());
+        } finally {
+            ConnectionLookupRegistry.getRegistry().deregisterLookup(later);
+            ConnectionLookupRegistry.getRegistry().deregisterLookup(earlier);
+        }
+    }
+}
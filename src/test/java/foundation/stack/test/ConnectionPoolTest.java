@@ -0,0 +1,331 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.ConnectionPool;
+import foundation.stack.jdbc.ConnectionLookupRegistry;
+import foundation.stack.jdbc.ConnectionPoolConfiguration;
+import foundation.stack.jdbc.DelegatingDriver;
+import foundation.stack.jdbc.PooledConnection;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConnectionPoolTest {
+    private static final String PREFIX = "jdbc:pooltest:";
+
+    private static List<ConnectionPool> getPools(String query) {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (ConnectionPool pool : DelegatingDriver.getConnectionPools()) {
+            if (pool.getName().startsWith(PREFIX + query + ' ')) {
+                pools.add(pool);
+            }
+        }
+
+        return pools;
+    }
+
+    private static Object fakeStatement(Class<?> type, Connection connection, List<AtomicBoolean> statements) {
+        AtomicBoolean closed = new AtomicBoolean();
+        synchronized (statements) {
+            statements.add(closed);
+        }
+
+        return Proxy.newProxyInstance(ConnectionPoolTest.class.getClassLoader(), new Class<?>[]{type},
+                (statement, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closed.set(true);
+                            return null;
+                        case "isClosed":
+                            return closed.get();
+                        case "getConnection":
+                            return connection;
+                        case "executeQuery":
+                            return Proxy.newProxyInstance(ConnectionPoolTest.class.getClassLoader(),
+                                    new Class<?>[]{ResultSet.class},
+                                    (resultSet, resultSetMethod, resultSetArguments) ->
+                                            resultSetMethod.getName().equals("getStatement") ? statement : null);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static Connection fakeConnection(AtomicInteger closeCount) {
+        return fakeConnection(closeCount, new ArrayList<>());
+    }
+
+    private static Connection fakeConnection(AtomicInteger closeCount, List<AtomicBoolean> statements) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionPoolTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "createStatement":
+                            return fakeStatement(Statement.class, (Connection) proxy, statements);
+                        case "prepareStatement":
+                            return fakeStatement(PreparedStatement.class, (Connection) proxy, statements);
+                        case "prepareCall":
+                            return fakeStatement(CallableStatement.class, (Connection) proxy, statements);
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                closeCount.incrementAndGet();
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed.get();
+                        case "getAutoCommit":
+                            return true;
+                        case "isReadOnly":
+                            return false;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Test
+    public void returnedConnectionsAreReused() throws SQLException {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        ConnectionPool pool = new ConnectionPool("test", new ConnectionPoolConfiguration(2, 60000, null, 100),
+                () -> {
+                    created.incrementAndGet();
+                    return fakeConnection(closed);
+                });
+
+        Connection first = pool.getConnection();
+        assertEquals(1, pool.getActiveConnections());
+        first.close();
+        assertTrue(first.isClosed());
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(1, pool.getIdleConnections());
+
+        Connection second = pool.getConnection();
+        assertEquals(1, created.get());
+        assertEquals(0, closed.get());
+        assertTrue(second instanceof PooledConnection);
+        second.close();
+    }
+
+    @Test(expected = SQLException.class)
+    public void connectionCannotBeUsedAfterItIsReturned() throws SQLException {
+        ConnectionPool pool = new ConnectionPool("test", new ConnectionPoolConfiguration(1, 60000, null, 100),
+                () -> fakeConnection(new AtomicInteger()));
+
+        Connection connection = pool.getConnection();
+        connection.close();
+        connection.createStatement();
+    }
+
+    @Test
+    public void exhaustedPoolTimesOut() throws SQLException {
+        ConnectionPool pool = new ConnectionPool("test", new ConnectionPoolConfiguration(1, 60000, null, 10),
+                () -> fakeConnection(new AtomicInteger()));
+
+        Connection connection = pool.getConnection();
+        try {
+            pool.getConnection();
+            fail("Expected the pool to be exhausted");
+        } catch (SQLTransientConnectionException e) {
+            assertEquals(1, pool.getTimeoutCount());
+        } finally {
+            connection.close();
+        }
+
+        pool.getConnection().close();
+        assertEquals(2, pool.getWaitCount());
+    }
+
+    @Test
+    public void statementsReportThePooledConnection() throws SQLException {
+        AtomicInteger closed = new AtomicInteger();
+        ConnectionPool pool = new ConnectionPool("test", new ConnectionPoolConfiguration(1, 60000, null, 100),
+                () -> fakeConnection(closed));
+
+        Connection connection = pool.getConnection();
+        Statement statement = connection.createStatement();
+        PreparedStatement preparedStatement = connection.prepareStatement("SELECT 1");
+        CallableStatement callableStatement = connection.prepareCall("CALL p()");
+        assertSame(connection, statement.getConnection());
+        assertSame(connection, preparedStatement.getConnection());
+        assertSame(connection, callableStatement.getConnection());
+        assertSame(connection, preparedStatement.executeQuery().getStatement().getConnection());
+
+        // Closing the connection a statement reports returns it to the pool rather than closing it
+        statement.getConnection().close();
+        assertEquals(0, closed.get());
+        assertEquals(1, pool.getIdleConnections());
+    }
+
+    @Test
+    public void statementsLeftOpenAreClosedWhenTheConnectionIsReturned() throws SQLException {
+        List<AtomicBoolean> statements = new ArrayList<>();
+        ConnectionPool pool = new ConnectionPool("test", new ConnectionPoolConfiguration(1, 60000, null, 100),
+                () -> fakeConnection(new AtomicInteger(), statements));
+
+        Connection connection = pool.getConnection();
+        connection.createStatement().close();
+        connection.prepareStatement("SELECT 1");
+        connection.prepareCall("CALL p()");
+        connection.close();
+
+        assertEquals(3, statements.size());
+        for (AtomicBoolean statementClosed : statements) {
+            assertTrue(statementClosed.get());
+        }
+    }
+
+    @Test
+    public void concurrentClosesReturnTheConnectionOnce() throws Exception {
+        ConnectionPool pool = new ConnectionPool("test", new ConnectionPoolConfiguration(1, 60000, null, 10),
+                () -> fakeConnection(new AtomicInteger()));
+
+        for (int attempt = 0; attempt < 20; attempt++) {
+            Connection connection = pool.getConnection();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                        connection.close();
+                    } catch (InterruptedException | SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(0, pool.getActiveConnections());
+        }
+
+        // Had any close released its permit twice, the pool would now hand out more connections than its maximum
+        Connection connection = pool.getConnection();
+        try {
+            pool.getConnection();
+            fail("Expected the pool to be exhausted");
+        } catch (SQLTransientConnectionException expected) {
+            assertEquals(1, pool.getTimeoutCount());
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void poolingIsOnlyEnabledWhenMaximumSizeIsGiven() throws SQLException {
+        Properties properties = new Properties();
+        assertNull(ConnectionPoolConfiguration.fromProperties(properties));
+
+        properties.setProperty(ConnectionPoolConfiguration.MAXIMUM_SIZE_PROPERTY, "5");
+        properties.setProperty(ConnectionPoolConfiguration.VALIDATION_QUERY_PROPERTY, "SELECT 1");
+        ConnectionPoolConfiguration configuration = ConnectionPoolConfiguration.fromProperties(properties);
+        assertEquals(5, configuration.getMaximumSize());
+        assertEquals("SELECT 1", configuration.getValidationQuery());
+    }
+
+    @Test
+    public void callersOnlyShareConnectionsOpenedWithTheirOwnPassword() throws SQLException {
+        List<String> passwords = new ArrayList<>();
+        FakeDriver driver = new FakeDriver(PREFIX, (url, info) -> {
+            passwords.add(info.getProperty("password"));
+            return fakeConnection(new AtomicInteger());
+        });
+        driver.register();
+        try {
+            DriverManager.getConnection("jdbc:sf:passwords?pool.max=1", "app", "secret").close();
+            DriverManager.getConnection("jdbc:sf:passwords?pool.max=1", "app", "wrong").close();
+            DriverManager.getConnection("jdbc:sf:passwords?pool.max=1", "app", "secret").close();
+        } finally {
+            driver.deregister();
+        }
+
+        assertEquals(2, passwords.size());
+        assertEquals("secret", passwords.get(0));
+        assertEquals("wrong", passwords.get(1));
+        assertEquals(2, getPools("passwords").size());
+    }
+
+    @Test
+    public void eachPoolConfigurationGetsItsOwnPool() throws SQLException {
+        FakeDriver driver = new FakeDriver(PREFIX, (url, info) -> fakeConnection(new AtomicInteger()));
+        driver.register();
+        try {
+            Connection first = DriverManager.getConnection("jdbc:sf:configurations?pool.max=1");
+            Connection second = DriverManager.getConnection("jdbc:sf:configurations?pool.max=2");
+            first.close();
+            second.close();
+        } finally {
+            driver.deregister();
+        }
+
+        List<Integer> maximumSizes = new ArrayList<>();
+        for (ConnectionPool pool : getPools("configurations")) {
+            maximumSizes.add(pool.getConfiguration().getMaximumSize());
+        }
+        maximumSizes.sort(null);
+        assertEquals(Arrays.asList(1, 2), maximumSizes);
+    }
+
+    @Test
+    public void poolsAreClosedOnceTheirLookupIsInvalidated() throws SQLException {
+        AtomicInteger closed = new AtomicInteger();
+        AtomicBoolean failing = new AtomicBoolean();
+        FakeDriver driver = new FakeDriver(PREFIX, (url, info) -> {
+            if (failing.get()) {
+                throw new SQLException("Communications link failure", "08S01");
+            }
+            return fakeConnection(closed);
+        });
+        driver.register();
+        try {
+            DriverManager.getConnection("jdbc:sf:invalidated?pool.max=1").close();
+            ConnectionPool first = getPools("invalidated").get(0);
+            assertEquals(1, first.getIdleConnections());
+
+            // Looked up again, the query could now resolve to another server
+            ConnectionLookupRegistry.getRegistry().invalidate("invalidated");
+            DriverManager.getConnection("jdbc:sf:invalidated?pool.max=1").close();
+            assertEquals(1, closed.get());
+            assertEquals(0, first.getIdleConnections());
+            assertEquals(1, getPools("invalidated").size());
+            assertNotSame(first, getPools("invalidated").get(0));
+
+            // A connect that fails invalidates the lookup, and with it every pool for the query
+            failing.set(true);
+            try {
+                DriverManager.getConnection("jdbc:sf:invalidated");
+                fail("Expected the connect to fail");
+            } catch (SQLException expected) {
+                assertEquals(2, closed.get());
+                assertTrue(getPools("invalidated").isEmpty());
+            }
+        } finally {
+            driver.deregister();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.ConnectionEndpoints;
+import foundation.stack.jdbc.ConnectionProfile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConnectionProfileTest {
+    // Connector/J only accepts jdbc:mysql:// URLs, so it leaves these to the fake driver
+    private static final String MYSQL_PREFIX = "jdbc:mysql:profiletest:";
+    private static final String OTHER_PREFIX = "jdbc:profiletest:";
+
+    private volatile Properties lastProperties;
+
+    private final FakeDriver driver = new FakeDriver((url, info) -> {
+        lastProperties = info;
+        return (Connection) Proxy.newProxyInstance(ConnectionProfileTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, arguments) -> null);
+    }, query -> ConnectionEndpoints.primaryOnly((query.startsWith("other") ? OTHER_PREFIX : MYSQL_PREFIX) + query),
+            MYSQL_PREFIX, OTHER_PREFIX);
+
+    @Before
+    public void registerFakes() throws SQLException {
+        driver.register();
+    }
+
+    @After
+    public void deregisterFakes() throws SQLException {
+        driver.deregister();
+    }
+
+    @Test
+    public void profileFillsInSettingsThatWereNotGiven() throws SQLException {
+        DriverManager.getConnection("jdbc:sf:profiled?profile=throughput&prepStmtCacheSize=50").close();
+
+        Properties properties = lastProperties;
+        assertFalse(properties.containsKey(ConnectionProfile.PROFILE_PROPERTY));
+        assertEquals("true", properties.getProperty("rewriteBatchedStatements"));
+        assertEquals("true", properties.getProperty("cachePrepStmts"));
+        assertEquals("50", properties.getProperty("prepStmtCacheSize"));
+    }
+
+    @Test
+    public void profileNamesAreNotCaseSensitive() throws SQLException {
+        DriverManager.getConnection("jdbc:sf:streamed?profile=Streaming").close();
+
+        assertEquals(ConnectionProfile.STREAMING.getProperties().getProperty("defaultFetchSize"),
+                lastProperties.getProperty("defaultFetchSize"));
+    }
+
+    @Test
+    public void otherDriversAreLeftAlone() throws SQLException {
+        DriverManager.getConnection("jdbc:sf:other?profile=lowlatency").close();
+
+        Properties properties = lastProperties;
+        assertFalse(properties.containsKey(ConnectionProfile.PROFILE_PROPERTY));
+        assertFalse(properties.containsKey("useServerPrepStmts"));
+    }
+
+    @Test(expected = SQLException.class)
+    public void unknownProfilesAreRejected() throws SQLException {
+        DriverManager.getConnection("jdbc:sf:profiled?profile=fastest");
+    }
+}
@@ -0,0 +1,94 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.ConsistentHashRing;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ConsistentHashRingTest {
+    private static final int KEYS = 10000;
+
+    private static String key(int i) {
+        return "branch_feature_" + i;
+    }
+
+    @Test
+    public void placementOnlyDependsOnTheKey() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 160);
+        ConsistentHashRing sameRing = new ConsistentHashRing(4, 160);
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(ring.getShard(key(i)), sameRing.getShard(key(i)));
+        }
+
+        // Fixed so that a change to how keys are hashed, which would move existing databases, does not go unnoticed
+        assertEquals(2, ring.getShard("branch_master"));
+    }
+
+    @Test
+    public void keysAreSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 160);
+        int[] counts = new int[4];
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.getShard(key(i))]++;
+        }
+
+        for (int count : counts) {
+            assertEquals(KEYS / 4, count, KEYS / 4 * 0.2);
+        }
+    }
+
+    @Test
+    public void addingAShardOnlyMovesKeysToIt() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 160);
+        ConsistentHashRing grownRing = new ConsistentHashRing(5, 160);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            int shard = ring.getShard(key(i));
+            int grownShard = grownRing.getShard(key(i));
+            if (shard != grownShard) {
+                assertEquals(4, grownShard);
+                moved++;
+            }
+        }
+
+        assertEquals(KEYS / 5, moved, KEYS / 5 * 0.25);
+    }
+
+    @Test
+    public void oneShardHoldsEverything() {
+        ConsistentHashRing ring = new ConsistentHashRing(1, 160);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, ring.getShard(key(i)));
+        }
+    }
+
+    @Test
+    public void previousShardsAreWhereKeysWereBeforeTheyMoved() {
+        ConsistentHashRing ring = new ConsistentHashRing(5, 160);
+        for (int i = 0; i < 500; i++) {
+            int shard = ring.getShard(key(i));
+            List<Integer> previousShards = ring.getPreviousShards(key(i));
+            if (shard == 0) {
+                assertTrue(previousShards.isEmpty());
+                continue;
+            }
+
+            assertEquals(new ConsistentHashRing(shard, 160).getShard(key(i)), (int) previousShards.get(0));
+            assertEquals(0, (int) previousShards.get(previousShards.size() - 1));
+            int last = shard;
+            for (int previousShard : previousShards) {
+                assertTrue(previousShard < last);
+                last = previousShard;
+            }
+
+            // It moved to its shard when that shard was added, and has stayed there since
+            assertEquals(shard, new ConsistentHashRing(shard + 1, 160).getShard(key(i)));
+        }
+    }
+}
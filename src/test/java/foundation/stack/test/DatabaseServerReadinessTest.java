@@ -0,0 +1,46 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.DatabaseServerReadiness;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class DatabaseServerReadinessTest {
+    @Test
+    public void probesUntilTheServerIsReady() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        DatabaseServerReadiness readiness = new DatabaseServerReadiness((host, port, connectionString) -> {
+            if (attempts.incrementAndGet() < 4) {
+                throw new IOException("Connection refused");
+            }
+        }, 5000, 1, 2, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        readiness.awaitReady("localhost", 3306, "jdbc:mysql://localhost:3306");
+
+        assertEquals(4, attempts.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void failsWithTheLastProbeErrorOnceTheDeadlinePasses() throws InterruptedException {
+        DatabaseServerReadiness readiness = new DatabaseServerReadiness((host, port, connectionString) -> {
+            throw new IOException("Connection refused");
+        }, 50, 1, 10, TimeUnit.MILLISECONDS);
+
+        try {
+            readiness.awaitReady("localhost", 3306, "jdbc:mysql://localhost:3306");
+            fail("Expected the server to never become ready");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("localhost:3306"));
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+}
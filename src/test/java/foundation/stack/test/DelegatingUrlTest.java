@@ -0,0 +1,76 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.DelegatingUrl;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class DelegatingUrlTest {
+    @Test
+    public void separatesTheQueryFromTheOptions() throws SQLException {
+        DelegatingUrl url = DelegatingUrl.parse("jdbc:sf:orders?pool.max=10&pool.validationQuery=SELECT 1&&");
+
+        assertEquals("orders", url.getQuery());
+        assertEquals(2, url.getOptions().size());
+        assertEquals("10", url.getOption("pool.max"));
+        assertEquals("SELECT 1", url.getOption("pool.validationQuery"));
+        assertEquals(url.getQuery(), DelegatingUrl.parse("jdbc:sf:orders?readOnly=true").getQuery());
+        assertTrue(DelegatingUrl.parse("jdbc:sf:orders").getOptions().isEmpty());
+    }
+
+    @Test
+    public void cachesParsedUrls() throws SQLException {
+        assertSame(DelegatingUrl.parse("jdbc:sf:cached?a=b"), DelegatingUrl.parse("jdbc:sf:cached?a=b"));
+    }
+
+    @Test
+    public void decodesEscapedOptions() throws SQLException {
+        DelegatingUrl url = DelegatingUrl.parse("jdbc:sf:escaped?password=a%26b%3Dc&name=caf%C3%A9&discount=50%");
+
+        assertEquals("a&b=c", url.getOption("password"));
+        assertEquals("caf\u00e9", url.getOption("name"));
+        assertEquals("50%", url.getOption("discount"));
+    }
+
+    @Test
+    public void optionsOverrideConnectionProperties() throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("user", "app");
+        info.setProperty("readOnly", "false");
+
+        Properties merged = DelegatingUrl.parse("jdbc:sf:merged?readOnly=true").mergeOptions(info);
+
+        assertEquals("app", merged.getProperty("user"));
+        assertEquals("true", merged.getProperty("readOnly"));
+        assertEquals("false", info.getProperty("readOnly"));
+    }
+
+    @Test
+    public void rejectsMalformedUrls() {
+        String[] malformed = {
+                "jdbc:sf:",
+                "jdbc:sf:?pool.max=1",
+                "jdbc:sf:orders&readOnly=true",
+                "jdbc:sf:my orders",
+                "jdbc:sf:orders?readOnly",
+                "jdbc:sf:orders?=true",
+                "jdbc:sfx:orders",
+                "jdbc:mysql://localhost/orders"
+        };
+
+        for (String url : malformed) {
+            try {
+                DelegatingUrl.parse(url);
+                fail("Expected " + url + " to be rejected");
+            } catch (SQLException e) {
+                assertTrue(e.getMessage().contains(url));
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.ConnectionEndpoints;
+import foundation.stack.jdbc.ConnectionLookup;
+import foundation.stack.jdbc.ConnectionLookupRegistry;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * A driver for URLs with prefixes of a test's own, whose connections the test makes, together with a lookup that sends
+ * {@code jdbc:sf:} queries to it. {@link #register()} installs both ahead of any other lookup, and
+ * {@link #deregister()} removes them again and empties the registry's cache.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class FakeDriver implements Driver {
+    interface Connector {
+        Connection connect(String url, Properties info) throws SQLException;
+    }
+
+    private final List<String> prefixes;
+    private final Connector connector;
+    private final ConnectionLookup lookup;
+
+    /**
+     * A driver for URLs starting with a prefix, which each query is simply appended to.
+     */
+    FakeDriver(String prefix, Connector connector) {
+        this(connector, query -> ConnectionEndpoints.primaryOnly(prefix + query), prefix);
+    }
+
+    FakeDriver(Connector connector, Function<String, ConnectionEndpoints> endpoints, String... prefixes) {
+        this.prefixes = Arrays.asList(prefixes);
+        this.connector = connector;
+        this.lookup = new ConnectionLookup() {
+            @Override
+            public String find(String query) {
+                return findEndpoints(query).getPrimary();
+            }
+
+            @Override
+            public ConnectionEndpoints findEndpoints(String query) {
+                return endpoints.apply(query);
+            }
+
+            @Override
+            public String getDefaultUsername() {
+                return null;
+            }
+
+            @Override
+            public String getDefaultPassword() {
+                return null;
+            }
+
+            @Override
+            public int getOrder() {
+                return Integer.MIN_VALUE;
+            }
+        };
+    }
+
+    void register() throws SQLException {
+        try {
+            // Makes sure the jdbc:sf: driver is there to do the lookups
+            Class.forName("foundation.stack.jdbc.DelegatingDriver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException(e);
+        }
+
+        DriverManager.registerDriver(this);
+        ConnectionLookupRegistry.getRegistry().registerLookup(lookup);
+    }
+
+    void deregister() throws SQLException {
+        ConnectionLookupRegistry.getRegistry().deregisterLookup(lookup);
+        ConnectionLookupRegistry.getRegistry().invalidateAll();
+        DriverManager.deregisterDriver(this);
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        return acceptsURL(url) ? connector.connect(url, info) : null;
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        for (String prefix : prefixes) {
+            if (url.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
@@ -0,0 +1,564 @@
+package foundation.stack.test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory stand-in for a MySQL server that understands just the administrative statements the driver sends:
+ * creating and dropping databases, tables, views, triggers and routines, cloning and renaming tables, named locks and
+ * the information schema queries that go with them. Tables have no rows and other objects no definitions; only their
+ * names are kept. While installed it takes the place of the
+ * MySQL driver for {@code jdbc:mysql:} URLs starting with {@link #getConnectionString()}.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class FakeMySqlServer implements Driver {
+    private static final AtomicInteger servers = new AtomicInteger();
+
+    private static final Pattern CREATE_DATABASE = Pattern.compile("CREATE DATABASE (IF NOT EXISTS )?(\\S+)");
+    private static final Pattern DROP_DATABASE = Pattern.compile("DROP DATABASE (IF EXISTS )?(\\S+)");
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "CREATE TABLE (IF NOT EXISTS )?(?:(\\w+)\\.)?(\\w+).*");
+    private static final Pattern CREATE_OBJECT = Pattern.compile(
+            "CREATE (?:\\S+ )*?(VIEW|TRIGGER|PROCEDURE|FUNCTION) (?:(\\w+)\\.)?(\\w+).*");
+    private static final Pattern DROP_OBJECT = Pattern.compile(
+            "DROP (VIEW|TRIGGER|PROCEDURE|FUNCTION) IF EXISTS (\\w+)\\.(\\w+)");
+    private static final Pattern SHOW_CREATE = Pattern.compile(
+            "SHOW CREATE (TABLE|VIEW|TRIGGER|PROCEDURE|FUNCTION) (\\w+)\\.(\\w+)");
+    private static final Pattern USE = Pattern.compile("USE (\\w+)");
+    private static final Pattern DROP_TABLE = Pattern.compile("DROP TABLE IF EXISTS (\\w+)\\.(\\w+)");
+    private static final Pattern INSERT = Pattern.compile("INSERT INTO (\\w+)\\.(\\w+) .*");
+    private static final Pattern REPLACE_STATE = Pattern.compile(
+            "REPLACE INTO _sf\\.clone_state .* VALUES \\('(\\w+)', '(\\w+)', '([^']*)'\\)");
+    private static final Pattern DELETE_STATE = Pattern.compile(
+            "DELETE FROM _sf\\.clone_state WHERE database_name = '(\\w+)'(?: AND table_name = '(\\w+)')?");
+    private static final Pattern MOVE_STATE = Pattern.compile(
+            "UPDATE _sf\\.clone_state SET database_name = '(\\w+)' WHERE database_name = '(\\w+)'");
+    private static final Pattern RENAME = Pattern.compile("(\\w+)\\.(\\w+) TO (\\w+)\\.(\\w+)");
+    private static final Pattern SCHEMA = Pattern.compile(
+            "(?:schema_name|table_schema|trigger_schema|routine_schema|event_schema) = '(\\w+)'");
+    private static final Pattern STATE = Pattern.compile("FROM _sf\\.clone_state WHERE database_name = '(\\w+)'");
+
+    private static final List<String> SYSTEM_DATABASES =
+            Collections.unmodifiableList(Arrays.asList("mysql", "information_schema", "sys"));
+
+    private final String connectionString = "jdbc:mysql://fake-mysql-" + servers.incrementAndGet() + ":3306/";
+    private final List<Driver> replacedDrivers = new ArrayList<>();
+
+    // Guarded by this
+    private final Map<String, Set<String>> databases = new TreeMap<>();
+    // Views, triggers and routines, as their type and name
+    private final Map<String, Set<String>> objects = new TreeMap<>();
+    private final Map<String, Map<String, String>> cloneStates = new TreeMap<>();
+    private final List<String> statements = new ArrayList<>();
+    private final List<String> failingFragments = new ArrayList<>();
+    private final List<Runnable> lockListeners = new ArrayList<>();
+    private int roundTrips;
+    private int uncopiedObjects;
+    private int connectionGeneration;
+    private String version = "8.0.36";
+
+    public String getConnectionString() {
+        return connectionString;
+    }
+
+    /**
+     * Takes over from the MySQL driver, which would otherwise try to connect to the fake server's URLs itself.
+     */
+    public FakeMySqlServer install() throws SQLException {
+        try {
+            Class.forName("com.mysql.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            // Nothing to take over from
+        }
+
+        Enumeration<Driver> drivers = DriverManager.getDrivers();
+        while (drivers.hasMoreElements()) {
+            Driver driver = drivers.nextElement();
+            if (driver.getClass().getName().startsWith("com.mysql.")) {
+                replacedDrivers.add(driver);
+                DriverManager.deregisterDriver(driver);
+            }
+        }
+
+        DriverManager.registerDriver(this);
+        return this;
+    }
+
+    public void uninstall() throws SQLException {
+        DriverManager.deregisterDriver(this);
+        for (Driver driver : replacedDrivers) {
+            DriverManager.registerDriver(driver);
+        }
+        replacedDrivers.clear();
+    }
+
+    public synchronized void createDatabase(String database, String... tables) {
+        Set<String> tableNames = databases.computeIfAbsent(database, name -> new TreeSet<>());
+        Collections.addAll(tableNames, tables);
+    }
+
+    public synchronized void dropDatabase(String database) {
+        databases.remove(database);
+        objects.remove(database);
+    }
+
+    /**
+     * Adds a view, trigger, procedure or function to a database that exists.
+     */
+    public synchronized void createObject(String database, String type, String name) {
+        objects.computeIfAbsent(database, objectDatabase -> new TreeSet<>()).add(type + ' ' + name);
+    }
+
+    /**
+     * @return the views, triggers and routines of a database, each as its type and name, e.g. {@code VIEW totals}
+     */
+    public synchronized Set<String> getObjects(String database) {
+        return new TreeSet<>(objects.getOrDefault(database, Collections.emptySet()));
+    }
+
+    public synchronized boolean hasDatabase(String database) {
+        return databases.containsKey(database);
+    }
+
+    /**
+     * @return the tables of a database, or null if it does not exist
+     */
+    public synchronized Set<String> getTables(String database) {
+        Set<String> tables = databases.get(database);
+        return tables == null ? null : new TreeSet<>(tables);
+    }
+
+    public synchronized List<String> getDatabases() {
+        return new ArrayList<>(databases.keySet());
+    }
+
+    /**
+     * @return every statement run so far, with identifiers unquoted
+     */
+    public synchronized List<String> getStatements() {
+        return new ArrayList<>(statements);
+    }
+
+    /**
+     * @return how many times statements or queries were sent to the server
+     */
+    public synchronized int getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Makes every statement containing the fragment fail, until cleared.
+     */
+    public synchronized void failStatementsContaining(String fragment) {
+        failingFragments.add(fragment);
+    }
+
+    public synchronized void clearFailures() {
+        failingFragments.clear();
+    }
+
+    /**
+     * Gives every database events, which cloning does not copy.
+     */
+    public synchronized void setUncopiedObjects(int uncopiedObjects) {
+        this.uncopiedObjects = uncopiedObjects;
+    }
+
+    public synchronized void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * Runs the listener, as if another process did something, whenever a named lock is taken.
+     */
+    public synchronized void onLock(Runnable listener) {
+        lockListeners.add(listener);
+    }
+
+    /**
+     * Breaks every connection opened so far, as a server restart would.
+     */
+    public synchronized void restart() {
+        connectionGeneration++;
+    }
+
+    private static String unquote(String sql) {
+        return sql.replace("`", "").trim();
+    }
+
+    private static List<Object[]> rows(Object... values) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Object value : values) {
+            rows.add(new Object[]{value});
+        }
+        return rows;
+    }
+
+    private String schemaOf(String sql) throws SQLException {
+        Matcher matcher = SCHEMA.matcher(sql);
+        if (!matcher.find()) {
+            throw new SQLException("No schema in " + sql);
+        }
+        return matcher.group(1);
+    }
+
+    private Set<String> tablesOf(String database) throws SQLException {
+        Set<String> tables = databases.get(database);
+        if (tables == null) {
+            throw new SQLException("Unknown database '" + database + "'", "42000", 1049);
+        }
+        return tables;
+    }
+
+    private synchronized void checkConnection(int generation) throws SQLException {
+        if (generation != connectionGeneration) {
+            throw new SQLException("Communications link failure", "08S01");
+        }
+    }
+
+    private synchronized void checkFailure(String sql) throws SQLException {
+        for (String fragment : failingFragments) {
+            if (sql.contains(fragment)) {
+                throw new SQLException("Statement failed: " + sql, "HY000", 1105);
+            }
+        }
+    }
+
+    private List<String> objectsOf(String database, String type) throws SQLException {
+        tablesOf(database);
+        List<String> names = new ArrayList<>();
+        for (String object : objects.getOrDefault(database, Collections.emptySet())) {
+            if (object.startsWith(type + ' ')) {
+                names.add(object.substring(type.length() + 1));
+            }
+        }
+        return names;
+    }
+
+    private List<Object[]> showCreate(String type, String database, String name) throws SQLException {
+        if (type.equals("TABLE") ? !tablesOf(database).contains(name) : !objectsOf(database, type).contains(name)) {
+            throw new SQLException(type + " " + database + "." + name + " does not exist", "42S02", 1146);
+        }
+
+        switch (type) {
+            case "TABLE":
+                return Collections.singletonList(new Object[]{name, "CREATE TABLE `" + name + "` (`id` INT)"});
+            case "VIEW":
+                return Collections.singletonList(new Object[]{name, "CREATE ALGORITHM=UNDEFINED VIEW `" + name +
+                        "` AS SELECT 1 AS `one`"});
+            case "TRIGGER":
+                return Collections.singletonList(new Object[]{name, "STRICT_TRANS_TABLES", "CREATE TRIGGER `" +
+                        name + "` BEFORE INSERT ON `orders` FOR EACH ROW SET @inserted = 1"});
+            default:
+                return Collections.singletonList(new Object[]{name, "STRICT_TRANS_TABLES", "CREATE " + type + " `" +
+                        name + "`() SELECT 1"});
+        }
+    }
+
+    private synchronized List<Object[]> query(String sql) throws SQLException {
+        statements.add(sql);
+        checkFailure(sql);
+
+        if (sql.contains("GET_LOCK")) {
+            for (Runnable listener : lockListeners) {
+                listener.run();
+            }
+            return rows(1);
+        } else if (sql.contains("RELEASE_LOCK")) {
+            return rows(1);
+        } else if (sql.contains("information_schema.events")) {
+            return rows(uncopiedObjects);
+        } else if (sql.contains("information_schema.views")) {
+            return rows(objectsOf(schemaOf(sql), "VIEW").toArray());
+        } else if (sql.contains("information_schema.triggers")) {
+            return rows(objectsOf(schemaOf(sql), "TRIGGER").toArray());
+        } else if (sql.contains("information_schema.routines")) {
+            List<Object[]> rows = new ArrayList<>();
+            for (String routine : objects.getOrDefault(schemaOf(sql), Collections.emptySet())) {
+                if (routine.startsWith("PROCEDURE ") || routine.startsWith("FUNCTION ")) {
+                    rows.add(new Object[]{routine});
+                }
+            }
+            return rows;
+        } else if (sql.startsWith("SHOW CREATE ")) {
+            Matcher matcher = SHOW_CREATE.matcher(sql);
+            if (!matcher.matches()) {
+                throw new SQLException("Unexpected query " + sql);
+            }
+            return showCreate(matcher.group(1), matcher.group(2), matcher.group(3));
+        } else if (sql.contains("NOT IN")) {
+            List<Object[]> rows = new ArrayList<>();
+            for (String database : databases.keySet()) {
+                if (!SYSTEM_DATABASES.contains(database)) {
+                    rows.add(new Object[]{database});
+                }
+            }
+            return rows;
+        } else if (sql.contains("information_schema.schemata")) {
+            String database = schemaOf(sql);
+            return databases.containsKey(database) ? rows(database) : rows();
+        } else if (sql.contains("information_schema.tables")) {
+            List<Object[]> rows = new ArrayList<>();
+            for (String table : tablesOf(schemaOf(sql))) {
+                rows.add(new Object[]{table, "2026-01-01 00:00:00", null, "0"});
+            }
+            return rows;
+        } else if (sql.contains("information_schema.columns")) {
+            return rows("id");
+        } else if (STATE.matcher(sql).find()) {
+            Matcher matcher = STATE.matcher(sql);
+            matcher.find();
+            tablesOf("_sf");
+            List<Object[]> rows = new ArrayList<>();
+            for (Map.Entry<String, String> state :
+                    cloneStates.getOrDefault(matcher.group(1), Collections.emptyMap()).entrySet()) {
+                rows.add(new Object[]{state.getKey(), state.getValue()});
+            }
+            return rows;
+        } else if (sql.contains("@@log_bin")) {
+            return rows("1");
+        } else if (sql.contains("VERSION()") || sql.contains("@@version")) {
+            return rows(version);
+        } else if (sql.startsWith("SHOW SLAVE STATUS")) {
+            return rows();
+        }
+
+        throw new SQLException("Unexpected query " + sql);
+    }
+
+    private static String databaseOf(String qualifier, String[] currentDatabase) throws SQLException {
+        if (qualifier != null) {
+            return qualifier;
+        } else if (currentDatabase[0] == null) {
+            throw new SQLException("No database selected", "3D000", 1046);
+        }
+        return currentDatabase[0];
+    }
+
+    private synchronized void update(String sql, String[] currentDatabase) throws SQLException {
+        statements.add(sql);
+        checkFailure(sql);
+
+        Matcher matcher;
+        if ((matcher = USE.matcher(sql)).matches()) {
+            tablesOf(matcher.group(1));
+            currentDatabase[0] = matcher.group(1);
+        } else if ((matcher = CREATE_DATABASE.matcher(sql)).matches()) {
+            if (databases.containsKey(matcher.group(2)) && matcher.group(1) == null) {
+                throw new SQLException("Can't create database '" + matcher.group(2) + "'; database exists", "HY000",
+                        1007);
+            }
+            createDatabase(matcher.group(2));
+        } else if ((matcher = DROP_DATABASE.matcher(sql)).matches()) {
+            databases.remove(matcher.group(2));
+            objects.remove(matcher.group(2));
+            if (matcher.group(2).equals("_sf")) {
+                cloneStates.clear();
+            }
+        } else if ((matcher = CREATE_TABLE.matcher(sql)).matches()) {
+            tablesOf(databaseOf(matcher.group(2), currentDatabase)).add(matcher.group(3));
+        } else if ((matcher = CREATE_OBJECT.matcher(sql)).matches()) {
+            String database = databaseOf(matcher.group(2), currentDatabase);
+            if (objectsOf(database, matcher.group(1)).contains(matcher.group(3))) {
+                throw new SQLException(matcher.group(1) + " " + matcher.group(3) + " already exists", "42000", 1304);
+            }
+            createObject(database, matcher.group(1), matcher.group(3));
+        } else if ((matcher = DROP_OBJECT.matcher(sql)).matches()) {
+            objects.getOrDefault(matcher.group(2), new TreeSet<>()).remove(matcher.group(1) + ' ' + matcher.group(3));
+        } else if ((matcher = DROP_TABLE.matcher(sql)).matches()) {
+            tablesOf(matcher.group(1)).remove(matcher.group(2));
+        } else if ((matcher = INSERT.matcher(sql)).matches()) {
+            tablesOf(matcher.group(1));
+        } else if ((matcher = REPLACE_STATE.matcher(sql)).matches()) {
+            tablesOf("_sf");
+            cloneStates.computeIfAbsent(matcher.group(1), database -> new LinkedHashMap<>())
+                    .put(matcher.group(2), matcher.group(3));
+        } else if ((matcher = DELETE_STATE.matcher(sql)).matches()) {
+            tablesOf("_sf");
+            if (matcher.group(2) == null) {
+                cloneStates.remove(matcher.group(1));
+            } else {
+                cloneStates.getOrDefault(matcher.group(1), new LinkedHashMap<>()).remove(matcher.group(2));
+            }
+        } else if ((matcher = MOVE_STATE.matcher(sql)).matches()) {
+            tablesOf("_sf");
+            Map<String, String> state = cloneStates.remove(matcher.group(2));
+            if (state != null) {
+                cloneStates.put(matcher.group(1), state);
+            }
+        } else if (sql.startsWith("RENAME TABLE ")) {
+            matcher = RENAME.matcher(sql);
+            while (matcher.find()) {
+                tablesOf(matcher.group(3));
+                if (!tablesOf(matcher.group(1)).remove(matcher.group(2))) {
+                    throw new SQLException("Table '" + matcher.group(2) + "' doesn't exist", "42S02", 1146);
+                }
+                tablesOf(matcher.group(3)).add(matcher.group(2));
+            }
+        }
+        // Anything else (SET, CHANGE MASTER, START SLAVE and the like) is only recorded
+    }
+
+    private synchronized void execute(String sql, String[] currentDatabase) throws SQLException {
+        roundTrips++;
+        for (String single : unquote(sql).split(";")) {
+            if (!single.trim().isEmpty()) {
+                update(single.trim(), currentDatabase);
+            }
+        }
+    }
+
+    private synchronized List<Object[]> executeQuery(String sql) throws SQLException {
+        roundTrips++;
+        return query(unquote(sql));
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) {
+        int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(FakeMySqlServer.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row[0] < rows.size();
+                        case "getString":
+                            Object value = rows.get(row[0])[(Integer) arguments[0] - 1];
+                            return value == null ? null : String.valueOf(value);
+                        case "getInt":
+                            return Integer.parseInt(String.valueOf(rows.get(row[0])[(Integer) arguments[0] - 1]));
+                        case "getObject":
+                            return rows.get(row[0])[(Integer) arguments[0] - 1];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private Statement statement(int generation, String[] currentDatabase, String preparedSql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        Class<?> type = preparedSql == null ? Statement.class : PreparedStatement.class;
+        return (Statement) Proxy.newProxyInstance(FakeMySqlServer.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, arguments) -> {
+                    String sql = preparedSql;
+                    if (sql != null && sql.contains("?")) {
+                        StringBuilder bound = new StringBuilder();
+                        int parameter = 1;
+                        for (char character : sql.toCharArray()) {
+                            if (character == '?') {
+                                Object value = parameters.get(parameter++);
+                                bound.append(value instanceof String ? "'" + value + "'" : value);
+                            } else {
+                                bound.append(character);
+                            }
+                        }
+                        sql = bound.toString();
+                    }
+
+                    switch (method.getName()) {
+                        case "setString":
+                        case "setInt":
+                        case "setObject":
+                            parameters.put((Integer) arguments[0], arguments[1]);
+                            return null;
+                        case "execute":
+                        case "executeUpdate":
+                            checkConnection(generation);
+                            execute(arguments == null ? sql : (String) arguments[0], currentDatabase);
+                            return method.getName().equals("execute") ? false : 0;
+                        case "executeQuery":
+                            checkConnection(generation);
+                            return resultSet(executeQuery(arguments == null ? sql : (String) arguments[0]));
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+
+        int generation;
+        synchronized (this) {
+            generation = connectionGeneration;
+        }
+
+        boolean[] closed = {false};
+        String[] currentDatabase = {null};
+        return (Connection) Proxy.newProxyInstance(FakeMySqlServer.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "createStatement":
+                            return statement(generation, currentDatabase, null);
+                        case "prepareStatement":
+                            return statement(generation, currentDatabase, unquote((String) arguments[0]));
+                        case "isValid":
+                            synchronized (this) {
+                                return !closed[0] && generation == connectionGeneration;
+                            }
+                        case "close":
+                            closed[0] = true;
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url.startsWith(connectionString);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
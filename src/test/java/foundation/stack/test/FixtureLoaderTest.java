@@ -0,0 +1,326 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.FixtureFormat;
+import foundation.stack.jdbc.MySqlFixtureLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class FixtureLoaderTest {
+    private static final String URL = "jdbc:fixturetest:server";
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private final List<List<String>> insertedRows = new CopyOnWriteArrayList<>();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final List<String> transactionCalls = new CopyOnWriteArrayList<>();
+
+    private boolean localInfile;
+    private int rowsSkippedByServer;
+    private SQLWarning serverWarning;
+    private final StringBuilder streamedRows = new StringBuilder();
+
+    /**
+     * What the loader looks for to tell that it can stream rows with {@code LOAD DATA LOCAL}.
+     */
+    public interface LocalInfileStatement extends Statement {
+        void setLocalInfileInputStream(InputStream input);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private PreparedStatement fakeInsert(String sql) {
+        List<String> parameters = new ArrayList<>();
+        List<List<String>> batch = new ArrayList<>();
+        return (PreparedStatement) Proxy.newProxyInstance(FixtureLoaderTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "setString":
+                            int index = (Integer) arguments[0];
+                            while (parameters.size() < index) {
+                                parameters.add(null);
+                            }
+                            parameters.set(index - 1, (String) arguments[1]);
+                            return null;
+                        case "addBatch":
+                            batch.add(new ArrayList<>(parameters));
+                            parameters.clear();
+                            return null;
+                        case "executeBatch":
+                            statements.add(sql);
+                            insertedRows.addAll(batch);
+                            batchSizes.add(batch.size());
+                            int[] counts = new int[batch.size()];
+                            batch.clear();
+                            return counts;
+                        default:
+                            return defaultValue(method);
+                    }
+                });
+    }
+
+    private static ResultSet singleTrue() {
+        boolean[] read = {false};
+        return (ResultSet) Proxy.newProxyInstance(FixtureLoaderTest.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            boolean next = !read[0];
+                            read[0] = true;
+                            return next;
+                        case "getBoolean":
+                            return true;
+                        default:
+                            return defaultValue(method);
+                    }
+                });
+    }
+
+    private static int countLines(String text) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private Statement fakeLocalInfileStatement() {
+        InputStream[] input = {null};
+        return (Statement) Proxy.newProxyInstance(FixtureLoaderTest.class.getClassLoader(),
+                new Class<?>[]{LocalInfileStatement.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "setLocalInfileInputStream":
+                            input[0] = (InputStream) arguments[0];
+                            return null;
+                        case "executeQuery":
+                            return singleTrue();
+                        case "executeUpdate":
+                            statements.add((String) arguments[0]);
+                            try (Reader reader = new InputStreamReader(input[0], StandardCharsets.UTF_8)) {
+                                char[] buffer = new char[256];
+                                int read;
+                                while ((read = reader.read(buffer)) >= 0) {
+                                    streamedRows.append(buffer, 0, read);
+                                }
+                            }
+                            return countLines(streamedRows.toString()) - rowsSkippedByServer;
+                        case "getWarnings":
+                            return serverWarning;
+                        default:
+                            return defaultValue(method);
+                    }
+                });
+    }
+
+    private Connection fakeConnection() {
+        return (Connection) Proxy.newProxyInstance(FixtureLoaderTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "createStatement":
+                            if (localInfile) {
+                                return fakeLocalInfileStatement();
+                            }
+                            return Proxy.newProxyInstance(FixtureLoaderTest.class.getClassLoader(),
+                                    new Class<?>[]{Statement.class}, (statement, statementMethod, sql) -> {
+                                        if (statementMethod.getName().startsWith("execute")) {
+                                            statements.add((String) sql[0]);
+                                        }
+                                        return defaultValue(statementMethod);
+                                    });
+                        case "prepareStatement":
+                            return fakeInsert((String) arguments[0]);
+                        case "getAutoCommit":
+                            return true;
+                        case "setAutoCommit":
+                            transactionCalls.add("autoCommit=" + arguments[0]);
+                            return null;
+                        case "commit":
+                        case "rollback":
+                            transactionCalls.add(method.getName());
+                            return null;
+                        default:
+                            return defaultValue(method);
+                    }
+                });
+    }
+
+    private final FakeDriver driver = new FakeDriver(URL, (url, info) -> fakeConnection());
+
+    @Before
+    public void registerFakeDriver() throws SQLException {
+        driver.register();
+    }
+
+    @After
+    public void deregisterFakeDriver() throws SQLException {
+        driver.deregister();
+    }
+
+    private static ByteArrayInputStream fixture(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void csvFixturesAreInsertedInBatches() throws IOException, SQLException {
+        MySqlFixtureLoader loader = new MySqlFixtureLoader(URL, "fixtures", 2, 1, true);
+        long loaded = loader.load("people", fixture("id,name,note\r\n" +
+                "1,\"Smith, Jane\",\"said \"\"hi\"\"\"\r\n" +
+                "\r\n" +
+                "2,Bob,\"two\nlines\"\r\n" +
+                "3,,\"\"\r\n"), FixtureFormat.CSV);
+
+        assertEquals(3, loaded);
+        assertEquals(Arrays.asList(2, 1), batchSizes);
+        assertTrue(statements.contains("INSERT INTO `people` (`id`, `name`, `note`) VALUES (?, ?, ?)"));
+        assertEquals(Arrays.asList("1", "Smith, Jane", "said \"hi\""), insertedRows.get(0));
+        assertEquals(Arrays.asList("2", "Bob", "two\nlines"), insertedRows.get(1));
+        assertEquals(Arrays.asList("3", null, ""), insertedRows.get(2));
+        assertEquals(Arrays.asList("autoCommit=false", "commit", "autoCommit=true"), transactionCalls);
+    }
+
+    @Test
+    public void batchesAreRolledBackWhenALaterRowFails() throws SQLException {
+        MySqlFixtureLoader loader = new MySqlFixtureLoader(URL, "fixtures", 1, 1, true);
+        try {
+            loader.load("events", fixture("{\"id\": 1}\n{\"id\": 2}\n{\"id\": 3\n"), FixtureFormat.NDJSON);
+            fail("Expected the unterminated object to fail the load");
+        } catch (IOException expected) {
+            assertEquals(Arrays.asList(1, 1), batchSizes);
+            assertEquals(Arrays.asList("autoCommit=false", "rollback", "autoCommit=true"), transactionCalls);
+        }
+    }
+
+    private void assertRejected(String line, String message) throws SQLException {
+        try {
+            new MySqlFixtureLoader(URL, "fixtures", 100, 1, true).load("events", fixture("{\"id\": 1}\n" + line),
+                    FixtureFormat.NDJSON);
+            fail("Expected " + line + " to be rejected");
+        } catch (IOException expected) {
+            assertEquals(line, message, expected.getMessage());
+        }
+    }
+
+    @Test
+    public void ndjsonThatIsNotJsonIsRejectedWithWhereItIs() throws SQLException {
+        assertRejected("{\"id\": [1, {\"a\": 2}", "Unterminated array at line 2, column 20");
+        assertRejected("{\"id\": {\"a\": [1]", "Unterminated object at line 2, column 17");
+        assertRejected("{\"id\": [1 2]}", "Expected ']' at line 2, column 11");
+        assertRejected("{\"id\": +1}", "Unexpected '+' at line 2, column 8");
+        assertRejected("{\"id\": 01}", "Leading zero in number at line 2, column 9");
+        assertRejected("{\"id\": -.5}", "Expected a digit at line 2, column 9");
+        assertRejected("{\"id\": 1.}", "Expected a digit at line 2, column 10");
+        assertRejected("{\"id\": .}", "Unexpected '.' at line 2, column 8");
+        assertRejected("{\"id\": [1e]}", "Expected a digit at line 2, column 11");
+        assertRejected("{\"id\": \"\\ud83d\"}", "Unpaired surrogate escape at line 2, column 9");
+        assertRejected("{\"id\": \"\\ud83d\\u0041\"}", "Unpaired surrogate escape at line 2, column 9");
+        assertRejected("{\"id\": [\"x\\ude00\"]}", "Unpaired surrogate escape at line 2, column 11");
+        assertRejected("{\"id\": \"\\q\"}", "Invalid escape at line 2, column 9");
+    }
+
+    @Test
+    public void surrogatePairsAndNegativeNumbersAreLoaded() throws IOException, SQLException {
+        new MySqlFixtureLoader(URL, "fixtures", 100, 1, true).load("events",
+                fixture("{\"id\": -0.5E+2, \"name\": \"\\ud83d\\ude00\\/\", \"tags\": [{\"a\": -1}, []]}\n"),
+                FixtureFormat.NDJSON);
+        assertEquals(Arrays.asList("-0.5E+2", "\ud83d\ude00/", "[{\"a\": -1}, []]"), insertedRows.get(0));
+    }
+
+    @Test
+    public void ndjsonFixturesTakeColumnsFromTheFirstLine() throws IOException, SQLException {
+        MySqlFixtureLoader loader = new MySqlFixtureLoader(URL, "fixtures", 100, 1, true);
+        long loaded = loader.load("events", fixture(
+                "{\"id\": 1, \"name\": \"caf\\u00e9 \\\"open\\\"\", \"active\": true, \"tags\": [\"a\", \"b\"]}\n" +
+                "{\"id\": 2.5e1, \"active\": false, \"tags\": null}\n"), FixtureFormat.NDJSON);
+
+        assertEquals(2, loaded);
+        assertEquals(Arrays.asList("1", "caf\u00e9 \"open\"", "1", "[\"a\", \"b\"]"), insertedRows.get(0));
+        assertEquals(Arrays.asList("2.5e1", null, "0", null), insertedRows.get(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void recordsWithTheWrongNumberOfFieldsAreRejected() throws IOException, SQLException {
+        new MySqlFixtureLoader(URL, "fixtures", 100, 1, true).load("people", fixture("id,name\n1\n"),
+                FixtureFormat.CSV);
+    }
+
+    @Test
+    public void formatIsToldFromTheFileName() {
+        assertEquals(FixtureFormat.CSV, FixtureFormat.fromFileName("people.CSV"));
+        assertEquals(FixtureFormat.NDJSON, FixtureFormat.fromFileName("events.jsonl"));
+    }
+
+    @Test
+    public void rowsAreStreamedWithLoadDataLocalWhenAllowed() throws IOException, SQLException {
+        localInfile = true;
+        long loaded = new MySqlFixtureLoader(URL, "fixtures", 100, 1, true).load("people",
+                fixture("id,name\n1,\"tab\there\"\n2,\n"), FixtureFormat.CSV);
+
+        assertEquals(2, loaded);
+        assertTrue(statements.contains("LOAD DATA LOCAL INFILE 'fixture' INTO TABLE `people` " +
+                "CHARACTER SET utf8mb4 (`id`, `name`)"));
+        assertEquals("1\ttab\\there\n2\t\\N\n", streamedRows.toString());
+    }
+
+    @Test
+    public void rowsTheServerSkipsFailTheLoad() throws IOException {
+        localInfile = true;
+        rowsSkippedByServer = 1;
+        try {
+            new MySqlFixtureLoader(URL, "fixtures", 100, 1, true).load("people", fixture("id\n1\n1\n"),
+                    FixtureFormat.CSV);
+            fail("Expected a load that skipped a row to fail");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Loaded 1 of the 2 rows"));
+        }
+    }
+
+    @Test
+    public void valuesTheServerChangesFailTheLoad() throws IOException {
+        localInfile = true;
+        serverWarning = new SQLWarning("Data truncated for column 'name' at row 2", "01000", 1265);
+        try {
+            new MySqlFixtureLoader(URL, "fixtures", 100, 1, true).load("people", fixture("id,name\n1,a\n2,b\n"),
+                    FixtureFormat.CSV);
+            fail("Expected a load with warnings to fail");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage(),
+                    expected.getMessage().endsWith("Data truncated for column 'name' at row 2"));
+            assertSame(serverWarning, expected.getNextException());
+        }
+    }
+}
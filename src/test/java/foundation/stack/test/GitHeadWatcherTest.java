@@ -0,0 +1,92 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.NameGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class GitHeadWatcherTest {
+    private static final String WATCH_GIT_PROPERTY = "sf.git.watch";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static ProbeRepository repository;
+    private static Supplier<String> names;
+
+    private final BlockingQueue<String> branchChanges = new LinkedBlockingQueue<>();
+    private final Consumer<String> listener = branchChanges::add;
+
+    @BeforeClass
+    public static void createRepository() throws Exception {
+        System.clearProperty(WATCH_GIT_PROPERTY);
+        repository = new ProbeRepository(folder.newFolder("watched"), "https://example.com/stack/watched.git",
+                "master", WatchedRepositoryProbe.class);
+
+        // Generating a name is what starts the repository being watched
+        names = repository.probe();
+        assertEquals("stack-watched/master", names.get());
+    }
+
+    @Before
+    public void addListener() {
+        NameGenerator.addBranchChangeListener(listener);
+    }
+
+    @After
+    public void removeListener() {
+        NameGenerator.removeBranchChangeListener(listener);
+    }
+
+    private String nextBranchChange() throws InterruptedException {
+        return branchChanges.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void checkingOutABranchChangesTheNames() throws Exception {
+        repository.checkout("feature-y");
+        assertEquals("feature-y", nextBranchChange());
+        assertEquals("stack-watched/feature-y", names.get());
+    }
+
+    @Test
+    public void onlyChangesOfBranchAreReported() throws Exception {
+        // Branches with slashes in their names are kept in directories of their own, which are watched as they appear
+        repository.createBranch("release/1.0");
+        repository.createBranch("release/1.1");
+        repository.checkout("feature-z");
+
+        assertEquals("feature-z", nextBranchChange());
+        assertNull(branchChanges.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void removedListenersAreNotTold() throws Exception {
+        NameGenerator.removeBranchChangeListener(listener);
+        BlockingQueue<String> stillListening = new LinkedBlockingQueue<>();
+        Consumer<String> otherListener = stillListening::add;
+        NameGenerator.addBranchChangeListener(otherListener);
+        try {
+            repository.checkout("feature-w");
+            assertEquals("feature-w", stillListening.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(branchChanges.isEmpty());
+        } finally {
+            NameGenerator.removeBranchChangeListener(otherListener);
+        }
+    }
+}
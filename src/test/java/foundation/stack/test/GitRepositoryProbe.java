@@ -0,0 +1,20 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.NameGenerator;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Captures the names generated for whichever git repository it was loaded from. {@link NameGeneratorTest} loads a copy
+ * of it from a {@link ProbeRepository} and runs it as the only class of that repository on a thread's stack.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class GitRepositoryProbe implements Callable<Supplier<String>> {
+    @Override
+    public Supplier<String> call() {
+        return NameGenerator.inCallerContext(() ->
+                NameGenerator.generateContextApplicationName() + '/' + NameGenerator.generateDatabaseName());
+    }
+}
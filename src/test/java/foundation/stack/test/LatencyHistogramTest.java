@@ -0,0 +1,39 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.LatencyHistogram;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMaximum(TimeUnit.MICROSECONDS));
+        assertEquals(500.5, histogram.getMean(TimeUnit.MICROSECONDS), 0.001);
+        assertEquals(500, histogram.getPercentile(50, TimeUnit.MICROSECONDS), 500 * 0.125);
+        assertEquals(990, histogram.getPercentile(99, TimeUnit.MICROSECONDS), 990 * 0.125);
+        assertTrue(histogram.getPercentile(100, TimeUnit.MICROSECONDS) <= 1000);
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaximum(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getPercentile(99, TimeUnit.NANOSECONDS), 0);
+    }
+}
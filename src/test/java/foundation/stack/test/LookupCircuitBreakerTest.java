@@ -0,0 +1,122 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.ConnectionLookup;
+import foundation.stack.jdbc.ConnectionLookupRegistry;
+import foundation.stack.jdbc.LookupCircuitBreaker;
+import foundation.stack.jdbc.LookupUnavailableException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class LookupCircuitBreakerTest {
+    private static class FailingLookup implements ConnectionLookup {
+        private final AtomicInteger finds = new AtomicInteger();
+
+        @Override
+        public String find(String query) {
+            finds.incrementAndGet();
+            throw new IllegalStateException("Docker is not running");
+        }
+
+        @Override
+        public String getDefaultUsername() {
+            return null;
+        }
+
+        @Override
+        public String getDefaultPassword() {
+            return null;
+        }
+
+        @Override
+        public int getOrder() {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private final FailingLookup lookup = new FailingLookup();
+
+    @Before
+    public void registerLookup() throws ClassNotFoundException {
+        Class.forName("foundation.stack.jdbc.DelegatingDriver");
+        ConnectionLookupRegistry.getRegistry().registerLookup(lookup);
+    }
+
+    @After
+    public void deregisterLookup() {
+        ConnectionLookupRegistry.getRegistry().deregisterLookup(lookup);
+        ConnectionLookupRegistry.getRegistry().invalidateAll();
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndRetriesAfterTheCooldown() throws InterruptedException {
+        LookupCircuitBreaker circuitBreaker = new LookupCircuitBreaker("test", 2, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.recordFailure(new IllegalStateException());
+        assertEquals(LookupCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.recordFailure(new IllegalStateException());
+        assertEquals(LookupCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        Thread.sleep(60);
+        assertTrue(circuitBreaker.tryAcquire());
+        assertEquals(LookupCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse("Only one call tries the lookup again", circuitBreaker.tryAcquire());
+
+        circuitBreaker.recordFailure(new IllegalStateException());
+        assertEquals(LookupCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        Thread.sleep(60);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.recordSuccess();
+        assertEquals(LookupCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+        assertEquals(2, circuitBreaker.getRejectedCalls());
+    }
+
+    @Test
+    public void failingLookupStopsBeingCalled() {
+        for (int i = 0; i < 5; i++) {
+            try {
+                // Different queries, so the failures are not just served from the lookup cache
+                ConnectionLookupRegistry.getRegistry().lookupConnection("down" + i);
+                fail("Expected the lookup to fail");
+            } catch (IllegalStateException | LookupUnavailableException e) {
+                if (i >= 3) {
+                    assertTrue(e instanceof LookupUnavailableException);
+                    assertTrue(e.getMessage().contains("Docker is not running"));
+                }
+            }
+        }
+
+        assertEquals(3, lookup.finds.get());
+        assertEquals(LookupCircuitBreaker.State.OPEN,
+                ConnectionLookupRegistry.getRegistry().getCircuitBreaker(lookup).getState());
+    }
+
+    @Test
+    public void connectsFailWithASqlException() {
+        for (int i = 0; i < 4; i++) {
+            try {
+                DriverManager.getConnection("jdbc:sf:unreachable" + i);
+                fail("Expected the connect to fail");
+            } catch (SQLException e) {
+                assertEquals("08001", e.getSQLState());
+                assertEquals(i >= 3, e instanceof SQLTransientConnectionException);
+            }
+        }
+    }
+}
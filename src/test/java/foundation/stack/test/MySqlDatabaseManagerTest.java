@@ -0,0 +1,247 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.MySqlDatabaseManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class MySqlDatabaseManagerTest {
+    private static final String BRANCH_CLONE_PROPERTY = "sf.branch.clone";
+
+    private FakeMySqlServer server;
+    private MySqlDatabaseManager manager;
+
+    @Before
+    public void startServer() throws SQLException {
+        server = new FakeMySqlServer().install();
+        manager = new MySqlDatabaseManager();
+    }
+
+    @After
+    public void stopServer() throws SQLException {
+        server.uninstall();
+        System.clearProperty(BRANCH_CLONE_PROPERTY);
+    }
+
+    private static Set<String> tables(String... names) {
+        return new TreeSet<>(Arrays.asList(names));
+    }
+
+    private static boolean isStaging(String database) {
+        return database.startsWith("_sf_staging_");
+    }
+
+    private long countStatements(String prefix) {
+        return server.getStatements().stream().filter(statement -> statement.startsWith(prefix)).count();
+    }
+
+    @Test
+    public void newBranchesAreClonedFromTheTemplate() throws SQLException {
+        System.setProperty(BRANCH_CLONE_PROPERTY, "true");
+        server.createDatabase("branch_master", "orders", "customers");
+
+        assertEquals("branch_feature", manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature"));
+
+        assertEquals(tables("orders", "customers"), server.getTables("branch_feature"));
+        assertEquals(tables("clone_state"), server.getTables("_sf"));
+        assertFalse(server.getDatabases().stream().anyMatch(MySqlDatabaseManagerTest::isStaging));
+        assertEquals(1, countStatements("SELECT GET_LOCK"));
+        assertEquals(1, countStatements("SELECT RELEASE_LOCK"));
+    }
+
+    @Test
+    public void failedClonesLeaveNothingBehindAndAreTriedAgain() throws SQLException {
+        System.setProperty(BRANCH_CLONE_PROPERTY, "true");
+        server.createDatabase("branch_master", "orders", "customers");
+        server.failStatementsContaining("INSERT INTO _sf_staging_branch_feature.orders");
+
+        try {
+            manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature");
+            fail("Expected the clone to fail");
+        } catch (SQLException expected) {
+            assertFalse(server.hasDatabase("branch_feature"));
+            assertFalse(server.getDatabases().stream().anyMatch(MySqlDatabaseManagerTest::isStaging));
+        }
+
+        server.clearFailures();
+        manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature");
+        assertEquals(tables("orders", "customers"), server.getTables("branch_feature"));
+    }
+
+    @Test
+    public void foreignKeysViewsTriggersAndRoutinesAreCloned() throws SQLException {
+        System.setProperty(BRANCH_CLONE_PROPERTY, "true");
+        server.createDatabase("branch_master", "orders", "customers");
+        server.createObject("branch_master", "VIEW", "order_totals");
+        server.createObject("branch_master", "TRIGGER", "orders_inserted");
+        server.createObject("branch_master", "PROCEDURE", "archive_orders");
+        server.createObject("branch_master", "FUNCTION", "order_total");
+
+        manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature");
+
+        assertEquals(tables("orders", "customers"), server.getTables("branch_feature"));
+        assertEquals(server.getObjects("branch_master"), server.getObjects("branch_feature"));
+        // Tables are created as the template shows them, foreign keys included, in whatever order they come
+        assertEquals(2, countStatements("SHOW CREATE TABLE branch_master."));
+        assertTrue(countStatements("SET SESSION foreign_key_checks = 0") > 0);
+
+        // Cloning into a database that already has them replaces them
+        assertEquals(0, manager.cloneDatabase(server.getConnectionString(), "branch_master", "branch_feature"));
+        assertEquals(server.getObjects("branch_master"), server.getObjects("branch_feature"));
+    }
+
+    @Test
+    public void clonesWhoseViewsOrTriggersFailLeaveNothingBehind() throws SQLException {
+        System.setProperty(BRANCH_CLONE_PROPERTY, "true");
+        server.createDatabase("branch_master", "orders");
+        server.createObject("branch_master", "TRIGGER", "orders_inserted");
+        server.failStatementsContaining("CREATE TRIGGER");
+
+        try {
+            manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature");
+            fail("Expected the clone to fail");
+        } catch (SQLException expected) {
+            assertFalse(server.hasDatabase("branch_feature"));
+            assertFalse(server.getDatabases().stream().anyMatch(MySqlDatabaseManagerTest::isStaging));
+        }
+
+        server.clearFailures();
+        manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature");
+        assertEquals(server.getObjects("branch_master"), server.getObjects("branch_feature"));
+    }
+
+    @Test
+    public void templatesWithObjectsThatAreNotCopiedAreNotCloned() throws SQLException {
+        System.setProperty(BRANCH_CLONE_PROPERTY, "true");
+        server.createDatabase("branch_master", "orders", "customers");
+        server.setUncopiedObjects(1);
+
+        assertEquals("branch_feature", manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature"));
+        assertEquals(Collections.emptySet(), server.getTables("branch_feature"));
+    }
+
+    @Test
+    public void branchesClonedByAnotherProcessAreLeftAlone() throws SQLException {
+        System.setProperty(BRANCH_CLONE_PROPERTY, "true");
+        server.createDatabase("branch_master", "orders", "customers");
+        // The other process finishes its clone, and starts using it, while this one waits for the lock
+        server.onLock(() -> server.createDatabase("branch_feature", "orders"));
+
+        manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature");
+
+        assertEquals(tables("orders"), server.getTables("branch_feature"));
+        assertEquals(0, countStatements("INSERT INTO"));
+    }
+
+    @Test
+    public void existingBranchesAreNotCloned() throws SQLException {
+        System.setProperty(BRANCH_CLONE_PROPERTY, "true");
+        server.createDatabase("branch_master", "orders");
+        server.createDatabase("branch_feature");
+
+        manager.getOrCreateBranchDatabase(server.getConnectionString(), "feature");
+
+        assertEquals(Collections.emptySet(), server.getTables("branch_feature"));
+        assertEquals(0, countStatements("SELECT GET_LOCK"));
+    }
+
+    @Test
+    public void clonesIntoExistingDatabasesOnlyCopyWhatChanged() throws SQLException {
+        server.createDatabase("branch_master", "orders", "customers");
+        assertEquals(2, manager.cloneDatabase(server.getConnectionString(), "branch_master", "branch_copy"));
+        assertEquals(0, manager.cloneDatabase(server.getConnectionString(), "branch_master", "branch_copy"));
+
+        List<String> databases = server.getDatabases();
+        assertTrue(databases.contains("branch_copy"));
+        assertFalse(databases.stream().anyMatch(MySqlDatabaseManagerTest::isStaging));
+    }
+
+    @Test
+    public void knownDatabasesAreOnlyCreatedOnce() throws SQLException {
+        manager.getOrCreateNamedDatabase(server.getConnectionString(), "orders");
+        int roundTrips = server.getRoundTrips();
+
+        assertEquals("orders", manager.getOrCreateNamedDatabase(server.getConnectionString(), "orders"));
+        assertEquals(roundTrips, server.getRoundTrips());
+
+        // Forgotten databases are created again, in case the server lost them
+        manager.forgetKnownDatabases(server.getConnectionString());
+        manager.getOrCreateNamedDatabase(server.getConnectionString(), "orders");
+        assertEquals(roundTrips + 1, server.getRoundTrips());
+        assertEquals(2, countStatements("CREATE DATABASE IF NOT EXISTS orders"));
+    }
+
+    @Test
+    public void missingNamedDatabasesAreCreatedInOneRoundTrip() throws SQLException {
+        manager.getOrCreateNamedDatabase(server.getConnectionString(), "orders");
+        int roundTrips = server.getRoundTrips();
+
+        List<String> names = Arrays.asList("orders", "customers", "invoices", "customers");
+        assertEquals(names, manager.getOrCreateNamedDatabases(server.getConnectionString(), names));
+        assertEquals(roundTrips + 1, server.getRoundTrips());
+        assertEquals(1, countStatements("CREATE DATABASE IF NOT EXISTS customers"));
+        assertEquals(1, countStatements("CREATE DATABASE IF NOT EXISTS invoices"));
+        assertTrue(server.hasDatabase("customers"));
+        assertTrue(server.hasDatabase("invoices"));
+
+        manager.getOrCreateNamedDatabases(server.getConnectionString(), names);
+        assertEquals(roundTrips + 1, server.getRoundTrips());
+    }
+
+    @Test
+    public void failedStatementsAreNotRetried() throws SQLException {
+        manager.getOrCreateNamedDatabase(server.getConnectionString(), "orders");
+        server.failStatementsContaining("CREATE DATABASE IF NOT EXISTS customers");
+
+        try {
+            manager.getOrCreateNamedDatabase(server.getConnectionString(), "customers");
+            fail("Expected creating the database to fail");
+        } catch (SQLException expected) {
+            assertEquals(1, countStatements("CREATE DATABASE IF NOT EXISTS customers"));
+        }
+
+        // Nor do they make the server's databases look lost
+        int roundTrips = server.getRoundTrips();
+        manager.getOrCreateNamedDatabase(server.getConnectionString(), "orders");
+        assertEquals(roundTrips, server.getRoundTrips());
+    }
+
+    @Test
+    public void brokenConnectionsAreReopenedAndTheServersDatabasesForgotten() throws SQLException {
+        manager.getOrCreateNamedDatabase(server.getConnectionString(), "orders");
+        server.restart();
+
+        manager.getOrCreateNamedDatabase(server.getConnectionString(), "customers");
+        assertTrue(server.hasDatabase("customers"));
+
+        int roundTrips = server.getRoundTrips();
+        manager.getOrCreateNamedDatabase(server.getConnectionString(), "orders");
+        assertEquals(roundTrips + 1, server.getRoundTrips());
+    }
+
+    @Test
+    public void replicasOnlyAskForThePrimarysPublicKeyFromMySql8() throws SQLException {
+        manager.replicateFrom(server.getConnectionString(), "primary", 3306, 2, "root", "secret");
+        assertEquals(1, server.getStatements().stream()
+                .filter(statement -> statement.contains("GET_MASTER_PUBLIC_KEY = 1")).count());
+
+        server.restart();
+        server.setVersion("5.7.44-log");
+        new MySqlDatabaseManager().replicateFrom(server.getConnectionString(), "primary", 3306, 2, "root", "secret");
+        assertEquals(2, countStatements("CHANGE MASTER TO"));
+        assertEquals(1, server.getStatements().stream()
+                .filter(statement -> statement.contains("GET_MASTER_PUBLIC_KEY = 1")).count());
+    }
+}
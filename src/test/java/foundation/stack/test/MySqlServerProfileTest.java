@@ -0,0 +1,87 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.MySqlDatabaseManager;
+import foundation.stack.jdbc.MySqlServerProfile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class MySqlServerProfileTest {
+    private static final String PROFILE_PROPERTY = "sf.mysql.profile";
+    private static final String DISABLE_REDO_LOG_PROPERTY = "sf.mysql.fast.disableRedoLog";
+    private static final String DISABLE_REDO_LOG = "ALTER INSTANCE DISABLE INNODB REDO_LOG";
+
+    private FakeMySqlServer server;
+
+    @Before
+    public void startServer() throws SQLException {
+        server = new FakeMySqlServer().install();
+    }
+
+    @After
+    public void stopServer() throws SQLException {
+        server.uninstall();
+        System.clearProperty(PROFILE_PROPERTY);
+        System.clearProperty(DISABLE_REDO_LOG_PROPERTY);
+    }
+
+    @Test
+    public void profilesAreNamedInAnyCase() {
+        assertEquals(MySqlServerProfile.STANDARD, MySqlServerProfile.fromSystemProperties());
+
+        Locale locale = Locale.getDefault();
+        try {
+            // Upper casing "fast" in a Turkish locale gives a dotted I, which would not name the profile
+            Locale.setDefault(new Locale("tr", "TR"));
+            System.setProperty(PROFILE_PROPERTY, " fast ");
+            assertEquals(MySqlServerProfile.FAST, MySqlServerProfile.fromSystemProperties());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void unknownProfilesFallBackToStandard() {
+        System.setProperty(PROFILE_PROPERTY, "fastest");
+        assertEquals(MySqlServerProfile.STANDARD, MySqlServerProfile.fromSystemProperties());
+    }
+
+    @Test
+    public void standardLeavesTheServerAlone() throws SQLException {
+        new MySqlDatabaseManager().applyServerProfile(server.getConnectionString(), MySqlServerProfile.STANDARD);
+        assertEquals(0, server.getRoundTrips());
+    }
+
+    @Test
+    public void fastKeepsTheServerRecoverable() throws SQLException {
+        new MySqlDatabaseManager().applyServerProfile(server.getConnectionString(), MySqlServerProfile.FAST);
+        assertTrue(server.getStatements().stream().anyMatch(statement -> statement.startsWith("SET GLOBAL " +
+                "innodb_flush_log_at_trx_commit")));
+        assertFalse(server.getStatements().contains(DISABLE_REDO_LOG));
+        assertFalse(MySqlServerProfile.FAST.getGlobalSettings().containsKey("innodb_file_per_table"));
+    }
+
+    @Test
+    public void fastTurnsOffRedoLoggingWhenAskedWhereTheServerSupportsIt() throws SQLException {
+        System.setProperty(DISABLE_REDO_LOG_PROPERTY, "true");
+        new MySqlDatabaseManager().applyServerProfile(server.getConnectionString(), MySqlServerProfile.FAST);
+        assertTrue(server.getStatements().stream().anyMatch(statement -> statement.startsWith("SET GLOBAL " +
+                "innodb_flush_log_at_trx_commit")));
+        assertTrue(server.getStatements().contains(DISABLE_REDO_LOG));
+
+        server.restart();
+        server.setVersion("8.0.20");
+        MySqlDatabaseManager manager = new MySqlDatabaseManager();
+        manager.applyServerProfile(server.getConnectionString(), MySqlServerProfile.FAST);
+        manager.applyServerProfile(server.getConnectionString(), MySqlServerProfile.FAST);
+        assertEquals(1, server.getStatements().stream().filter(DISABLE_REDO_LOG::equals).count());
+    }
+}
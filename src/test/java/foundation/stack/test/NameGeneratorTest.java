@@ -0,0 +1,62 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.NameGenerator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class NameGeneratorTest {
+    private static final String WATCH_GIT_PROPERTY = "sf.git.watch";
+    private static final String PROBE_NAMES = "stack-probe/feature-x";
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static ProbeRepository repository;
+
+    @BeforeClass
+    public static void createRepository() throws Exception {
+        System.setProperty(WATCH_GIT_PROPERTY, "false");
+        repository = new ProbeRepository(folder.newFolder("probe"), "https://example.com/stack/probe.git", "feature-x",
+                GitRepositoryProbe.class);
+    }
+
+    @AfterClass
+    public static void clearWatchProperty() {
+        System.clearProperty(WATCH_GIT_PROPERTY);
+    }
+
+    @Test
+    public void threadsWithoutApplicationClassesDoNotDecideForOthers() throws Exception {
+        // A pool or prewarm thread asking first must not fix the answer for the application threads that ask later
+        String withoutApplicationClasses = repository.callOnNewThread(NameGenerator::generateDatabaseName);
+        assertEquals(PROBE_NAMES, repository.probe().get());
+
+        // Nor does the answer for the application leak to threads that asked from elsewhere
+        assertEquals(withoutApplicationClasses, repository.callOnNewThread(NameGenerator::generateDatabaseName));
+    }
+
+    @Test
+    public void namesAreTheSameOnEveryCall() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(PROBE_NAMES, repository.probe().get());
+        }
+    }
+
+    @Test
+    public void callerContextGoesWithTheTask() throws Exception {
+        Supplier<String> names = repository.probe();
+
+        assertEquals(PROBE_NAMES, names.get());
+        assertEquals(PROBE_NAMES, repository.callOnNewThread(names::get));
+    }
+}
@@ -0,0 +1,121 @@
+package foundation.stack.test;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * A git repository with a copy of a probe class of its own, like {@link GitRepositoryProbe}, for tests of the names
+ * generated for code in a repository. Names are remembered by class name, so each probe class can only be given one
+ * repository.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+class ProbeRepository {
+    private final File gitDirectory;
+    private final String probeClassName;
+    private final ClassLoader classLoader;
+
+    /**
+     * Loads the probe from the repository rather than from wherever the rest of the test classes are.
+     */
+    private static class ProbeClassLoader extends URLClassLoader {
+        private final String probeClassName;
+
+        private ProbeClassLoader(URL classes, String probeClassName) {
+            super(new URL[]{classes}, ProbeRepository.class.getClassLoader());
+            this.probeClassName = probeClassName;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(probeClassName)) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loadedClass = findLoadedClass(name);
+                return loadedClass != null ? loadedClass : findClass(name);
+            }
+        }
+    }
+
+    ProbeRepository(File root, String remoteUrl, String branch, Class<? extends Callable<Supplier<String>>> probeClass)
+            throws IOException {
+        gitDirectory = new File(root, Constants.DOT_GIT);
+        probeClassName = probeClass.getName();
+        try (Repository repository = FileRepositoryBuilder.create(gitDirectory)) {
+            repository.create();
+            repository.updateRef(Constants.HEAD).link(Constants.R_HEADS + branch);
+
+            StoredConfig config = repository.getConfig();
+            config.setString("remote", Constants.DEFAULT_REMOTE_NAME, "url", remoteUrl);
+            config.save();
+        }
+
+        File classes = new File(root, "classes");
+        File probeClassFile = new File(classes, probeClassName.replace('.', '/') + ".class");
+        if (!probeClassFile.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create " + probeClassFile.getParent());
+        }
+        try (InputStream probeClassBytes = probeClass.getResourceAsStream(probeClass.getSimpleName() + ".class")) {
+            Files.copy(probeClassBytes, probeClassFile.toPath());
+        }
+
+        classLoader = new ProbeClassLoader(classes.toURI().toURL(), probeClassName);
+    }
+
+    /**
+     * Points {@code HEAD} at another branch, as checking it out would.
+     */
+    void checkout(String branch) throws IOException {
+        try (Repository repository = FileRepositoryBuilder.create(gitDirectory)) {
+            RefUpdate.Result result = repository.updateRef(Constants.HEAD).link(Constants.R_HEADS + branch);
+            if (result != RefUpdate.Result.FORCED && result != RefUpdate.Result.NEW) {
+                throw new IOException("Unable to check out " + branch + ": " + result);
+            }
+        }
+    }
+
+    /**
+     * Creates a branch without checking it out.
+     */
+    void createBranch(String branch) throws IOException {
+        File ref = new File(gitDirectory, Constants.R_HEADS + branch);
+        if (!ref.getParentFile().isDirectory() && !ref.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create " + ref.getParent());
+        }
+        Files.write(ref.toPath(), (ObjectId.zeroId().name() + '\n').getBytes(StandardCharsets.US_ASCII));
+    }
+
+    <T> T callOnNewThread(Callable<T> task) throws Exception {
+        // Run straight from a JDK thread and task, so that the only classes on the stack are the task's own
+        FutureTask<T> future = new FutureTask<>(task);
+        Thread thread = new Thread(future);
+        thread.setContextClassLoader(classLoader);
+        thread.start();
+        return future.get();
+    }
+
+    /**
+     * @return the names the probe generates, as {@code application/database}, in the probe's context
+     */
+    @SuppressWarnings("unchecked")
+    Supplier<String> probe() throws Exception {
+        return callOnNewThread((Callable<Supplier<String>>) classLoader.loadClass(probeClassName).newInstance());
+    }
+}
@@ -0,0 +1,255 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.ConnectionEndpoints;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class ReadWriteSplittingTest {
+    private static final String PREFIX = "jdbc:splittingtest:";
+    private static final String BALANCING_PROPERTY = "sf.replica.balancing";
+
+    private final List<String> connectAttempts = new CopyOnWriteArrayList<>();
+    private final Map<String, Connection> lastConnections = new ConcurrentHashMap<>();
+
+    private final Set<String> brokenServers = ConcurrentHashMap.newKeySet();
+
+    private Statement fakeStatement(String server, Connection connection) {
+        return (Statement) Proxy.newProxyInstance(ReadWriteSplittingTest.class.getClassLoader(),
+                new Class<?>[]{Statement.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "getConnection":
+                            return connection;
+                        case "executeQuery":
+                            if (brokenServers.contains(server)) {
+                                throw new SQLException("Communications link failure", "08S01");
+                            }
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private Connection fakeConnection(String server) {
+        boolean[] state = {true, false, false}; // auto-commit, read-only, closed
+        Properties clientInfo = new Properties();
+        int[] isolation = {Connection.TRANSACTION_REPEATABLE_READ};
+        Connection[] connection = new Connection[1];
+        connection[0] = (Connection) Proxy.newProxyInstance(ReadWriteSplittingTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "getCatalog":
+                            return server;
+                        case "createStatement":
+                            return fakeStatement(server, connection[0]);
+                        case "getTransactionIsolation":
+                            return isolation[0];
+                        case "setTransactionIsolation":
+                            isolation[0] = (Integer) arguments[0];
+                            return null;
+                        case "getClientInfo":
+                            return clientInfo.getProperty((String) arguments[0]);
+                        case "setClientInfo":
+                            clientInfo.setProperty((String) arguments[0], (String) arguments[1]);
+                            return null;
+                        case "getAutoCommit":
+                            return state[0];
+                        case "setAutoCommit":
+                            state[0] = (Boolean) arguments[0];
+                            return null;
+                        case "isReadOnly":
+                            return state[1];
+                        case "setReadOnly":
+                            state[1] = (Boolean) arguments[0];
+                            return null;
+                        case "isClosed":
+                            return state[2];
+                        case "close":
+                            state[2] = true;
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        return connection[0];
+    }
+
+    private Connection connect(String url, Properties info) throws SQLException {
+        String server = url.substring(PREFIX.length());
+        connectAttempts.add(server);
+        if (server.startsWith("down")) {
+            throw new SQLException("Connection refused");
+        }
+
+        Connection connection = fakeConnection(server);
+        lastConnections.put(server, connection);
+        return connection;
+    }
+
+    private static ConnectionEndpoints findEndpoints(String query) {
+        String firstReplica = query.startsWith("ejecting") ? "down-" + query : query + "-replica1";
+        return new ConnectionEndpoints(PREFIX + query + "-primary",
+                Arrays.asList(PREFIX + firstReplica, PREFIX + query + "-replica2"));
+    }
+
+    private final FakeDriver driver = new FakeDriver(this::connect, ReadWriteSplittingTest::findEndpoints, PREFIX);
+
+    @Before
+    public void registerFakes() throws SQLException {
+        driver.register();
+    }
+
+    @After
+    public void deregisterFakes() throws SQLException {
+        driver.deregister();
+        System.clearProperty(BALANCING_PROPERTY);
+    }
+
+    @Test
+    public void readOnlyConnectionsAlternateBetweenReplicas() throws SQLException {
+        try (Connection first = DriverManager.getConnection("jdbc:sf:split");
+             Connection second = DriverManager.getConnection("jdbc:sf:split")) {
+            assertEquals("split-primary", first.getCatalog());
+
+            first.setReadOnly(true);
+            second.setReadOnly(true);
+            assertEquals("split-replica1", first.getCatalog());
+            assertEquals("split-replica2", second.getCatalog());
+            assertTrue(first.isReadOnly());
+
+            first.setReadOnly(false);
+            assertEquals("split-primary", first.getCatalog());
+            assertFalse(first.isReadOnly());
+        }
+    }
+
+    @Test
+    public void staysOnThePrimaryDuringATransaction() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:transaction")) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            assertEquals("transaction-primary", connection.getCatalog());
+            assertTrue(connection.isReadOnly());
+        }
+    }
+
+    @Test
+    public void readOnlyOptionConnectsStraightToAReplica() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:option?readOnly=true")) {
+            assertEquals("option-replica1", connection.getCatalog());
+            assertTrue(connection.isReadOnly());
+        }
+        assertFalse(connectAttempts.contains("option-primary"));
+    }
+
+    @Test
+    public void unreachableReplicaIsEjected() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = DriverManager.getConnection("jdbc:sf:ejecting?readOnly=true")) {
+                assertEquals("ejecting-replica2", connection.getCatalog());
+            }
+        }
+
+        assertEquals(1, connectAttempts.stream().filter(server -> server.startsWith("down")).count());
+    }
+
+    @Test
+    public void closedReplicaClosesTheConnectionWhileInUse() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:dropped")) {
+            connection.setReadOnly(true);
+            lastConnections.get("dropped-replica1").close();
+            assertTrue(connection.isClosed());
+
+            // Back on the primary the closed replica is no longer in use, and is replaced when it is needed again
+            connection.setReadOnly(false);
+            assertFalse(connection.isClosed());
+            connection.setReadOnly(true);
+            assertEquals("dropped-replica2", connection.getCatalog());
+        }
+    }
+
+    @Test
+    public void unknownBalancingFallsBackToRoundRobin() throws SQLException {
+        System.setProperty(BALANCING_PROPERTY, "random");
+        try (Connection first = DriverManager.getConnection("jdbc:sf:misconfigured?readOnly=true");
+             Connection second = DriverManager.getConnection("jdbc:sf:misconfigured?readOnly=true")) {
+            assertEquals("misconfigured-replica1", first.getCatalog());
+            assertEquals("misconfigured-replica2", second.getCatalog());
+        }
+    }
+
+    @Test
+    public void sessionSettingsFollowTheConnectionBetweenPrimaryAndReplica() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:session")) {
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            connection.setReadOnly(true);
+            assertEquals("session-replica1", connection.getCatalog());
+            assertEquals(Connection.TRANSACTION_READ_COMMITTED, connection.getTransactionIsolation());
+
+            connection.setClientInfo("ApplicationName", "reports");
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setReadOnly(false);
+            assertEquals("session-primary", connection.getCatalog());
+            assertEquals(Connection.TRANSACTION_SERIALIZABLE, connection.getTransactionIsolation());
+            assertEquals("reports", connection.getClientInfo("ApplicationName"));
+        }
+    }
+
+    @Test
+    public void statementsReportTheSplittingConnection() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:statements")) {
+            connection.setReadOnly(true);
+            try (Statement statement = connection.createStatement()) {
+                assertSame(connection, statement.getConnection());
+            }
+        }
+    }
+
+    @Test
+    public void brokenReplicaIsEjectedAndReadsMoveToThePrimary() throws SQLException {
+        brokenServers.add("broken-replica1");
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:broken")) {
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED);
+            connection.setReadOnly(true);
+            assertEquals("broken-replica1", connection.getCatalog());
+
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT 1");
+                fail("The query should have failed");
+            } catch (SQLException e) {
+                assertEquals("08S01", e.getSQLState());
+            }
+
+            assertEquals("broken-primary", connection.getCatalog());
+            assertTrue(connection.isReadOnly());
+            assertEquals(Connection.TRANSACTION_READ_COMMITTED, connection.getTransactionIsolation());
+            assertTrue(lastConnections.get("broken-replica1").isClosed());
+        }
+
+        for (int i = 0; i < 2; i++) {
+            try (Connection connection = DriverManager.getConnection("jdbc:sf:broken?readOnly=true")) {
+                assertEquals("broken-replica2", connection.getCatalog());
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.DriverMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class StatementCacheTest {
+    private static final String PREFIX = "jdbc:statementcachetest:";
+
+    private final List<AtomicBoolean> preparedStatements = new ArrayList<>();
+    private volatile Properties lastProperties;
+
+    private PreparedStatement prepare() {
+        AtomicBoolean closed = new AtomicBoolean();
+        synchronized (preparedStatements) {
+            preparedStatements.add(closed);
+        }
+
+        return (PreparedStatement) Proxy.newProxyInstance(StatementCacheTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closed.set(true);
+                            return null;
+                        case "isClosed":
+                            return closed.get();
+                        case "executeUpdate":
+                            return 1;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private Connection connect(String url, Properties info) {
+        lastProperties = info;
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(StatementCacheTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return prepare();
+                        case "close":
+                            closed.set(true);
+                            return null;
+                        case "isClosed":
+                            return closed.get();
+                        case "isValid":
+                        case "getAutoCommit":
+                            return true;
+                        case "isReadOnly":
+                            return false;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private final FakeDriver driver = new FakeDriver(PREFIX, this::connect);
+
+    @Before
+    public void registerFakes() throws SQLException {
+        driver.register();
+    }
+
+    @After
+    public void deregisterFakes() throws SQLException {
+        driver.deregister();
+    }
+
+    private int preparedCount() {
+        synchronized (preparedStatements) {
+            return preparedStatements.size();
+        }
+    }
+
+    private boolean isPhysicallyClosed(int statement) {
+        synchronized (preparedStatements) {
+            return preparedStatements.get(statement).get();
+        }
+    }
+
+    @Test
+    public void closedStatementsArePreparedOnlyOnce() throws SQLException {
+        long hits = DriverMetrics.getMetrics().getStatementCacheHits();
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:reused?statementCache.size=10")) {
+            assertFalse(lastProperties.containsKey("statementCache.size"));
+
+            for (int i = 0; i < 5; i++) {
+                try (PreparedStatement statement = connection.prepareStatement("UPDATE t SET a = ? WHERE id = ?")) {
+                    statement.setInt(1, i);
+                    assertEquals(1, statement.executeUpdate());
+                    assertSame(connection, statement.getConnection());
+                }
+            }
+
+            assertEquals(1, preparedCount());
+            assertFalse(isPhysicallyClosed(0));
+        }
+
+        assertTrue("Closing the connection closes its cached statements", isPhysicallyClosed(0));
+        assertEquals(4, DriverMetrics.getMetrics().getStatementCacheHits() - hits);
+    }
+
+    @Test
+    public void statementsInUseAreNotShared() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:shared?statementCache.size=10");
+             PreparedStatement first = connection.prepareStatement("SELECT 1");
+             PreparedStatement second = connection.prepareStatement("SELECT 1")) {
+            assertNotSame(first, second);
+            assertEquals(2, preparedCount());
+        }
+
+        assertTrue("Only one of the two statements is kept", isPhysicallyClosed(0) || isPhysicallyClosed(1));
+    }
+
+    @Test
+    public void closedStatementsCannotBeUsed() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:returned?statementCache.size=10")) {
+            PreparedStatement statement = connection.prepareStatement("SELECT 1");
+            statement.close();
+
+            assertTrue(statement.isClosed());
+            try {
+                statement.executeQuery();
+                fail("Expected a closed statement to fail");
+            } catch (SQLException expected) {
+                assertFalse(isPhysicallyClosed(0));
+            }
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementsAreEvicted() throws SQLException {
+        long evictions = DriverMetrics.getMetrics().getStatementCacheEvictions();
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:evicting?statementCache.size=2")) {
+            connection.prepareStatement("SELECT 1").close();
+            connection.prepareStatement("SELECT 2").close();
+            connection.prepareStatement("SELECT 1").close();
+            connection.prepareStatement("SELECT 3").close();
+
+            assertEquals(3, preparedCount());
+            assertFalse(isPhysicallyClosed(0));
+            assertTrue(isPhysicallyClosed(1));
+            assertFalse(isPhysicallyClosed(2));
+        }
+
+        assertEquals(1, DriverMetrics.getMetrics().getStatementCacheEvictions() - evictions);
+    }
+
+    @Test
+    public void reconfiguredStatementsAreNotCached() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:reconfigured?statementCache.size=10")) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+                statement.setFetchSize(100);
+            }
+            connection.prepareStatement("SELECT 1").close();
+
+            assertEquals(2, preparedCount());
+            assertTrue(isPhysicallyClosed(0));
+        }
+    }
+
+    @Test
+    public void pooledConnectionsKeepTheirStatements() throws SQLException {
+        String url = "jdbc:sf:pooled?statementCache.size=10&pool.max=1";
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = DriverManager.getConnection(url)) {
+                connection.prepareStatement("SELECT 1").close();
+            }
+        }
+
+        assertEquals(1, preparedCount());
+    }
+}
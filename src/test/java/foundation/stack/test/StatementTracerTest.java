@@ -0,0 +1,155 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.StatementStatistics;
+import foundation.stack.jdbc.StatementTracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class StatementTracerTest {
+    private static final String PREFIX = "jdbc:tracertest:";
+    private static final int ROWS = 3;
+
+    private static <T> T fake(Class<T> type, Object[] rowsLeft) {
+        return type.cast(Proxy.newProxyInstance(StatementTracerTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "createStatement":
+                            return fake(Statement.class, null);
+                        case "prepareStatement":
+                            return fake(PreparedStatement.class, null);
+                        case "executeQuery":
+                            return fake(ResultSet.class, new Object[]{ROWS});
+                        case "next":
+                            int left = (Integer) rowsLeft[0];
+                            rowsLeft[0] = left - 1;
+                            return left > 0;
+                        case "executeBatch":
+                            return new int[0];
+                        case "execute":
+                        case "isClosed":
+                            return false;
+                        case "executeUpdate":
+                            return 1;
+                        default:
+                            return null;
+                    }
+                }));
+    }
+
+    private final FakeDriver driver = new FakeDriver(PREFIX, (url, info) -> fake(Connection.class, null));
+
+    @Before
+    public void registerFakes() throws SQLException {
+        driver.register();
+        StatementTracer.getTracer().resetStatistics();
+    }
+
+    @After
+    public void deregisterFakes() throws SQLException {
+        driver.deregister();
+    }
+
+    private static StatementStatistics find(String sql) {
+        for (StatementStatistics statistics : StatementTracer.getTracer().getTopStatements(100)) {
+            if (statistics.getSql().equals(sql)) {
+                return statistics;
+            }
+        }
+
+        fail("No statistics for " + sql + " in " + StatementTracer.getTracer().getTopStatements(100));
+        return null;
+    }
+
+    @Test
+    public void tracesStatementsByNormalizedText() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:tracer?trace=true")) {
+            for (int id = 1; id <= 2; id++) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery("SELECT *  FROM users\n WHERE id = " + id +
+                             " AND name = 'user''s name'")) {
+                    while (resultSet.next()) {
+                        assertSame(statement, resultSet.getStatement());
+                    }
+                }
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO users VALUES (?, ?)")) {
+                for (int i = 0; i < 5; i++) {
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                assertSame(connection, statement.getConnection());
+            }
+        }
+
+        StatementStatistics query = find("SELECT * FROM users WHERE id = ? AND name = ?");
+        assertEquals(2, query.getExecutions());
+        assertEquals(2 * ROWS, query.getRowsFetched());
+
+        StatementStatistics insert = find("INSERT INTO users VALUES (?, ?)");
+        assertEquals(1, insert.getExecutions());
+        assertEquals(1, insert.getBatches());
+        assertEquals(5, insert.getMeanBatchSize(), 0);
+    }
+
+    @Test
+    public void connectionsAreNotTracedUnlessAskedFor() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:untraced");
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM users");
+        }
+
+        List<StatementStatistics> statistics = StatementTracer.getTracer().getTopStatements(100);
+        assertTrue(statistics.isEmpty());
+    }
+
+    @Test
+    public void statementsKeepBeingTracedAfterAReset() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:tracer?trace=true");
+             PreparedStatement statement = connection.prepareStatement("UPDATE users SET name = ? WHERE id = ?")) {
+            statement.executeUpdate();
+            statement.executeUpdate();
+            assertEquals(2, find("UPDATE users SET name = ? WHERE id = ?").getExecutions());
+
+            StatementTracer.getTracer().resetStatistics();
+            assertTrue(StatementTracer.getTracer().getTopStatements(100).isEmpty());
+
+            statement.executeUpdate();
+            assertEquals(1, find("UPDATE users SET name = ? WHERE id = ?").getExecutions());
+        }
+    }
+
+    @Test
+    public void sqlRunThroughAPreparedStatementIsTracedUnderItsOwnText() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sf:tracer?trace=true");
+             PreparedStatement statement = connection.prepareStatement("UPDATE users SET name = ? WHERE id = ?")) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT name FROM users WHERE id = 1")) {
+                while (resultSet.next()) {
+                    assertSame(statement, resultSet.getStatement());
+                }
+            }
+            statement.executeUpdate("DELETE FROM users WHERE id = 2");
+            statement.execute("DELETE FROM users WHERE id = 3", Statement.RETURN_GENERATED_KEYS);
+        }
+
+        StatementStatistics query = find("SELECT name FROM users WHERE id = ?");
+        assertEquals(1, query.getExecutions());
+        assertEquals(ROWS, query.getRowsFetched());
+        assertEquals(2, find("DELETE FROM users WHERE id = ?").getExecutions());
+    }
+}
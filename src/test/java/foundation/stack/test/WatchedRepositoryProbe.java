@@ -0,0 +1,20 @@
+package foundation.stack.test;
+
+import foundation.stack.jdbc.NameGenerator;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * The same as {@link GitRepositoryProbe}, for {@link GitHeadWatcherTest}'s repository. Names are remembered by class
+ * name, so the two tests cannot share a probe.
+ *
+ * @author Ravi Chodavarapu (rchodava@gmail.com)
+ */
+public class WatchedRepositoryProbe implements Callable<Supplier<String>> {
+    @Override
+    public Supplier<String> call() {
+        return NameGenerator.inCallerContext(() ->
+                NameGenerator.generateContextApplicationName() + '/' + NameGenerator.generateDatabaseName());
+    }
+}